@@ -0,0 +1,155 @@
+package fasteval.api;
+
+import fasteval.compilation.OperandOrder;
+import fasteval.context.EvalContext;
+import fasteval.eval.NodeProfile;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// A rule set that reorders the operands of its AND and OR chains to match the traffic it sees.
+// About one evaluation in sampleEvery also runs the same rules through a profiling interpreter
+// (NodeProfile). Every samplesPerRelink samples, a background thread orders each chain so that
+// cheap operands likely to decide it run first (OperandOrder), rebuilds the rule set with the
+// same backend and publishes it with one atomic swap, as ReloadableRuleSet does. A new version
+// is only built when the samples say it saves at least MIN_GAIN of the reordered chains' cost.
+// Results do not change; which tokens get read does, so a token missing from a context may be
+// read in one version and skipped in another. Handles stay bound to the version they came from.
+public final class AdaptiveRuleSet implements Closeable {
+
+    static final double MIN_GAIN = 0.1;
+
+    private final FastEvalBuilder builder;
+    private final Backend backend;
+    private final int sampleEvery;
+    private final int samplesPerRelink;
+    private final Consumer<Exception> onFailure;
+    private final AtomicReference<Version> current = new AtomicReference<>();
+    private final AtomicBoolean relinkPending = new AtomicBoolean();
+    private final ExecutorService relinker;
+
+    // The profile describes this version's trees; a new version starts a new profile
+    private record Version(FastEvalRuleSet ruleSet, long version, NodeProfile profile) {
+    }
+
+    private AdaptiveRuleSet(FastEvalBuilder builder, Backend backend, int sampleEvery, int samplesPerRelink,
+                            Consumer<Exception> onFailure) {
+        if (sampleEvery <= 0 || samplesPerRelink <= 0) {
+            throw new IllegalArgumentException("Sampling intervals must be positive");
+        }
+        this.builder = builder;
+        this.backend = backend;
+        this.sampleEvery = sampleEvery;
+        this.samplesPerRelink = samplesPerRelink;
+        this.onFailure = onFailure;
+        this.relinker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fasteval-adaptive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Like the relinked versions, the first one is not published to the static facade
+        current.set(version(builder.build(backend), 1));
+    }
+
+    public static AdaptiveRuleSet of(FastEvalBuilder builder, Backend backend) {
+        return of(builder, backend, 64, 10_000, e -> {
+        });
+    }
+
+    // Background rebuilds that fail go to onFailure; the published version stays
+    public static AdaptiveRuleSet of(FastEvalBuilder builder, Backend backend, int sampleEvery, int samplesPerRelink,
+                                     Consumer<Exception> onFailure) {
+        return new AdaptiveRuleSet(builder, backend, sampleEvery, samplesPerRelink, onFailure);
+    }
+
+    // The rule set to evaluate against; take it once per request for a consistent view
+    public FastEvalRuleSet current() {
+        return current.get().ruleSet;
+    }
+
+    public long version() {
+        return current.get().version;
+    }
+
+    public boolean evaluate(String ruleName, EvalContext ctx) {
+        Version version = current.get();
+        boolean result = version.ruleSet.evaluate(ruleName, ctx);
+        if (shouldSample()) {
+            sample(version, List.of(ruleName), ctx);
+        }
+        return result;
+    }
+
+    public List<String> evaluateGroup(String groupName, EvalContext ctx) {
+        Version version = current.get();
+        List<String> result = version.ruleSet.evaluateGroup(groupName, ctx);
+        if (shouldSample()) {
+            sample(version, version.ruleSet.getRuleContext().getRuleGroups().get(groupName), ctx);
+        }
+        return result;
+    }
+
+    // For callers evaluating through handles: feed the same rules and context now and then
+    public void sample(Collection<String> ruleNames, EvalContext ctx) {
+        sample(current.get(), ruleNames, ctx);
+    }
+
+    // Reorders from the samples so far and publishes the result if it is worth it; serialized
+    // with the background relinks. Returns whether a new version was published.
+    public synchronized boolean relink() {
+        Version old = current.get();
+        OperandOrder.Result reordered = OperandOrder.reorder(old.ruleSet.ruleNodeMap(), old.profile);
+        if (reordered.reorderedChains() == 0 || reordered.reorderedCost() > reordered.currentCost() * (1 - MIN_GAIN)) {
+            return false;
+        }
+        current.set(version(builder.build(backend, reordered.ruleNodeMap()), old.version + 1));
+        return true;
+    }
+
+    // Stops background relinks; evaluating and relink() keep working
+    @Override
+    public void close() {
+        relinker.shutdownNow();
+    }
+
+    private boolean shouldSample() {
+        return ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    private void sample(Version version, Collection<String> ruleNames, EvalContext ctx) {
+        try {
+            version.profile.sample(ruleNames, ctx);
+        } catch (RuntimeException e) {
+            // The evaluation itself succeeded; a context the profiler cannot read is just not sampled
+            return;
+        }
+        if (version.profile.samples() % samplesPerRelink == 0 && relinkPending.compareAndSet(false, true)) {
+            try {
+                relinker.execute(() -> {
+                    try {
+                        relink();
+                    } catch (RuntimeException e) {
+                        onFailure.accept(e);
+                    } finally {
+                        relinkPending.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed: the published version stays, and evaluation goes on without relinks
+                relinkPending.set(false);
+            }
+        }
+    }
+
+    private static Version version(FastEvalRuleSet ruleSet, long version) {
+        return new Version(ruleSet, version, new NodeProfile(ruleSet.ruleNodeMap(), ruleSet.getRuleContext().getTokenTypeMap()));
+    }
+}
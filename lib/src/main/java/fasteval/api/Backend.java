@@ -0,0 +1,10 @@
+package fasteval.api;
+
+// The evaluation backends FastEvalBuilder can build a rule set with
+public enum Backend {
+    INTERPRETATION,
+    COMPILATION,
+    STRING_COMPILATION,
+    CLOSURE_COMPILATION,
+    RULE_SET_COMPILATION
+}
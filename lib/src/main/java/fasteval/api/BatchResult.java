@@ -0,0 +1,46 @@
+package fasteval.api;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// Group results over a ColumnarBatch: one bitmap per member in declared order, bit r set when
+// the member passed for row r
+public final class BatchResult {
+    @Getter
+    private final List<String> memberNames;
+    @Getter
+    private final int rowCount;
+    private final long[][] bitmaps;
+
+    BatchResult(List<String> memberNames, int rowCount, long[][] bitmaps) {
+        this.memberNames = memberNames;
+        this.rowCount = rowCount;
+        this.bitmaps = bitmaps;
+    }
+
+    // The bitmap is shared with this result; callers must not modify it
+    public long[] bitmap(int memberIndex) {
+        return bitmaps[memberIndex];
+    }
+
+    public long[] bitmap(String ruleName) {
+        int index = memberNames.indexOf(ruleName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Rule not in group: " + ruleName);
+        }
+        return bitmaps[index];
+    }
+
+    public boolean matched(int memberIndex, int row) {
+        return (bitmaps[memberIndex][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int matchCount(int memberIndex) {
+        int count = 0;
+        for (long word : bitmaps[memberIndex]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
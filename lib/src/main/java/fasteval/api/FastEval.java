@@ -3,7 +3,8 @@ package fasteval.api;
 
 import fasteval.context.EvalContext;
 import fasteval.context.ObjectRuleContext;
-import fasteval.context.RuleContextInterface;
+import fasteval.context.SlotEvalContext;
+import fasteval.context.TokenSlotLayout;
 import fasteval.definitions.RuleDefinition;
 import fasteval.definitions.TokenDefinition;
 import fasteval.parser.ExpressionParser;
@@ -15,16 +16,21 @@ import java.util.List;
 import java.util.Map;
 
 public class FastEval {
-    private static RuleContextInterface ruleContext;
+    // Rule set used by the static methods; FastEvalRuleSet instances from the builder can be used directly instead
+    private static volatile FastEvalRuleSet ruleSet;
 
     // Called once at startup - returns a builder to allow interpretation/compilation choice
     public static FastEvalBuilder loadFromFile(String filePath) throws IOException {
         TextFileParser parser = new TextFileParser();
         parser.parseRulesFile(filePath);
 
+        // Every token gets its slot here; parsed comparisons are bound to it
+        TokenSlotLayout tokenSlotLayout = new TokenSlotLayout(parser.getTokens());
+
         ExpressionParser expressionParser = new ExpressionParser(
                 new HashSet<>(parser.getRules()),
-                parser.getTokens()
+                parser.getTokens(),
+                tokenSlotLayout
         );
 
         List<RuleDefinition> rules = parser.getRules();
@@ -36,14 +42,46 @@ public class FastEval {
 
     // Called at runtime with tokens
     public static FastEvalEngine withEvaluationContext(EvalContext ctx) {
-        if (ruleContext == null) {
+        return currentRuleSet().withEvaluationContext(ctx);
+    }
+
+    // Allocation-free group evaluation into a result from groupHandle(...).newResult()
+    public static GroupResult evaluateGroup(EvalContext ctx, GroupResult result) {
+        return currentRuleSet().evaluateGroup(result.getGroup(), ctx, result);
+    }
+
+    // Creates an empty slot-backed context matching the loaded tokens
+    public static SlotEvalContext newEvalContext() {
+        return currentRuleSet().newEvalContext();
+    }
+
+    // Handles resolve a name once against the loaded rule set; reloading invalidates them
+    public static RuleHandle ruleHandle(String ruleName) {
+        return currentRuleSet().ruleHandle(ruleName);
+    }
+
+    public static GroupHandle groupHandle(String groupName) {
+        return currentRuleSet().groupHandle(groupName);
+    }
+
+    public static GroupHandle groupHandle(String groupName, GroupStrategy strategy) {
+        return currentRuleSet().groupHandle(groupName, strategy);
+    }
+
+    public static IncrementalEvaluator incrementalEvaluator(EvalContext ctx) {
+        return currentRuleSet().incrementalEvaluator(ctx);
+    }
+
+    private static FastEvalRuleSet currentRuleSet() {
+        FastEvalRuleSet current = ruleSet;
+        if (current == null) {
             throw new IllegalStateException("FastEval.loadFromFile(...) must be called before using the evaluator.");
         }
-        return new FastEvalEngine(ruleContext, ctx);
+        return current;
     }
 
-    // Set rule context (used internally by builder)
-    static void setGlobalContext(RuleContextInterface ctx) {
-        ruleContext = ctx;
+    // Set the rule set behind the static methods (used internally by builder)
+    static void setGlobalRuleSet(FastEvalRuleSet current) {
+        ruleSet = current;
     }
 }
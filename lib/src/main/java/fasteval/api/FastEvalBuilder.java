@@ -1,15 +1,25 @@
 package fasteval.api;
 
+import fasteval.closure.ClosureCompiler;
+import fasteval.compilation.ClassCache;
+import fasteval.compilation.RuleDependencyGraph;
 import fasteval.compilation.RuleNodeCompiler;
 import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.compilation.SharedSubexpressions;
+import fasteval.compilation.TieredCompiler;
+import fasteval.compilationv2.GroupCompiler;
+import fasteval.compilationv2.InliningPolicy;
+import fasteval.compilationv2.RuleSetCompiler;
 import fasteval.context.CompiledRuleContext;
 import fasteval.context.ObjectRuleContext;
 import fasteval.definitions.RuleDefinition;
 import fasteval.definitions.TokenDefinition;
+import fasteval.model.CompiledGroup;
 import fasteval.model.CompiledRule;
 import fasteval.model.RuleNode;
 import fasteval.parser.ExpressionParser;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,6 +30,7 @@ public class FastEvalBuilder {
     private final Map<String, List<String>> groups;
 
     private boolean useStringCompilation = false;
+    private ClassCache classCache;
 
     public FastEvalBuilder(ExpressionParser parser,
                            List<RuleDefinition> rules,
@@ -31,52 +42,144 @@ public class FastEvalBuilder {
         this.groups = groups;
     }
 
-    public void usingInterpretation() {
-        Map<String, RuleNode> ruleNodeMap = parser.parseAllToMap();
-        Map<String, String> tokenTypeMap = tokens.stream()
-                .collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
+    // Keeps the class files of javac-compiled rules (STRING_COMPILATION and the tiered compiler
+    // using it) in the directory, so later builds with unchanged rules load them instead
+    public FastEvalBuilder withClassCache(Path directory) {
+        this.classCache = new ClassCache(directory);
+        return this;
+    }
+
+    public FastEvalRuleSet using(Backend backend) {
+        return publish(build(backend));
+    }
+
+    // Builds the loaded rules without becoming the rule set behind the static facade
+    FastEvalRuleSet build(Backend backend) {
+        return build(backend, parser.parseAllToMap());
+    }
+
+    // Builds from rules already parsed against this builder's tokens, without becoming the rule
+    // set behind the static facade; ReloadableRuleSet and AdaptiveRuleSet build through it
+    FastEvalRuleSet build(Backend backend, Map<String, RuleNode> ruleNodeMap) {
+        return switch (backend) {
+            case INTERPRETATION -> interpretation(ruleNodeMap);
+            case COMPILATION -> compileRules(ruleNodeMap, false);
+            case STRING_COMPILATION -> compileRules(ruleNodeMap, true);
+            case CLOSURE_COMPILATION -> closureCompilation(ruleNodeMap);
+            case RULE_SET_COMPILATION -> ruleSetCompilation(ruleNodeMap, InliningPolicy.DEFAULT);
+        };
+    }
+
+    public FastEvalRuleSet usingInterpretation() {
+        return publish(interpretation(parser.parseAllToMap()));
+    }
 
-        ObjectRuleContext context = new ObjectRuleContext(ruleNodeMap, groups, tokens);
-        FastEval.setGlobalContext(context);
+    public FastEvalRuleSet usingCompilation() {
+        return publish(compileRules(parser.parseAllToMap(), false));
     }
 
-    public void usingCompilation() {
-        compileRules(false);
+    public FastEvalRuleSet usingStringCompilation() {
+        return publish(compileRules(parser.parseAllToMap(), true));
     }
 
-    public void usingStringCompilation() {
-        compileRules(true);
+    // Compiles every rule to a tree of closures; no classes are generated at runtime
+    public FastEvalRuleSet usingClosureCompilation() {
+        return publish(closureCompilation(parser.parseAllToMap()));
+    }
+
+    // Generates the whole rule set as a few classes with small referenced rules inlined
+    public FastEvalRuleSet usingRuleSetCompilation() {
+        return usingRuleSetCompilation(InliningPolicy.DEFAULT);
+    }
+
+    public FastEvalRuleSet usingRuleSetCompilation(InliningPolicy policy) {
+        return publish(ruleSetCompilation(parser.parseAllToMap(), policy));
+    }
+
+    // Interprets every rule at once and compiles rules as they get hot, as the policy says
+    public FastEvalRuleSet usingTieredCompilation(TieringPolicy policy) {
+        return publish(tiered(parser.parseAllToMap(), policy));
+    }
+
+    private FastEvalRuleSet interpretation(Map<String, RuleNode> ruleNodeMap) {
+        Map<String, String> tokenTypeMap = tokens.stream()
+                .collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
+
+        Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap));
+        SharedSubexpressions.assignIds(ruleNodeMap, ruleIds.size());
+
+        ObjectRuleContext context = new ObjectRuleContext(ruleNodeMap, groups, tokens, parser.getTokenSlotLayout(), ruleIds);
+        return new FastEvalRuleSet(context, ruleNodeMap);
     }
 
-    private void compileRules(boolean stringMode) {
-        Map<String, RuleNode> ruleNodeMap = parser.parseAllToMap();
-        Map<String, CompiledRule> compiledMap = new HashMap<>();
-        RuleNodeCompiler compiler = new RuleNodeCompiler(stringMode);
+    private FastEvalRuleSet tiered(Map<String, RuleNode> ruleNodeMap, TieringPolicy policy) {
+        Map<String, String> tokenTypeMap = tokens.stream()
+                .collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
+
+        Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap));
+        int memoSize = SharedSubexpressions.assignIds(ruleNodeMap, ruleIds.size());
 
-        Set<String> compiled = new HashSet<>();
+        TieredCompiler tiered = TieredCompiler.tier(ruleNodeMap, tokenTypeMap, ruleIds,
+                classCache, policy.getCompiler() == Backend.STRING_COMPILATION, policy.getHotThreshold(), policy.isBackground(),
+                policy.getOnFailure());
 
-        // Collect token types map
+        // Groups run member by member, each member on its own tier
+        CompiledRuleContext context = new CompiledRuleContext(tiered.rules(), groups, parser.getTokenSlotLayout(), ruleIds, Map.of(), memoSize);
+        return new FastEvalRuleSet(context, ruleNodeMap, tiered.getClassSpace());
+    }
+
+    private FastEvalRuleSet closureCompilation(Map<String, RuleNode> ruleNodeMap) {
         Map<String, String> tokenTypeMap = tokens.stream()
                 .collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
 
-        while (compiled.size() < ruleNodeMap.size()) {
-            boolean progress = false;
-            for (Map.Entry<String, RuleNode> entry : ruleNodeMap.entrySet()) {
-                String ruleName = entry.getKey();
-                if (compiled.contains(ruleName)) continue;
-
-                Set<String> deps = RuleNodeReferenceFinder.findReferencedRuleNames(entry.getValue());
-                if (compiled.containsAll(deps)) {
-                    CompiledRule compiledRule = compiler.compile(ruleName, entry.getValue(), compiledMap);
-                    compiledMap.put(ruleName, compiledRule);
-                    compiled.add(ruleName);
-                    progress = true;
-                }
-            }
-            if (!progress) throw new IllegalStateException("Cyclic or unresolved dependency in rules");
-        }
-
-        CompiledRuleContext context = new CompiledRuleContext(compiledMap, groups);
-        FastEval.setGlobalContext(context);
+        List<String> dependencyOrder = RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap);
+        Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(dependencyOrder);
+        int memoSize = SharedSubexpressions.assignIds(ruleNodeMap, ruleIds.size());
+
+        Map<String, CompiledRule> compiledMap = new ClosureCompiler(tokenTypeMap).compileAll(ruleNodeMap, dependencyOrder, ruleIds);
+
+        CompiledRuleContext context = new CompiledRuleContext(compiledMap, groups, parser.getTokenSlotLayout(), ruleIds, Map.of(), memoSize);
+        return new FastEvalRuleSet(context, ruleNodeMap);
+    }
+
+    private FastEvalRuleSet ruleSetCompilation(Map<String, RuleNode> ruleNodeMap, InliningPolicy policy) {
+        RuleDependencyGraph graph = new RuleDependencyGraph(ruleNodeMap);
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        ruleNodeMap.keySet().forEach(name -> dependencies.put(name, graph.dependenciesOf(name)));
+
+        List<String> dependencyOrder = graph.order();
+        Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(dependencyOrder);
+        int memoSize = SharedSubexpressions.assignIds(ruleNodeMap, ruleIds.size());
+
+        List<String> order = RuleSetCompiler.groupClusteredOrder(dependencyOrder, groups, dependencies);
+        RuleSetCompiler compiler = new RuleSetCompiler(policy);
+        Map<String, CompiledRule> compiledMap = compiler.compile(ruleNodeMap, order, ruleIds);
+        Map<String, CompiledGroup> compiledGroups = GroupCompiler.compileAll(groups, ruleNodeMap, compiledMap, ruleIds, compiler.getClassSpace());
+
+        CompiledRuleContext context = new CompiledRuleContext(compiledMap, groups, parser.getTokenSlotLayout(), ruleIds, compiledGroups, memoSize);
+        return new FastEvalRuleSet(context, ruleNodeMap, compiler.getClassSpace());
+    }
+
+    private FastEvalRuleSet compileRules(Map<String, RuleNode> ruleNodeMap, boolean stringMode) {
+        RuleNodeCompiler compiler = new RuleNodeCompiler(stringMode).withClassCache(classCache);
+
+        List<String> dependencyOrder = RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap);
+        Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(dependencyOrder);
+        // Sub-expressions shared between rules get memo ids after the rule ids
+        int memoSize = SharedSubexpressions.assignIds(ruleNodeMap, ruleIds.size());
+
+        Map<String, CompiledRule> compiledMap = compiler.compileAll(ruleNodeMap, dependencyOrder, ruleIds);
+        // Each group also becomes one class evaluating all of its members
+        Map<String, CompiledGroup> compiledGroups = compiler.compileGroups(groups, ruleNodeMap, compiledMap, ruleIds);
+
+        CompiledRuleContext context = new CompiledRuleContext(compiledMap, groups, parser.getTokenSlotLayout(), ruleIds, compiledGroups, memoSize);
+        return new FastEvalRuleSet(context, ruleNodeMap, compiler.getClassSpace());
+    }
+
+    // The returned rule set is independent of any other; it also becomes the one behind the
+    // static FastEval facade
+    private FastEvalRuleSet publish(FastEvalRuleSet ruleSet) {
+        FastEval.setGlobalRuleSet(ruleSet);
+        return ruleSet;
     }
 }
@@ -2,43 +2,90 @@ package fasteval.api;
 
 import fasteval.context.EvalContext;
 import fasteval.context.RuleContextInterface;
-import fasteval.model.RuleRepresentation;
+import fasteval.context.RuleTable;
+import fasteval.context.SlotEvalContext;
 
-import java.util.ArrayList;
 import java.util.List;
+
 public class FastEvalEngine {
     private final RuleContextInterface context;
     private final EvalContext evalContext;
+    // Set when created by a rule set; index strategies are built and cached there
+    private final FastEvalRuleSet ruleSet;
 
     public FastEvalEngine(RuleContextInterface context, EvalContext evalContext) {
+        this(context, evalContext, null);
+    }
+
+    FastEvalEngine(FastEvalRuleSet ruleSet, EvalContext evalContext) {
+        this(ruleSet.getRuleContext(), evalContext, ruleSet);
+    }
+
+    private FastEvalEngine(RuleContextInterface context, EvalContext evalContext, FastEvalRuleSet ruleSet) {
+        checkLayout(context, evalContext);
         this.context = context;
         this.evalContext = evalContext;
+        this.ruleSet = ruleSet;
     }
 
     public boolean evaluate(String ruleName) {
-        RuleRepresentation rule = context.getRules().get(ruleName);
-        if (rule == null) {
+        RuleTable ruleTable = context.getRuleTable();
+        int ruleId = ruleTable.idOf(ruleName);
+        if (ruleId < 0) {
             throw new IllegalArgumentException("Rule not found: " + ruleName);
         }
+        return ruleTable.rule(ruleId).evaluate(evalContext);
+    }
+
+    public boolean evaluate(RuleHandle rule) {
+        if (!rule.belongsTo(context.getRuleTable())) {
+            throw new IllegalArgumentException("Rule handle belongs to a different rule set: " + rule.getName());
+        }
         return rule.evaluate(evalContext);
     }
 
     public List<String> evaluateGroup(String groupName) {
-        List<String> ruleNames = context.getRuleGroups().get(groupName);
-        if (ruleNames == null) {
-            throw new IllegalArgumentException("Group not found: " + groupName);
+        return new GroupHandle(context.getRuleTable(), groupName).evaluate(evalContext);
+    }
+
+    public List<String> evaluateGroup(String groupName, GroupStrategy strategy) {
+        if (strategy == GroupStrategy.DEFAULT) {
+            return evaluateGroup(groupName);
+        }
+        if (ruleSet == null) {
+            throw new IllegalStateException("Group strategy " + strategy + " needs an engine created by a FastEvalRuleSet");
         }
+        return ruleSet.groupHandle(groupName, strategy).evaluate(evalContext);
+    }
+
+    public List<String> evaluateGroup(GroupHandle group) {
+        if (!group.belongsTo(context.getRuleTable())) {
+            throw new IllegalArgumentException("Group handle belongs to a different rule set: " + group.getName());
+        }
+        return group.evaluate(evalContext);
+    }
+
+    // Writes into a caller-owned result; nothing is allocated per call
+    public GroupResult evaluateGroup(GroupHandle group, GroupResult result) {
+        if (!group.belongsTo(context.getRuleTable())) {
+            throw new IllegalArgumentException("Group handle belongs to a different rule set: " + group.getName());
+        }
+        return group.evaluate(evalContext, result);
+    }
+
+    // Resolve once and keep the handle to skip name lookups on every evaluation
+    public RuleHandle ruleHandle(String ruleName) {
+        return new RuleHandle(context.getRuleTable(), ruleName);
+    }
+
+    public GroupHandle groupHandle(String groupName) {
+        return new GroupHandle(context.getRuleTable(), groupName);
+    }
 
-        List<String> passed = new ArrayList<>();
-        for (String ruleName : ruleNames) {
-            RuleRepresentation rule = context.getRules().get(ruleName);
-            if (rule == null) {
-                throw new IllegalArgumentException("Rule not found: " + ruleName);
-            }
-            if (rule.evaluate(evalContext)) {
-                passed.add(ruleName);
-            }
+    static void checkLayout(RuleContextInterface context, EvalContext evalContext) {
+        if (evalContext instanceof SlotEvalContext slotContext
+                && !slotContext.getLayout().isCompatibleWith(context.getTokenSlotLayout())) {
+            throw new IllegalArgumentException("SlotEvalContext was created for a different token layout");
         }
-        return passed;
     }
 }
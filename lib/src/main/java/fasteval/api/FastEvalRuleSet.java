@@ -0,0 +1,187 @@
+package fasteval.api;
+
+import fasteval.bitslice.BitSlicedCompiler;
+import fasteval.bitslice.BitSlicedRuleSet;
+import fasteval.compilation.TokenDependencyIndex;
+import fasteval.compilationv2.ClassSpace;
+import fasteval.context.ColumnarBatch;
+import fasteval.context.EvalContext;
+import fasteval.context.RuleContextInterface;
+import fasteval.context.SlotEvalContext;
+import fasteval.index.EqualityIndex;
+import fasteval.index.IntervalIndex;
+import fasteval.model.CompiledGroup;
+import fasteval.model.RuleNode;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One loaded rule set, as returned by FastEvalBuilder. It is immutable once built, so a single
+// instance can be shared by any number of threads without locking, and several rule sets can
+// live side by side in one JVM. Evaluation state (EvalContext, RuleMemo) is per call.
+public final class FastEvalRuleSet {
+    @Getter
+    private final RuleContextInterface ruleContext;
+    // The classes generated for this rule set, with the metaspace they took; empty when interpreted
+    @Getter
+    private final ClassSpace classSpace;
+
+    // Kept for batch evaluation; the bit-sliced rules are compiled on first use
+    private final Map<String, RuleNode> ruleNodeMap;
+    private volatile BitSlicedRuleSet bitSliced;
+    // Group indexes are also built from the parsed rules, once per group and strategy
+    private final Map<GroupStrategy, Map<String, GroupHandle>> indexedGroups = new EnumMap<>(GroupStrategy.class);
+    // Shared by the incremental evaluators, built on first use
+    private volatile TokenDependencyIndex tokenDependencies;
+
+    public FastEvalRuleSet(RuleContextInterface ruleContext) {
+        this(ruleContext, null);
+    }
+
+    // Without parsed rules, batches are evaluated row by row
+    public FastEvalRuleSet(RuleContextInterface ruleContext, Map<String, RuleNode> ruleNodeMap) {
+        this(ruleContext, ruleNodeMap, new ClassSpace());
+    }
+
+    public FastEvalRuleSet(RuleContextInterface ruleContext, Map<String, RuleNode> ruleNodeMap, ClassSpace classSpace) {
+        this.ruleContext = ruleContext;
+        this.ruleNodeMap = ruleNodeMap;
+        this.classSpace = classSpace;
+        for (GroupStrategy strategy : GroupStrategy.values()) {
+            indexedGroups.put(strategy, new ConcurrentHashMap<>());
+        }
+    }
+
+    public FastEvalEngine withEvaluationContext(EvalContext ctx) {
+        return new FastEvalEngine(this, ctx);
+    }
+
+    // Creates an empty slot-backed context matching this rule set's tokens
+    public SlotEvalContext newEvalContext() {
+        return ruleContext.getTokenSlotLayout().newContext();
+    }
+
+    public RuleHandle ruleHandle(String ruleName) {
+        return new RuleHandle(ruleContext.getRuleTable(), ruleName);
+    }
+
+    public GroupHandle groupHandle(String groupName) {
+        return new GroupHandle(ruleContext.getRuleTable(), groupName);
+    }
+
+    // Index strategies need the parsed rules; the index is built on first use and then shared
+    public GroupHandle groupHandle(String groupName, GroupStrategy strategy) {
+        if (strategy == GroupStrategy.DEFAULT) {
+            return groupHandle(groupName);
+        }
+        if (ruleNodeMap == null) {
+            throw new IllegalStateException("Group strategy " + strategy + " needs a rule set built from parsed rules");
+        }
+        return indexedGroups.get(strategy).computeIfAbsent(groupName,
+                name -> new GroupHandle(ruleContext.getRuleTable(), name, buildIndex(name, strategy)));
+    }
+
+    // Stateful evaluation of every rule against one context; see IncrementalEvaluator
+    public IncrementalEvaluator incrementalEvaluator(EvalContext ctx) {
+        if (ruleNodeMap == null) {
+            throw new IllegalStateException("Incremental evaluation needs a rule set built from parsed rules");
+        }
+        FastEvalEngine.checkLayout(ruleContext, ctx);
+        return new IncrementalEvaluator(ruleContext.getRuleTable(), tokenDependencies(), ctx);
+    }
+
+    public boolean evaluate(String ruleName, EvalContext ctx) {
+        return withEvaluationContext(ctx).evaluate(ruleName);
+    }
+
+    public List<String> evaluateGroup(String groupName, EvalContext ctx) {
+        return withEvaluationContext(ctx).evaluateGroup(groupName);
+    }
+
+    // The allocation-free path for hot loops: no engine, no list, the memo lives in the result
+    public GroupResult evaluateGroup(GroupHandle handle, EvalContext ctx, GroupResult result) {
+        if (!handle.belongsTo(ruleContext.getRuleTable())) {
+            throw new IllegalArgumentException("Group handle belongs to a different rule set: " + handle.getName());
+        }
+        FastEvalEngine.checkLayout(ruleContext, ctx);
+        return handle.evaluate(ctx, result);
+    }
+
+    // Columnar evaluation: bit r of the bitmap is set when the rule passed for row r. Rules run
+    // bit-sliced, 64 rows per operation, and fall back to row by row evaluation when a rule cannot.
+    // Large batches are split across the common pool in ranges of whole bitmap words.
+    public long[] evaluateBatch(String ruleName, ColumnarBatch batch) {
+        return evaluateBatch(ruleHandle(ruleName), batch);
+    }
+
+    public long[] evaluateBatch(RuleHandle handle, ColumnarBatch batch) {
+        checkBatch(batch);
+        if (!handle.belongsTo(ruleContext.getRuleTable())) {
+            throw new IllegalArgumentException("Rule handle belongs to a different rule set: " + handle.getName());
+        }
+        return handle.evaluateBatch(batch, bitSliced());
+    }
+
+    public BatchResult evaluateGroupBatch(String groupName, ColumnarBatch batch) {
+        return evaluateGroupBatch(groupHandle(groupName), batch);
+    }
+
+    public BatchResult evaluateGroupBatch(GroupHandle handle, ColumnarBatch batch) {
+        checkBatch(batch);
+        if (!handle.belongsTo(ruleContext.getRuleTable())) {
+            throw new IllegalArgumentException("Group handle belongs to a different rule set: " + handle.getName());
+        }
+        return handle.evaluateBatch(batch, bitSliced());
+    }
+
+    // Creates an empty batch matching this rule set's tokens
+    public ColumnarBatch newBatch(int rowCount) {
+        return new ColumnarBatch(ruleContext.getTokenSlotLayout(), rowCount);
+    }
+
+    private CompiledGroup buildIndex(String groupName, GroupStrategy strategy) {
+        List<String> members = ruleContext.getRuleGroups().get(groupName);
+        if (members == null) {
+            throw new IllegalArgumentException("Group not found: " + groupName);
+        }
+        return switch (strategy) {
+            case INTERVAL_INDEX -> IntervalIndex.build(members, ruleNodeMap, ruleContext.getRuleTable());
+            case EQUALITY_INDEX -> EqualityIndex.build(members, ruleNodeMap, ruleContext.getRuleTable());
+            case DEFAULT -> throw new IllegalArgumentException("No index for strategy: " + strategy);
+        };
+    }
+
+    // The parsed rules the rule set was built from; null when built without them
+    Map<String, RuleNode> ruleNodeMap() {
+        return ruleNodeMap;
+    }
+
+    // Racing first calls may both compile; either result is equivalent
+    private BitSlicedRuleSet bitSliced() {
+        BitSlicedRuleSet compiled = bitSliced;
+        if (compiled == null && ruleNodeMap != null) {
+            compiled = new BitSlicedCompiler(ruleContext.getTokenTypeMap()).compileAll(ruleNodeMap, ruleContext.getRuleIds());
+            bitSliced = compiled;
+        }
+        return compiled;
+    }
+
+    // Racing first calls may both build; either index is equivalent
+    private TokenDependencyIndex tokenDependencies() {
+        TokenDependencyIndex index = tokenDependencies;
+        if (index == null) {
+            index = TokenDependencyIndex.build(ruleNodeMap, ruleContext.getRuleIds());
+            tokenDependencies = index;
+        }
+        return index;
+    }
+
+    private void checkBatch(ColumnarBatch batch) {
+        if (!ruleContext.getTokenSlotLayout().isCompatibleWith(batch.getLayout())) {
+            throw new IllegalArgumentException("Batch layout does not match the rule set's tokens");
+        }
+    }
+}
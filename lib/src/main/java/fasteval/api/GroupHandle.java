@@ -0,0 +1,177 @@
+package fasteval.api;
+
+import fasteval.bitslice.BitSlicedRuleSet;
+import fasteval.context.BatchRowContext;
+import fasteval.context.ColumnarBatch;
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.BatchRanges;
+import fasteval.eval.RuleMemo;
+import fasteval.model.CompiledGroup;
+import fasteval.model.RuleRepresentation;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A group resolved once by name. Members run sorted by rule id and share one RuleMemo, so a
+// rule referenced by several members is evaluated once; results keep the declared order. Ids
+// need not be dependency order (a reload appends new ids): the memo computes references on demand.
+public final class GroupHandle {
+    @Getter
+    private final String name;
+    private final RuleTable ruleTable;
+    private final int[] members;
+    private final int[] evaluationOrder;
+    private final RuleRepresentation[] evaluationRules;
+    private final String[] memberNames;
+    // Generated by the javac and bytecode backends, or an index; null means member by member
+    private final CompiledGroup compiledGroup;
+
+    GroupHandle(RuleTable ruleTable, String name) {
+        this(ruleTable, name, ruleTable.compiledGroup(name));
+    }
+
+    GroupHandle(RuleTable ruleTable, String name, CompiledGroup compiledGroup) {
+        if (!ruleTable.hasGroup(name)) {
+            throw new IllegalArgumentException("Group not found: " + name);
+        }
+        this.name = name;
+        this.ruleTable = ruleTable;
+        this.members = ruleTable.groupMembers(name);
+        this.evaluationOrder = ruleTable.groupEvaluationOrder(name);
+
+        if (evaluationOrder.length > 0 && evaluationOrder[0] < 0) {
+            for (int i = 0; i < members.length; i++) {
+                if (members[i] < 0) {
+                    throw new IllegalArgumentException("Rule not found: " + ruleTable.groupMemberName(name, i));
+                }
+            }
+        }
+        this.evaluationRules = new RuleRepresentation[evaluationOrder.length];
+        for (int i = 0; i < evaluationOrder.length; i++) {
+            evaluationRules[i] = ruleTable.rule(evaluationOrder[i]);
+        }
+        this.compiledGroup = compiledGroup;
+        this.memberNames = new String[members.length];
+        for (int i = 0; i < members.length; i++) {
+            memberNames[i] = ruleTable.nameOf(members[i]);
+        }
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    public List<String> evaluate(EvalContext context) {
+        return evaluate(context, new RuleMemo(ruleTable.memoSize()));
+    }
+
+    // The memo must be empty (or reset) and sized for this rule set
+    public List<String> evaluate(EvalContext context, RuleMemo memo) {
+        List<String> passed = new ArrayList<>();
+        evaluate(context, memo, (memberIndex, ruleId) -> passed.add(memberNames[memberIndex]));
+        return passed;
+    }
+
+    // Allocation-free: reuse one result per thread
+    public GroupResult newResult() {
+        return new GroupResult(this, ruleTable.memoSize());
+    }
+
+    public GroupResult evaluate(EvalContext context, GroupResult result) {
+        if (result.getGroup() != this) {
+            throw new IllegalArgumentException("Result was created for a different group: " + result.getGroup().getName());
+        }
+        RuleMemo memo = result.clear();
+        if (compiledGroup != null) {
+            compiledGroup.evaluate(context, memo, result.words());
+            return result;
+        }
+        run(context, memo);
+        for (int i = 0; i < members.length; i++) {
+            if (passed(memo, members[i])) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    // Allocation-free; the memo must be empty (or reset) and sized for this rule set
+    public void evaluate(EvalContext context, RuleMemo memo, RuleMatchSink sink) {
+        run(context, memo);
+        for (int i = 0; i < members.length; i++) {
+            if (passed(memo, members[i])) {
+                sink.matched(i, members[i]);
+            }
+        }
+    }
+
+    public int memberRuleId(int memberIndex) {
+        return members[memberIndex];
+    }
+
+    public String memberName(int memberIndex) {
+        return memberNames[memberIndex];
+    }
+
+    private void run(EvalContext context, RuleMemo memo) {
+        if (compiledGroup != null) {
+            compiledGroup.evaluate(context, memo, null);
+            return;
+        }
+        for (int i = 0; i < evaluationOrder.length; i++) {
+            memo.evaluate(evaluationOrder[i], evaluationRules[i], context);
+        }
+    }
+
+    // One bitmap per member in declared order; the layout is checked by the caller. Uses the
+    // bit-sliced rules when every member has one, row by row evaluation otherwise.
+    BatchResult evaluateBatch(ColumnarBatch batch, BitSlicedRuleSet bitSliced) {
+        int rowCount = batch.getRowCount();
+        // Duplicate members share their rule's bitmap
+        long[][] byEvaluationIndex = bitSliced != null && Arrays.stream(evaluationOrder).allMatch(bitSliced::supports)
+                ? bitSliced.evaluate(evaluationOrder, batch)
+                : evaluateRows(batch);
+
+        long[][] bitmaps = new long[members.length][];
+        for (int m = 0; m < members.length; m++) {
+            bitmaps[m] = byEvaluationIndex[Arrays.binarySearch(evaluationOrder, members[m])];
+        }
+        return new BatchResult(List.of(memberNames), rowCount, bitmaps);
+    }
+
+    private long[][] evaluateRows(ColumnarBatch batch) {
+        int rowCount = batch.getRowCount();
+        long[][] bitmaps = new long[evaluationOrder.length][];
+        for (int i = 0; i < evaluationOrder.length; i++) {
+            bitmaps[i] = BatchRanges.newBitmap(rowCount);
+        }
+
+        BatchRanges.forEach(rowCount, (from, to) -> {
+            BatchRowContext row = batch.rowContext();
+            RuleMemo memo = new RuleMemo(ruleTable.memoSize());
+            for (int r = from; r < to; r++) {
+                memo.reset();
+                run(row.row(r), memo);
+                long bit = 1L << r;
+                for (int i = 0; i < evaluationOrder.length; i++) {
+                    if (passed(memo, evaluationOrder[i])) {
+                        bitmaps[i][r >>> 6] |= bit;
+                    }
+                }
+            }
+        });
+        return bitmaps;
+    }
+
+    // Members an index skipped were never computed; reset memos keep stale results
+    private static boolean passed(RuleMemo memo, int ruleId) {
+        return memo.isComputed(ruleId) && memo.result(ruleId);
+    }
+
+    boolean belongsTo(RuleTable table) {
+        return ruleTable == table;
+    }
+}
@@ -0,0 +1,87 @@
+package fasteval.api;
+
+import fasteval.eval.RuleMemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Caller-owned, reusable result of one group: bit i is set when member i (declared order)
+// passed. It carries its own RuleMemo, so evaluating into it allocates nothing. Not thread-safe;
+// keep one per thread.
+public final class GroupResult {
+    private final GroupHandle group;
+    private final long[] matched;
+    private final RuleMemo memo;
+
+    GroupResult(GroupHandle group, int ruleCount) {
+        this.group = group;
+        this.matched = new long[(group.size() + 63) >>> 6];
+        this.memo = new RuleMemo(ruleCount);
+    }
+
+    public GroupHandle getGroup() {
+        return group;
+    }
+
+    public int size() {
+        return group.size();
+    }
+
+    public boolean matched(int memberIndex) {
+        return (matched[memberIndex >>> 6] & (1L << memberIndex)) != 0;
+    }
+
+    public int matchCount() {
+        int count = 0;
+        for (long word : matched) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Index of the first passed member at or after fromIndex, or -1
+    public int nextMatch(int fromIndex) {
+        int word = fromIndex >>> 6;
+        if (word >= matched.length) return -1;
+        long bits = matched[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            if (++word == matched.length) return -1;
+            bits = matched[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    public int ruleId(int memberIndex) {
+        return group.memberRuleId(memberIndex);
+    }
+
+    public String memberName(int memberIndex) {
+        return group.memberName(memberIndex);
+    }
+
+    // Allocates; for logging and tests rather than the hot path
+    public List<String> matchedNames() {
+        List<String> names = new ArrayList<>(matchCount());
+        for (int i = nextMatch(0); i >= 0; i = nextMatch(i + 1)) {
+            names.add(memberName(i));
+        }
+        return names;
+    }
+
+    // Called by GroupHandle before each evaluation
+    RuleMemo clear() {
+        Arrays.fill(matched, 0L);
+        memo.reset();
+        return memo;
+    }
+
+    // Written directly by compiled groups
+    long[] words() {
+        return matched;
+    }
+
+    void set(int memberIndex) {
+        matched[memberIndex >>> 6] |= 1L << memberIndex;
+    }
+}
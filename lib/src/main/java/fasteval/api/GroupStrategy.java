@@ -0,0 +1,14 @@
+package fasteval.api;
+
+// How a group handle evaluates its members. Every strategy gives the same results.
+public enum GroupStrategy {
+    // The group's generated class when the backend made one, member by member otherwise
+    DEFAULT,
+    // Members that require a numeric threshold are only evaluated when one binary search per
+    // token says the threshold holds (IntervalIndex); suits large groups of threshold rules
+    INTERVAL_INDEX,
+    // Members that require a string, int or boolean equality are only evaluated when the token
+    // holds their literal, found with one lookup per token (EqualityIndex); suits groups
+    // partitioned by symbol or similar keys
+    EQUALITY_INDEX
+}
@@ -0,0 +1,113 @@
+package fasteval.api;
+
+import fasteval.compilation.TokenDependencyIndex;
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.RuleMemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Keeps the last result of every rule for one EvalContext whose tokens change a few at a time.
+// After the caller updates some tokens in the context, update() re-evaluates only the rules that
+// depend on them (see TokenDependencyIndex) and reports the rules whose result flipped; every
+// other rule keeps its result, and references to it are answered from the stored results.
+// Not thread-safe: one evaluator per context.
+public final class IncrementalEvaluator {
+    private final RuleTable ruleTable;
+    private final TokenDependencyIndex dependencies;
+    private final EvalContext context;
+
+    // Holds every rule's result between updates; shared sub-expressions only within one update
+    private final RuleMemo results;
+    private final long[] ruleIdMask;
+
+    // Rules to re-evaluate in the current update, deduplicated through the pending bits
+    private final int[] affected;
+    private final boolean[] wasPassing;
+    private final long[] pending;
+
+    IncrementalEvaluator(RuleTable ruleTable, TokenDependencyIndex dependencies, EvalContext context) {
+        this.ruleTable = ruleTable;
+        this.dependencies = dependencies;
+        this.context = context;
+        this.results = new RuleMemo(ruleTable.memoSize());
+        this.ruleIdMask = new long[(ruleTable.memoSize() + 63) >>> 6];
+        this.affected = new int[ruleTable.size()];
+        this.wasPassing = new boolean[ruleTable.size()];
+        this.pending = new long[(ruleTable.size() + 63) >>> 6];
+
+        for (int ruleId = 0; ruleId < ruleTable.size(); ruleId++) {
+            if (ruleTable.rule(ruleId) != null) {
+                ruleIdMask[ruleId >>> 6] |= 1L << ruleId;
+                results.evaluate(ruleId, ruleTable.rule(ruleId), context);
+            }
+        }
+    }
+
+    public boolean result(String ruleName) {
+        int ruleId = ruleTable.idOf(ruleName);
+        if (ruleId < 0) {
+            throw new IllegalArgumentException("Rule not found: " + ruleName);
+        }
+        return results.evaluate(ruleId, ruleTable.rule(ruleId), context);
+    }
+
+    public List<String> update(String... changedTokens) {
+        return update(Arrays.asList(changedTokens));
+    }
+
+    // Names of the rules that flipped, by rule id. Tokens no rule compares change nothing
+    public List<String> update(Collection<String> changedTokens) {
+        int count = 0;
+        for (String tokenName : changedTokens) {
+            for (int ruleId : dependencies.affectedRules(tokenName)) {
+                long bit = 1L << ruleId;
+                if ((pending[ruleId >>> 6] & bit) == 0) {
+                    pending[ruleId >>> 6] |= bit;
+                    affected[count++] = ruleId;
+                }
+            }
+        }
+        return reevaluate(count);
+    }
+
+    // Re-evaluates every rule, for when most of the context was replaced
+    public List<String> refresh() {
+        int count = 0;
+        for (int ruleId = 0; ruleId < ruleTable.size(); ruleId++) {
+            if (ruleTable.rule(ruleId) != null) {
+                pending[ruleId >>> 6] |= 1L << ruleId;
+                affected[count++] = ruleId;
+            }
+        }
+        return reevaluate(count);
+    }
+
+    private List<String> reevaluate(int count) {
+        Arrays.sort(affected, 0, count);
+        for (int i = 0; i < count; i++) {
+            wasPassing[i] = results.result(affected[i]);
+            results.forget(affected[i]);
+        }
+        // A shared sub-expression may read a changed token; it is recomputed by the first rule using it
+        results.retain(ruleIdMask);
+
+        List<String> flipped = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                int ruleId = affected[i];
+                if (results.evaluate(ruleId, ruleTable.rule(ruleId), context) != wasPassing[i]) {
+                    flipped.add(ruleTable.nameOf(ruleId));
+                }
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                pending[affected[i] >>> 6] &= ~(1L << affected[i]);
+            }
+        }
+        return flipped;
+    }
+}
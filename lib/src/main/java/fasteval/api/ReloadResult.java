@@ -0,0 +1,25 @@
+package fasteval.api;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+// What a ReloadableRuleSet.reload() did; the version only moves when a new rule set was published
+@Getter
+@ToString
+public class ReloadResult {
+    private final long version;
+    // Changed and added rules plus every rule that depends on them
+    private final Set<String> recompiled;
+    private final Set<String> removed;
+    // Token changes and the whole-ruleset backend rebuild everything
+    private final boolean fullRebuild;
+
+    ReloadResult(long version, Set<String> recompiled, Set<String> removed, boolean fullRebuild) {
+        this.version = version;
+        this.recompiled = recompiled;
+        this.removed = removed;
+        this.fullRebuild = fullRebuild;
+    }
+}
@@ -0,0 +1,253 @@
+package fasteval.api;
+
+import fasteval.closure.ClosureCompiler;
+import fasteval.compilation.RuleNodeCompiler;
+import fasteval.compilation.RuleDependencyGraph;
+import fasteval.compilation.SharedSubexpressions;
+import fasteval.compilationv2.ClassSpace;
+import fasteval.context.CompiledRuleContext;
+import fasteval.context.RuleContextInterface;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.CompiledGroup;
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+import fasteval.model.RuleRepresentation;
+import fasteval.parser.ExpressionParser;
+import fasteval.parser.TextFileParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// A rule set that follows its rules file. reload() diffs the file against the loaded version,
+// recompiles only changed rules and the rules depending on them, reuses every other compiled
+// rule, and publishes the result with one atomic swap. Evaluations already running keep the
+// FastEvalRuleSet they started with, so nothing blocks on a reload.
+public class ReloadableRuleSet implements Closeable {
+
+    private static final long WATCH_QUIET_MILLIS = 200;
+
+    private final String filePath;
+    private final Backend backend;
+    private final AtomicReference<Loaded> current = new AtomicReference<>();
+    private WatchService watchService;
+
+    // Everything needed to diff against and reuse from the published version
+    private static final class Loaded {
+        final FastEvalRuleSet ruleSet;
+        final long version;
+        final List<TokenDefinition> tokens;
+        final Map<String, String> expressions;
+        final Map<String, List<String>> groups;
+
+        Loaded(FastEvalRuleSet ruleSet, long version, TextFileParser parsed) {
+            this.ruleSet = ruleSet;
+            this.version = version;
+            this.tokens = parsed.getTokens();
+            this.expressions = parsed.getRules().stream()
+                    .collect(Collectors.toMap(RuleDefinition::getName, RuleDefinition::getExpression));
+            this.groups = parsed.getGroups();
+        }
+    }
+
+    private ReloadableRuleSet(String filePath, Backend backend) {
+        this.filePath = filePath;
+        this.backend = backend;
+    }
+
+    public static ReloadableRuleSet load(String filePath, Backend backend) throws IOException {
+        ReloadableRuleSet reloadable = new ReloadableRuleSet(filePath, backend);
+        TextFileParser parsed = parse(filePath);
+        reloadable.current.set(new Loaded(reloadable.build(parsed), 1, parsed));
+        return reloadable;
+    }
+
+    // The rule set to evaluate against; take it once per request for a consistent view
+    public FastEvalRuleSet current() {
+        return current.get().ruleSet;
+    }
+
+    public long version() {
+        return current.get().version;
+    }
+
+    // Reloads are serialized; evaluations never wait for them. On failure the loaded version stays.
+    public synchronized ReloadResult reload() throws IOException {
+        Loaded old = current.get();
+        TextFileParser parsed = parse(filePath);
+        Map<String, String> expressions = parsed.getRules().stream()
+                .collect(Collectors.toMap(RuleDefinition::getName, RuleDefinition::getExpression));
+
+        Set<String> removed = new HashSet<>(old.expressions.keySet());
+        removed.removeAll(expressions.keySet());
+
+        boolean tokensChanged = !parsed.getTokens().equals(old.tokens);
+        if (!tokensChanged && expressions.equals(old.expressions) && parsed.getGroups().equals(old.groups)) {
+            return new ReloadResult(old.version, Set.of(), Set.of(), false);
+        }
+
+        // Tokens decide the slot layout every compiled rule is bound to; the whole-ruleset
+        // backend inlines across rules; interpretation has nothing worth reusing
+        if (tokensChanged || backend == Backend.RULE_SET_COMPILATION || backend == Backend.INTERPRETATION) {
+            publish(build(parsed), old.version + 1, parsed);
+            return new ReloadResult(old.version + 1, expressions.keySet(), removed, true);
+        }
+
+        Set<String> changed = expressions.keySet().stream()
+                .filter(name -> !expressions.get(name).equals(old.expressions.get(name)))
+                .collect(Collectors.toSet());
+
+        RuleContextInterface oldContext = old.ruleSet.getRuleContext();
+        TokenSlotLayout layout = oldContext.getTokenSlotLayout();
+        Map<String, RuleNode> ruleNodeMap = new ExpressionParser(new HashSet<>(parsed.getRules()), parsed.getTokens(), layout)
+                .parseAllToMap();
+
+        RuleDependencyGraph graph = new RuleDependencyGraph(ruleNodeMap);
+        Set<String> recompiled = graph.withDependents(changed);
+        List<String> dependencyOrder = graph.order();
+        List<String> toCompile = dependencyOrder.stream().filter(recompiled::contains).collect(Collectors.toList());
+
+        // Reused rules keep their ids (compiled code refers to them); removed ids are left unused.
+        // New rules start past the old memo, whose shared sub-expression ids reused code still uses
+        Map<String, Integer> ruleIds = new HashMap<>();
+        int nextId = oldContext.getRuleTable().memoSize();
+        for (Map.Entry<String, Integer> entry : oldContext.getRuleIds().entrySet()) {
+            if (expressions.containsKey(entry.getKey())) {
+                ruleIds.put(entry.getKey(), entry.getValue());
+            }
+            nextId = Math.max(nextId, entry.getValue() + 1);
+        }
+        for (String ruleName : dependencyOrder) {
+            if (!ruleIds.containsKey(ruleName)) {
+                ruleIds.put(ruleName, nextId++);
+            }
+        }
+
+        // Reused code keeps the shared sub-expression ids it was compiled with; the recompiled
+        // rules share among themselves under fresh ids above every id in use
+        Map<String, RuleNode> recompiledNodes = new LinkedHashMap<>();
+        toCompile.forEach(name -> recompiledNodes.put(name, ruleNodeMap.get(name)));
+        int memoSize = SharedSubexpressions.assignIds(recompiledNodes, nextId);
+
+        Map<String, CompiledRule> reused = new HashMap<>();
+        for (Map.Entry<String, RuleRepresentation> entry : oldContext.getRules().entrySet()) {
+            if (expressions.containsKey(entry.getKey()) && !recompiled.contains(entry.getKey())) {
+                reused.put(entry.getKey(), (CompiledRule) entry.getValue());
+            }
+        }
+
+        Map<String, CompiledRule> compiled;
+        Map<String, CompiledGroup> compiledGroups = new HashMap<>();
+        // Only this version's classes; reused ones stay counted, and alive, in the version that made them
+        ClassSpace classSpace = new ClassSpace();
+        switch (backend) {
+            case COMPILATION, STRING_COMPILATION -> {
+                RuleNodeCompiler compiler = new RuleNodeCompiler(backend == Backend.STRING_COMPILATION);
+                classSpace = compiler.getClassSpace();
+                compiled = compiler.compileAll(ruleNodeMap, toCompile, ruleIds, reused);
+                // Group classes inline their members' bodies; keep those whose members are all reused
+                Map<String, List<String>> changedGroups = new HashMap<>();
+                parsed.getGroups().forEach((groupName, members) -> {
+                    CompiledGroup existing = oldContext.getRuleTable().compiledGroup(groupName);
+                    if (existing != null && members.equals(old.groups.get(groupName))
+                            && members.stream().noneMatch(recompiled::contains)) {
+                        compiledGroups.put(groupName, existing);
+                    } else {
+                        changedGroups.put(groupName, members);
+                    }
+                });
+                compiledGroups.putAll(compiler.compileGroups(changedGroups, ruleNodeMap, compiled, ruleIds));
+            }
+            case CLOSURE_COMPILATION -> compiled = new ClosureCompiler(tokenTypeMap(parsed.getTokens()))
+                    .compileAll(ruleNodeMap, toCompile, ruleIds, reused);
+            default -> throw new IllegalStateException("No incremental reload for backend: " + backend);
+        }
+
+        publish(new FastEvalRuleSet(new CompiledRuleContext(compiled, parsed.getGroups(), layout, ruleIds, compiledGroups, memoSize), ruleNodeMap, classSpace),
+                old.version + 1, parsed);
+        return new ReloadResult(old.version + 1, recompiled, removed, false);
+    }
+
+    // Reloads whenever the file changes, on a daemon thread; failed reloads go to onFailure
+    public synchronized void watch(Consumer<Exception> onFailure) throws IOException {
+        if (watchService != null) return;
+
+        Path file = Paths.get(filePath).toAbsolutePath();
+        WatchService service = file.getFileSystem().newWatchService();
+        file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+
+        Thread thread = new Thread(() -> watchLoop(service, file.getFileName(), onFailure), "fasteval-reload-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchLoop(WatchService service, Path fileName, Consumer<Exception> onFailure) {
+        try {
+            while (true) {
+                boolean touched = drain(service.take(), fileName);
+                // Editors truncate then write; wait until the file has been quiet for a moment
+                // so a half-written file is not published. Writers should prefer an atomic move.
+                WatchKey next;
+                while ((next = service.poll(WATCH_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    touched |= drain(next, fileName);
+                }
+                if (touched) {
+                    try {
+                        reload();
+                    } catch (Exception e) {
+                        onFailure.accept(e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stopped
+        }
+    }
+
+    private static boolean drain(WatchKey key, Path fileName) {
+        boolean touched = key.pollEvents().stream().anyMatch(event -> fileName.equals(event.context()));
+        key.reset();
+        return touched;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private FastEvalRuleSet build(TextFileParser parsed) {
+        ExpressionParser expressionParser = new ExpressionParser(
+                new HashSet<>(parsed.getRules()),
+                parsed.getTokens(),
+                new TokenSlotLayout(parsed.getTokens())
+        );
+        // Not through using(): a reload must not replace the rule set behind the static facade
+        return new FastEvalBuilder(expressionParser, parsed.getRules(), parsed.getTokens(), parsed.getGroups())
+                .build(backend, expressionParser.parseAllToMap());
+    }
+
+    private void publish(FastEvalRuleSet ruleSet, long version, TextFileParser parsed) {
+        current.set(new Loaded(ruleSet, version, parsed));
+    }
+
+    private static TextFileParser parse(String filePath) throws IOException {
+        TextFileParser parser = new TextFileParser();
+        parser.parseRulesFile(filePath);
+        return parser;
+    }
+
+    private static Map<String, String> tokenTypeMap(List<TokenDefinition> tokens) {
+        return tokens.stream().collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
+    }
+}
@@ -0,0 +1,59 @@
+package fasteval.api;
+
+import fasteval.bitslice.BitSlicedRuleSet;
+import fasteval.context.BatchRowContext;
+import fasteval.context.ColumnarBatch;
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.BatchRanges;
+import fasteval.eval.RuleMemo;
+import fasteval.model.RuleRepresentation;
+import lombok.Getter;
+
+// A rule resolved once by name; evaluating it is an array read plus the rule itself
+public final class RuleHandle {
+    @Getter
+    private final String name;
+    @Getter
+    private final int ruleId;
+    private final RuleTable ruleTable;
+    private final RuleRepresentation rule;
+
+    RuleHandle(RuleTable ruleTable, String name) {
+        int ruleId = ruleTable.idOf(name);
+        if (ruleId < 0) {
+            throw new IllegalArgumentException("Rule not found: " + name);
+        }
+        this.name = name;
+        this.ruleId = ruleId;
+        this.ruleTable = ruleTable;
+        this.rule = ruleTable.rule(ruleId);
+    }
+
+    public boolean evaluate(EvalContext context) {
+        return rule.evaluate(context);
+    }
+
+    // Bit r of the result is set when the rule passed for row r; the layout is checked by the caller
+    long[] evaluateBatch(ColumnarBatch batch, BitSlicedRuleSet bitSliced) {
+        if (bitSliced != null && bitSliced.supports(ruleId)) {
+            return bitSliced.evaluate(ruleId, batch);
+        }
+        long[] bitmap = BatchRanges.newBitmap(batch.getRowCount());
+        BatchRanges.forEach(batch.getRowCount(), (from, to) -> {
+            BatchRowContext row = batch.rowContext();
+            RuleMemo memo = new RuleMemo(ruleTable.memoSize());
+            for (int r = from; r < to; r++) {
+                memo.reset();
+                if (rule.evaluate(row.row(r), memo)) {
+                    bitmap[r >>> 6] |= 1L << r;
+                }
+            }
+        });
+        return bitmap;
+    }
+
+    boolean belongsTo(RuleTable table) {
+        return ruleTable == table;
+    }
+}
@@ -0,0 +1,7 @@
+package fasteval.api;
+
+// Receives the members of a group that passed, in declared order, without boxing or collecting
+@FunctionalInterface
+public interface RuleMatchSink {
+    void matched(int memberIndex, int ruleId);
+}
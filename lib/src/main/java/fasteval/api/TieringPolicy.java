@@ -0,0 +1,50 @@
+package fasteval.api;
+
+import lombok.Getter;
+
+import java.util.function.Consumer;
+
+// When a tiered rule set (FastEvalBuilder.usingTieredCompilation) compiles its rules. Until a
+// rule is compiled it is interpreted, so the rule set is usable as soon as it is parsed.
+@Getter
+public final class TieringPolicy {
+    private final int hotThreshold;
+    private final boolean background;
+    private final Backend compiler;
+    private final Consumer<Exception> onFailure;
+
+    private TieringPolicy(int hotThreshold, boolean background, Backend compiler, Consumer<Exception> onFailure) {
+        this.hotThreshold = hotThreshold;
+        this.background = background;
+        this.compiler = compiler;
+        this.onFailure = onFailure;
+    }
+
+    // Compiled on a background thread once evaluated this many times
+    public static TieringPolicy hotAfter(int evaluations) {
+        if (evaluations <= 0) {
+            throw new IllegalArgumentException("Hot threshold must be positive: " + evaluations);
+        }
+        return new TieringPolicy(evaluations, true, Backend.STRING_COMPILATION, e -> {
+        });
+    }
+
+    // Compiled on the evaluating thread at first use; rules never evaluated are never compiled
+    public static TieringPolicy lazy() {
+        return new TieringPolicy(1, false, Backend.STRING_COMPILATION, e -> {
+        });
+    }
+
+    // javac (STRING_COMPILATION, the default) or ByteBuddy (COMPILATION)
+    public TieringPolicy compiledWith(Backend compiler) {
+        if (compiler != Backend.STRING_COMPILATION && compiler != Backend.COMPILATION) {
+            throw new IllegalArgumentException("Tiered rules compile with COMPILATION or STRING_COMPILATION, not " + compiler);
+        }
+        return new TieringPolicy(hotThreshold, background, compiler, onFailure);
+    }
+
+    // Gets each rule that fails to compile, on the thread compiling it; the rule stays interpreted
+    public TieringPolicy onFailure(Consumer<Exception> onFailure) {
+        return new TieringPolicy(hotThreshold, background, compiler, onFailure);
+    }
+}
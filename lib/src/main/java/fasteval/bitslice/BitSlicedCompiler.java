@@ -0,0 +1,229 @@
+package fasteval.bitslice;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Compiles RuleNode trees into MaskNodes. Logical nodes become one bitwise operation on
+// 64-row masks; comparisons are scalar loops over one word's rows of a primitive column,
+// written without branches so the JIT can unroll and vectorise them.
+// A rule that cannot be bit-sliced (unknown token, unsupported operator or literal) is left
+// out, together with the rules referencing it; callers evaluate those row by row, which keeps
+// their errors exactly where row evaluation raises them.
+public class BitSlicedCompiler {
+
+    private final Map<String, String> tokenTypeMap;
+
+    public BitSlicedCompiler(Map<String, String> tokenTypeMap) {
+        this.tokenTypeMap = tokenTypeMap;
+    }
+
+    public BitSlicedRuleSet compileAll(Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds) {
+        int size = ruleIds.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        MaskNode[] nodes = new MaskNode[size];
+        int[][] references = new int[size][];
+
+        for (Map.Entry<String, RuleNode> entry : ruleNodeMap.entrySet()) {
+            Integer ruleId = ruleIds.get(entry.getKey());
+            if (ruleId == null) continue;
+            Set<Integer> refs = new LinkedHashSet<>();
+            try {
+                nodes[ruleId] = compile(entry.getValue(), ruleIds, refs);
+                references[ruleId] = refs.stream().mapToInt(Integer::intValue).toArray();
+            } catch (IllegalArgumentException e) {
+                nodes[ruleId] = null;
+            }
+        }
+
+        // Drop rules referencing a rule that was left out, until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int id = 0; id < size; id++) {
+                if (nodes[id] == null) continue;
+                for (int ref : references[id]) {
+                    if (nodes[ref] == null) {
+                        nodes[id] = null;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return new BitSlicedRuleSet(nodes, references);
+    }
+
+    MaskNode compile(RuleNode node, Map<String, Integer> ruleIds, Set<Integer> refs) {
+        switch (node.getType()) {
+            case AND: {
+                MaskNode left = compile(node.getLeft(), ruleIds, refs);
+                MaskNode right = compile(node.getRight(), ruleIds, refs);
+                return (batch, word, masks) -> left.evaluate(batch, word, masks) & right.evaluate(batch, word, masks);
+            }
+            case OR: {
+                MaskNode left = compile(node.getLeft(), ruleIds, refs);
+                MaskNode right = compile(node.getRight(), ruleIds, refs);
+                return (batch, word, masks) -> left.evaluate(batch, word, masks) | right.evaluate(batch, word, masks);
+            }
+            case XOR: {
+                MaskNode left = compile(node.getLeft(), ruleIds, refs);
+                MaskNode right = compile(node.getRight(), ruleIds, refs);
+                return (batch, word, masks) -> left.evaluate(batch, word, masks) ^ right.evaluate(batch, word, masks);
+            }
+            case NOT: {
+                MaskNode inner = compile(node.getLeft(), ruleIds, refs);
+                return (batch, word, masks) -> ~inner.evaluate(batch, word, masks);
+            }
+            case RULE_REFERENCE: {
+                Integer ruleId = ruleIds.get(node.getReferencedRule().getName());
+                if (ruleId == null) {
+                    throw new IllegalArgumentException("Referenced rule not found: " + node.getReferencedRule().getName());
+                }
+                int id = ruleId;
+                refs.add(id);
+                return (batch, word, masks) -> masks[id];
+            }
+            case COMPARISON:
+                return comparison(node);
+            default:
+                throw new IllegalArgumentException("Unsupported RuleNode type: " + node.getType());
+        }
+    }
+
+    private MaskNode comparison(RuleNode node) {
+        String token = node.getTokenName();
+        String type = node.getTokenType() != null ? node.getTokenType() : tokenTypeMap.get(token);
+        int slot = node.getTokenSlot();
+        if (type == null || slot < 0) {
+            throw new IllegalArgumentException("Token has no column: " + token);
+        }
+        String op = node.getOperator();
+        String value = node.getValue();
+
+        return switch (type.toLowerCase()) {
+            case "double" -> doubleComparison(slot, op, Double.parseDouble(value.replace(',', '.')));
+            case "int" -> intComparison(slot, op, Integer.parseInt(value));
+            case "boolean" -> booleanComparison(slot, op, Boolean.parseBoolean(value));
+            case "string" -> stringComparison(slot, op, value);
+            default -> throw new IllegalArgumentException("Unsupported token type: " + type);
+        };
+    }
+
+    private static MaskNode doubleComparison(int slot, String op, double literal) {
+        return switch (op) {
+            case ">" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] > literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "<" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] < literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "==" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] == literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "!=" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] != literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case ">=" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] >= literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "<=" -> (batch, word, masks) -> {
+                double[] column = batch.doubleColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] <= literal ? 1L : 0L) << r;
+                return mask;
+            };
+            default -> throw new IllegalArgumentException("Invalid operator: " + op);
+        };
+    }
+
+    private static MaskNode intComparison(int slot, String op, int literal) {
+        return switch (op) {
+            case ">" -> (batch, word, masks) -> {
+                int[] column = batch.intColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] > literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "<" -> (batch, word, masks) -> {
+                int[] column = batch.intColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] < literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "==" -> (batch, word, masks) -> equalCodes(batch.intColumn(slot), word, literal);
+            case "!=" -> (batch, word, masks) -> ~equalCodes(batch.intColumn(slot), word, literal);
+            case ">=" -> (batch, word, masks) -> {
+                int[] column = batch.intColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] >= literal ? 1L : 0L) << r;
+                return mask;
+            };
+            case "<=" -> (batch, word, masks) -> {
+                int[] column = batch.intColumn(slot);
+                int base = word << 6, end = Math.min(base + 64, column.length);
+                long mask = 0;
+                for (int r = base; r < end; r++) mask |= (column[r] <= literal ? 1L : 0L) << r;
+                return mask;
+            };
+            default -> throw new IllegalArgumentException("Invalid operator: " + op);
+        };
+    }
+
+    // Boolean columns already are bitsets
+    private static MaskNode booleanComparison(int slot, String op, boolean literal) {
+        boolean equal = switch (op) {
+            case "==" -> literal;
+            case "!=" -> !literal;
+            default -> throw new IllegalArgumentException("Invalid boolean operator: " + op);
+        };
+        return equal
+                ? (batch, word, masks) -> batch.booleanColumn(slot)[word]
+                : (batch, word, masks) -> ~batch.booleanColumn(slot)[word];
+    }
+
+    // Compares dictionary codes; a literal no row holds matches nothing, and null rows (-1) never equal it
+    private static MaskNode stringComparison(int slot, String op, String literal) {
+        return switch (op) {
+            case "==" -> (batch, word, masks) -> {
+                int code = batch.codeOf(slot, literal);
+                return code < 0 ? 0L : equalCodes(batch.stringCodeColumn(slot), word, code);
+            };
+            case "!=" -> (batch, word, masks) -> {
+                int code = batch.codeOf(slot, literal);
+                return code < 0 ? -1L : ~equalCodes(batch.stringCodeColumn(slot), word, code);
+            };
+            default -> throw new IllegalArgumentException("Invalid string operator: " + op);
+        };
+    }
+
+    private static long equalCodes(int[] column, int word, int value) {
+        int base = word << 6, end = Math.min(base + 64, column.length);
+        long mask = 0;
+        for (int r = base; r < end; r++) mask |= (column[r] == value ? 1L : 0L) << r;
+        return mask;
+    }
+}
@@ -0,0 +1,98 @@
+package fasteval.bitslice;
+
+import fasteval.context.ColumnarBatch;
+import fasteval.eval.BatchRanges;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// Rules compiled to MaskNodes, indexed by rule id. Evaluating a set of rules over a batch
+// walks it one 64-row word at a time: every rule the targets need is evaluated once per word,
+// in dependency order, so a referenced rule is just a read of its mask.
+public class BitSlicedRuleSet {
+
+    private final MaskNode[] nodes;
+    private final int[][] references;
+
+    BitSlicedRuleSet(MaskNode[] nodes, int[][] references) {
+        this.nodes = nodes;
+        this.references = references;
+    }
+
+    // False for unknown ids and for rules that must be evaluated row by row
+    public boolean supports(int ruleId) {
+        return ruleId >= 0 && ruleId < nodes.length && nodes[ruleId] != null;
+    }
+
+    public long[] evaluate(int ruleId, ColumnarBatch batch) {
+        return evaluate(new int[]{ruleId}, batch)[0];
+    }
+
+    // One bitmap per target, bit r set when the rule passed for row r
+    public long[][] evaluate(int[] ruleIds, ColumnarBatch batch) {
+        for (int ruleId : ruleIds) {
+            if (!supports(ruleId)) {
+                throw new IllegalArgumentException("Rule id " + ruleId + " cannot be evaluated bit-sliced");
+            }
+        }
+        int[] plan = plan(ruleIds);
+        int rowCount = batch.getRowCount();
+        long[][] results = new long[ruleIds.length][];
+        for (int t = 0; t < ruleIds.length; t++) {
+            results[t] = BatchRanges.newBitmap(rowCount);
+        }
+
+        BatchRanges.forEach(rowCount, (from, to) -> {
+            long[] masks = new long[nodes.length];
+            int lastWord = (to + 63) >>> 6;
+            for (int word = from >>> 6; word < lastWord; word++) {
+                for (int ruleId : plan) {
+                    masks[ruleId] = nodes[ruleId].evaluate(batch, word, masks);
+                }
+                for (int t = 0; t < ruleIds.length; t++) {
+                    results[t][word] = masks[ruleIds[t]];
+                }
+            }
+        });
+
+        // NOT sets bits past the last row
+        if ((rowCount & 63) != 0) {
+            long tail = (1L << rowCount) - 1;
+            for (long[] bitmap : results) {
+                bitmap[bitmap.length - 1] &= tail;
+            }
+        }
+        return results;
+    }
+
+    // The targets and everything they reference, each after the rules it references. Ids follow
+    // dependency order for freshly built rule sets but not after incremental reloads, so the
+    // order is computed here.
+    private int[] plan(int[] targets) {
+        boolean[] visited = new boolean[nodes.length];
+        int[] plan = new int[nodes.length];
+        int size = 0;
+        Deque<int[]> stack = new ArrayDeque<>();
+        for (int target : targets) {
+            if (visited[target]) continue;
+            visited[target] = true;
+            stack.push(new int[]{target, 0});
+            while (!stack.isEmpty()) {
+                int[] frame = stack.peek();
+                int[] refs = references[frame[0]];
+                if (frame[1] < refs.length) {
+                    int ref = refs[frame[1]++];
+                    if (!visited[ref]) {
+                        visited[ref] = true;
+                        stack.push(new int[]{ref, 0});
+                    }
+                } else {
+                    plan[size++] = frame[0];
+                    stack.pop();
+                }
+            }
+        }
+        return Arrays.copyOf(plan, size);
+    }
+}
@@ -0,0 +1,11 @@
+package fasteval.bitslice;
+
+import fasteval.context.ColumnarBatch;
+
+// One RuleNode evaluated over 64 rows at once: bit i of the result is row (word * 64 + i).
+// Masks of referenced rules are read from ruleMasks by rule id. Bits past the last row are
+// undefined and cleared by the caller.
+@FunctionalInterface
+public interface MaskNode {
+    long evaluate(ColumnarBatch batch, int word, long[] ruleMasks);
+}
@@ -0,0 +1,158 @@
+package fasteval.closure;
+
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Turns each RuleNode tree into a tree of specialised Conditions, once. Literals are parsed,
+// operators and token types are resolved to a dedicated closure, and references point straight
+// at the referenced ClosureRule, so evaluation does no string work and no map lookups.
+// No classes are generated, which suits environments that forbid defining classes at runtime.
+public class ClosureCompiler {
+
+    private final Map<String, String> tokenTypeMap;
+
+    public ClosureCompiler() {
+        this(Map.of());
+    }
+
+    // tokenTypeMap is only consulted for nodes the parser did not bind to a token type
+    public ClosureCompiler(Map<String, String> tokenTypeMap) {
+        this.tokenTypeMap = tokenTypeMap;
+    }
+
+    public Map<String, CompiledRule> compileAll(Map<String, RuleNode> ruleNodeMap, List<String> dependencyOrder,
+                                                Map<String, Integer> ruleIds) {
+        return compileAll(ruleNodeMap, dependencyOrder, ruleIds, Map.of());
+    }
+
+    // Compiles only the rules in dependencyOrder; references to any other rule link to the
+    // instance in existing. The result holds both.
+    public Map<String, CompiledRule> compileAll(Map<String, RuleNode> ruleNodeMap, List<String> dependencyOrder,
+                                                Map<String, Integer> ruleIds, Map<String, CompiledRule> existing) {
+        Map<String, CompiledRule> rules = new HashMap<>(existing);
+        for (String ruleName : dependencyOrder) {
+            rules.put(ruleName, new ClosureRule(ruleName));
+        }
+        for (String ruleName : dependencyOrder) {
+            ((ClosureRule) rules.get(ruleName)).setRoot(compile(ruleNodeMap.get(ruleName), rules, ruleIds));
+        }
+        return rules;
+    }
+
+    public Condition compile(RuleNode node, Map<String, ? extends CompiledRule> rules, Map<String, Integer> ruleIds) {
+        Condition condition = compileNode(node, rules, ruleIds);
+        // Sub-expressions shared between rules are computed once per memo
+        int sharedId = node.getSharedId();
+        if (sharedId < 0 || ruleIds == null) {
+            return condition;
+        }
+        return (ctx, memo) -> memo == null ? condition.test(ctx, memo)
+                : memo.isComputed(sharedId) ? memo.result(sharedId) : memo.store(sharedId, condition.test(ctx, memo));
+    }
+
+    private Condition compileNode(RuleNode node, Map<String, ? extends CompiledRule> rules, Map<String, Integer> ruleIds) {
+        switch (node.getType()) {
+            case AND: {
+                Condition left = compile(node.getLeft(), rules, ruleIds);
+                Condition right = compile(node.getRight(), rules, ruleIds);
+                return (ctx, memo) -> left.test(ctx, memo) && right.test(ctx, memo);
+            }
+            case OR: {
+                Condition left = compile(node.getLeft(), rules, ruleIds);
+                Condition right = compile(node.getRight(), rules, ruleIds);
+                return (ctx, memo) -> left.test(ctx, memo) || right.test(ctx, memo);
+            }
+            case XOR: {
+                Condition left = compile(node.getLeft(), rules, ruleIds);
+                Condition right = compile(node.getRight(), rules, ruleIds);
+                return (ctx, memo) -> left.test(ctx, memo) ^ right.test(ctx, memo);
+            }
+            case NOT: {
+                Condition inner = compile(node.getLeft(), rules, ruleIds);
+                return (ctx, memo) -> !inner.test(ctx, memo);
+            }
+            case RULE_REFERENCE:
+                return reference(node.getReferencedRule().getName(), rules, ruleIds);
+            case COMPARISON:
+                return comparison(node);
+            default:
+                throw new IllegalStateException("Unsupported RuleNode type: " + node.getType());
+        }
+    }
+
+    private static Condition reference(String ruleName, Map<String, ? extends CompiledRule> rules, Map<String, Integer> ruleIds) {
+        CompiledRule target = rules.get(ruleName);
+        if (target == null) {
+            throw new RuntimeException("Referenced rule not found: " + ruleName);
+        }
+        Integer ruleId = ruleIds == null ? null : ruleIds.get(ruleName);
+        if (ruleId == null) {
+            return (ctx, memo) -> target.evaluate(ctx, memo);
+        }
+        int id = ruleId;
+        return (ctx, memo) -> memo == null ? target.evaluate(ctx) : memo.evaluate(id, target, ctx);
+    }
+
+    private Condition comparison(RuleNode node) {
+        String token = node.getTokenName();
+        String type = node.getTokenType() != null ? node.getTokenType() : tokenTypeMap.get(token);
+        if (type == null) {
+            throw new IllegalArgumentException("Token type not found for: " + token);
+        }
+        int slot = node.getTokenSlot();
+        String op = node.getOperator();
+        String value = node.getValue();
+
+        return switch (type.toLowerCase()) {
+            case "double" -> doubleComparison(slot, token, op, Double.parseDouble(value.replace(',', '.')));
+            case "int" -> intComparison(slot, token, op, Integer.parseInt(value));
+            case "boolean" -> booleanComparison(slot, token, op, Boolean.parseBoolean(value));
+            case "string" -> stringComparison(slot, token, op, value);
+            default -> throw new IllegalArgumentException("Unsupported token type: " + type);
+        };
+    }
+
+    private static Condition doubleComparison(int slot, String token, String op, double literal) {
+        return switch (op) {
+            case ">" -> (ctx, memo) -> ctx.getDouble(slot, token) > literal;
+            case "<" -> (ctx, memo) -> ctx.getDouble(slot, token) < literal;
+            case "==" -> (ctx, memo) -> ctx.getDouble(slot, token) == literal;
+            case "!=" -> (ctx, memo) -> ctx.getDouble(slot, token) != literal;
+            case ">=" -> (ctx, memo) -> ctx.getDouble(slot, token) >= literal;
+            case "<=" -> (ctx, memo) -> ctx.getDouble(slot, token) <= literal;
+            default -> throw new IllegalArgumentException("Invalid operator: " + op);
+        };
+    }
+
+    private static Condition intComparison(int slot, String token, String op, int literal) {
+        return switch (op) {
+            case ">" -> (ctx, memo) -> ctx.getInt(slot, token) > literal;
+            case "<" -> (ctx, memo) -> ctx.getInt(slot, token) < literal;
+            case "==" -> (ctx, memo) -> ctx.getInt(slot, token) == literal;
+            case "!=" -> (ctx, memo) -> ctx.getInt(slot, token) != literal;
+            case ">=" -> (ctx, memo) -> ctx.getInt(slot, token) >= literal;
+            case "<=" -> (ctx, memo) -> ctx.getInt(slot, token) <= literal;
+            default -> throw new IllegalArgumentException("Invalid operator: " + op);
+        };
+    }
+
+    private static Condition booleanComparison(int slot, String token, String op, boolean literal) {
+        return switch (op) {
+            case "==" -> (ctx, memo) -> ctx.getBoolean(slot, token) == literal;
+            case "!=" -> (ctx, memo) -> ctx.getBoolean(slot, token) != literal;
+            default -> throw new IllegalArgumentException("Invalid boolean operator: " + op);
+        };
+    }
+
+    private static Condition stringComparison(int slot, String token, String op, String literal) {
+        return switch (op) {
+            case "==" -> (ctx, memo) -> literal.equals(ctx.getString(slot, token));
+            case "!=" -> (ctx, memo) -> !literal.equals(ctx.getString(slot, token));
+            default -> throw new IllegalArgumentException("Invalid string operator: " + op);
+        };
+    }
+}
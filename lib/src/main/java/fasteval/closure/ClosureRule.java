@@ -0,0 +1,32 @@
+package fasteval.closure;
+
+import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
+import fasteval.model.CompiledRule;
+import lombok.Getter;
+
+// A rule compiled to a tree of Conditions. The root is set once the rule is built so that
+// rules referencing it can link to the instance beforehand.
+public final class ClosureRule implements CompiledRule {
+    @Getter
+    private final String name;
+    private Condition root;
+
+    ClosureRule(String name) {
+        this.name = name;
+    }
+
+    void setRoot(Condition root) {
+        this.root = root;
+    }
+
+    @Override
+    public boolean evaluate(EvalContext context) {
+        return root.test(context, null);
+    }
+
+    @Override
+    public boolean evaluate(EvalContext context, RuleMemo memo) {
+        return root.test(context, memo);
+    }
+}
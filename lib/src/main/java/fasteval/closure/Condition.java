@@ -0,0 +1,10 @@
+package fasteval.closure;
+
+import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
+
+// One node of a closure-compiled rule. memo is null when the caller does not share one.
+@FunctionalInterface
+public interface Condition {
+    boolean test(EvalContext ctx, RuleMemo memo);
+}
@@ -0,0 +1,138 @@
+package fasteval.compilation;
+
+import fasteval.compilationv2.RuleNodeJavaGenerator;
+import fasteval.model.RuleNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// On-disk store for the class files of javac-compiled rules, so a restart with unchanged rules
+// skips generation and javac. An entry's key hashes everything its class depends on: the rule's
+// name and normalised AST (token slots, types and shared ids included), the ids and keys of the
+// rules it references, the generator version and the JDK. Changing any of them just means a new
+// key; stale entries are never read again. Entries are written atomically, and an entry that
+// cannot be read counts as a miss, so the cache can be shared by processes or wiped at any time.
+public final class ClassCache {
+
+    private final Path directory;
+
+    public ClassCache(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot create class cache directory: " + directory, e);
+        }
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Key per rule in ruleNames; referenced rules are hashed along the way
+    public Map<String, String> keys(Map<String, RuleNode> ruleNodeMap, Collection<String> ruleNames, Map<String, Integer> ruleIds) {
+        Map<String, String> keys = new HashMap<>();
+        Map<String, String> result = new HashMap<>();
+        for (String ruleName : ruleNames) {
+            result.put(ruleName, key(ruleName, ruleNodeMap, ruleIds, keys));
+        }
+        return result;
+    }
+
+    // Null on a miss
+    public byte[] load(String key) {
+        try {
+            return Files.readAllBytes(entry(key));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Best effort: a failed write only costs the next start a compilation
+    public void store(String key, byte[] classBytes) {
+        Path entry = entry(key);
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temp, classBytes);
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ignored) {
+            // Leave the entry missing
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + ".class");
+    }
+
+    // Rule references are acyclic, so the recursion ends
+    private static String key(String ruleName, Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds,
+                              Map<String, String> keys) {
+        String known = keys.get(ruleName);
+        if (known != null) return known;
+
+        StringBuilder sb = new StringBuilder()
+                .append(RuleNodeJavaGenerator.VERSION).append('|')
+                .append(Runtime.version().feature()).append('|')
+                .append(ruleIds != null).append('|');
+        field(sb, ruleName);
+        RuleNode root = ruleNodeMap.get(ruleName);
+        if (root == null) {
+            throw new IllegalArgumentException("Rule not found: " + ruleName);
+        }
+        normalise(root, ruleNodeMap, ruleIds, keys, sb);
+
+        String key = sha256(sb.toString());
+        keys.put(ruleName, key);
+        return key;
+    }
+
+    private static void normalise(RuleNode node, Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds,
+                                  Map<String, String> keys, StringBuilder sb) {
+        sb.append(node.getType().ordinal()).append('@').append(node.getSharedId()).append('(');
+        switch (node.getType()) {
+            case AND, OR, XOR -> {
+                normalise(node.getLeft(), ruleNodeMap, ruleIds, keys, sb);
+                normalise(node.getRight(), ruleNodeMap, ruleIds, keys, sb);
+            }
+            case NOT -> normalise(node.getLeft(), ruleNodeMap, ruleIds, keys, sb);
+            case RULE_REFERENCE -> {
+                String referenced = node.getReferencedRule().getName();
+                field(sb, referenced);
+                sb.append(ruleIds == null ? null : ruleIds.get(referenced)).append(';');
+                field(sb, ruleNodeMap.containsKey(referenced) ? key(referenced, ruleNodeMap, ruleIds, keys) : "");
+            }
+            case COMPARISON -> {
+                field(sb, node.getTokenName());
+                field(sb, node.getOperator());
+                field(sb, node.getValue());
+                field(sb, String.valueOf(node.getTokenType()));
+                sb.append(node.getTokenSlot()).append(';');
+            }
+        }
+        sb.append(')');
+    }
+
+    // Length-prefixed, so no value can run into the next
+    private static void field(StringBuilder sb, String value) {
+        sb.append(value.length()).append(':').append(value);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
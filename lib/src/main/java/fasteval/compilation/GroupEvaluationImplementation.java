@@ -0,0 +1,138 @@
+package fasteval.compilation;
+
+import fasteval.model.RuleNode;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Emits the methods of a generated CompiledGroup: evaluate(ctx, memo, mask) calls c0..cN, and
+// cK evaluates one chunk of the GroupPlan. Member bodies are emitted inline with the same code
+// as compiled rules; references load the rule from the refs array and go through the memo.
+public class GroupEvaluationImplementation implements Implementation {
+
+    static final String REFS_FIELD = "refs";
+    static final String CHUNK_DESCRIPTOR = "(L" + RuleEvaluationImplementation.EVAL_CONTEXT + ";L"
+            + RuleEvaluationImplementation.RULE_MEMO + ";[J)V";
+    private static final int MASK_VAR = 3;
+    private static final int FIRST_WORD_VAR = 4;
+
+    private final GroupPlan plan;
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final Map<String, Integer> ruleIds;
+    // -1 for evaluate itself
+    private final int chunk;
+
+    public GroupEvaluationImplementation(GroupPlan plan, Map<String, RuleNode> ruleNodeMap,
+                                         Map<String, Integer> ruleIds, int chunk) {
+        this.plan = plan;
+        this.ruleNodeMap = ruleNodeMap;
+        this.ruleIds = ruleIds;
+        this.chunk = chunk;
+    }
+
+    @Override
+    public ByteCodeAppender appender(Target implementationTarget) {
+        return (mv, context, method) -> {
+            String owner = implementationTarget.getInstrumentedType().getInternalName();
+            if (chunk < 0) {
+                for (int c = 0; c < plan.chunks().size(); c++) {
+                    for (int var = 0; var <= MASK_VAR; var++) {
+                        mv.visitVarInsn(Opcodes.ALOAD, var);
+                    }
+                    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "c" + c, CHUNK_DESCRIPTOR, false);
+                }
+                mv.visitInsn(Opcodes.RETURN);
+                return new ByteCodeAppender.Size(4, method.getStackSize());
+            }
+            List<Integer> words = new ArrayList<>(plan.wordsOf(plan.chunks().get(chunk)));
+            compileChunk(mv, owner, words);
+            // Frames and maxima are recomputed by the class writer
+            return new ByteCodeAppender.Size(8, method.getStackSize() + 2 * words.size());
+        };
+    }
+
+    @Override
+    public InstrumentedType prepare(InstrumentedType instrumentedType) {
+        return instrumentedType;
+    }
+
+    private void compileChunk(MethodVisitor mv, String owner, List<Integer> words) {
+        for (int i = 0; i < words.size(); i++) {
+            mv.visitInsn(Opcodes.LCONST_0);
+            mv.visitVarInsn(Opcodes.LSTORE, FIRST_WORD_VAR + 2 * i);
+        }
+
+        RuleEvaluationImplementation expressions = new RuleEvaluationImplementation(null, ruleIds) {
+            @Override
+            void compileRuleReference(MethodVisitor mv, RuleNode node, String owner) {
+                String ruleName = node.getReferencedRule().getName();
+                mv.visitVarInsn(Opcodes.ALOAD, MEMO_VAR);
+                mv.visitLdcInsn(ruleIds.get(ruleName));
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitFieldInsn(Opcodes.GETFIELD, owner, REFS_FIELD, "[L" + COMPILED_RULE + ";");
+                mv.visitLdcInsn(plan.referenceIndex(ruleName));
+                mv.visitInsn(Opcodes.AALOAD);
+                mv.visitVarInsn(Opcodes.ALOAD, CONTEXT_VAR);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RULE_MEMO, "evaluate",
+                        "(ILfasteval/model/RuleRepresentation;L" + EVAL_CONTEXT + ";)Z", false);
+            }
+        };
+
+        for (String member : plan.chunks().get(chunk)) {
+            int ruleId = ruleIds.get(member);
+            Label compute = new Label();
+            Label have = new Label();
+            Label skip = new Label();
+
+            // memo.isComputed(id) ? memo.result(id) : memo.store(id, <body>)
+            memoCall(mv, ruleId, "isComputed", "(I)Z");
+            mv.visitJumpInsn(Opcodes.IFEQ, compute);
+            memoCall(mv, ruleId, "result", "(I)Z");
+            mv.visitJumpInsn(Opcodes.GOTO, have);
+            mv.visitLabel(compute);
+            mv.visitVarInsn(Opcodes.ALOAD, RuleEvaluationImplementation.MEMO_VAR);
+            mv.visitLdcInsn(ruleId);
+            expressions.compileNode(mv, ruleNodeMap.get(member), owner);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RuleEvaluationImplementation.RULE_MEMO, "store", "(IZ)Z", false);
+            mv.visitLabel(have);
+            mv.visitJumpInsn(Opcodes.IFEQ, skip);
+            for (int index : plan.memberIndexes(member)) {
+                int var = FIRST_WORD_VAR + 2 * words.indexOf(index >>> 6);
+                mv.visitVarInsn(Opcodes.LLOAD, var);
+                mv.visitLdcInsn(1L << index);
+                mv.visitInsn(Opcodes.LOR);
+                mv.visitVarInsn(Opcodes.LSTORE, var);
+            }
+            mv.visitLabel(skip);
+        }
+
+        // if (mask != null) mask[w] |= local, for every word of the chunk
+        Label end = new Label();
+        mv.visitVarInsn(Opcodes.ALOAD, MASK_VAR);
+        mv.visitJumpInsn(Opcodes.IFNULL, end);
+        for (int i = 0; i < words.size(); i++) {
+            mv.visitVarInsn(Opcodes.ALOAD, MASK_VAR);
+            mv.visitLdcInsn(words.get(i));
+            mv.visitInsn(Opcodes.DUP2);
+            mv.visitInsn(Opcodes.LALOAD);
+            mv.visitVarInsn(Opcodes.LLOAD, FIRST_WORD_VAR + 2 * i);
+            mv.visitInsn(Opcodes.LOR);
+            mv.visitInsn(Opcodes.LASTORE);
+        }
+        mv.visitLabel(end);
+        mv.visitInsn(Opcodes.RETURN);
+    }
+
+    private static void memoCall(MethodVisitor mv, int ruleId, String method, String descriptor) {
+        mv.visitVarInsn(Opcodes.ALOAD, RuleEvaluationImplementation.MEMO_VAR);
+        mv.visitLdcInsn(ruleId);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RuleEvaluationImplementation.RULE_MEMO, method, descriptor, false);
+    }
+}
@@ -0,0 +1,92 @@
+package fasteval.compilation;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Layout shared by the generated group classes: distinct members in evaluation (rule id) order,
+// the declared positions each of them sets in the mask, the rules their bodies reference, and
+// the split into methods. Methods stay small enough for the JIT, which skips huge methods.
+public class GroupPlan {
+
+    // Node budget of one generated method; a comparison compiles to roughly 20 bytes
+    static final int NODES_PER_METHOD = 200;
+
+    private final List<String> evaluationOrder;
+    private final Map<String, List<Integer>> memberIndexes = new HashMap<>();
+    private final List<String> references = new ArrayList<>();
+    private final Map<String, Integer> referenceIndexes = new HashMap<>();
+    private final List<List<String>> chunks = new ArrayList<>();
+
+    public GroupPlan(List<String> members, Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds) {
+        for (int i = 0; i < members.size(); i++) {
+            String member = members.get(i);
+            if (!ruleNodeMap.containsKey(member) || !ruleIds.containsKey(member)) {
+                throw new IllegalArgumentException("Rule not found: " + member);
+            }
+            memberIndexes.computeIfAbsent(member, k -> new ArrayList<>()).add(i);
+        }
+        this.evaluationOrder = memberIndexes.keySet().stream()
+                .sorted(Comparator.comparing(ruleIds::get))
+                .toList();
+
+        List<String> chunk = new ArrayList<>();
+        int nodes = 0;
+        for (String member : evaluationOrder) {
+            RuleNode node = ruleNodeMap.get(member);
+            for (String ref : RuleNodeReferenceFinder.findReferencedRuleNames(node)) {
+                if (!referenceIndexes.containsKey(ref)) {
+                    referenceIndexes.put(ref, references.size());
+                    references.add(ref);
+                }
+            }
+            int size = countNodes(node);
+            if (!chunk.isEmpty() && nodes + size > NODES_PER_METHOD) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                nodes = 0;
+            }
+            chunk.add(member);
+            nodes += size;
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+    }
+
+    public List<String> evaluationOrder() {
+        return evaluationOrder;
+    }
+
+    // Declared positions of a member; a rule listed twice sets two bits
+    public List<Integer> memberIndexes(String member) {
+        return memberIndexes.get(member);
+    }
+
+    // Rules referenced from member bodies, in the order of the generated class's refs array
+    public List<String> references() {
+        return references;
+    }
+
+    public int referenceIndex(String ruleName) {
+        return referenceIndexes.get(ruleName);
+    }
+
+    public List<List<String>> chunks() {
+        return chunks;
+    }
+
+    // Mask words a chunk writes, ascending
+    public SortedSet<Integer> wordsOf(List<String> chunk) {
+        SortedSet<Integer> words = new TreeSet<>();
+        for (String member : chunk) {
+            for (int index : memberIndexes.get(member)) {
+                words.add(index >>> 6);
+            }
+        }
+        return words;
+    }
+
+    private static int countNodes(RuleNode node) {
+        if (node == null) return 0;
+        return 1 + countNodes(node.getLeft()) + countNodes(node.getRight());
+    }
+}
@@ -11,14 +11,15 @@ import net.bytebuddy.jar.asm.MethodVisitor;
 import net.bytebuddy.jar.asm.Opcodes;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 public class InjectRuleReferences implements Implementation {
 
     private final List<String> referencedRuleNames;
 
-    public InjectRuleReferences(Set<String> referencedRuleNames) {
+    // Constructor parameter i is stored in the field of the i-th name
+    public InjectRuleReferences(Collection<String> referencedRuleNames) {
         this.referencedRuleNames = new ArrayList<>(referencedRuleNames);
     }
 
@@ -0,0 +1,153 @@
+package fasteval.compilation;
+
+import fasteval.eval.NodeProfile;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Reorders the operands of AND and OR chains by a NodeProfile. A chain is a maximal run of one
+// operator, so `a AND (b AND c)` orders a, b and c together; XOR and NOT keep their operands.
+// AND operands run by increasing cost / P(false), OR operands by increasing cost / P(true), which
+// minimises the expected cost of a chain of independent operands. Only chains the samples
+// reached are reordered; operands they never reached count as even odds at their static cost.
+// The trees are copied, never changed, since the profiled rule set keeps evaluating them.
+// Structure shared between rules stays shared in the copy; a shared sub-expression is reordered
+// on its own but never merged into an enclosing chain, so it can still be memoized.
+public final class OperandOrder {
+
+    // Costs are in comparisons over all sampled evaluations of the reordered chains
+    public record Result(Map<String, RuleNode> ruleNodeMap, int reorderedChains, double currentCost, double reorderedCost) {
+    }
+
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final NodeProfile profile;
+    private final Map<RuleNode, RuleNode> copies = new IdentityHashMap<>();
+    private final Map<String, Double> staticCosts = new HashMap<>();
+    private int reorderedChains;
+    private double currentCost;
+    private double reorderedCost;
+
+    private OperandOrder(Map<String, RuleNode> ruleNodeMap, NodeProfile profile) {
+        this.ruleNodeMap = ruleNodeMap;
+        this.profile = profile;
+    }
+
+    public static Result reorder(Map<String, RuleNode> ruleNodeMap, NodeProfile profile) {
+        OperandOrder order = new OperandOrder(ruleNodeMap, profile);
+        Map<String, RuleNode> reordered = new LinkedHashMap<>();
+        ruleNodeMap.forEach((name, root) -> reordered.put(name, order.copy(root)));
+        return new Result(reordered, order.reorderedChains, order.currentCost, order.reorderedCost);
+    }
+
+    private RuleNode copy(RuleNode node) {
+        RuleNode done = copies.get(node);
+        if (done != null) {
+            return done;
+        }
+        RuleNode result = switch (node.getType()) {
+            case COMPARISON -> {
+                RuleNode comparison = RuleNode.comparison(node.getTokenName(), node.getOperator(), node.getValue());
+                comparison.setTokenType(node.getTokenType());
+                comparison.setTokenSlot(node.getTokenSlot());
+                yield comparison;
+            }
+            case RULE_REFERENCE -> RuleNode.ruleRef(node.getReferencedRule());
+            case NOT -> RuleNode.not(copy(node.getLeft()));
+            case XOR -> RuleNode.logical(RuleNode.Type.XOR, copy(node.getLeft()), copy(node.getRight()));
+            case AND, OR -> chain(node);
+        };
+        copies.put(node, result);
+        return result;
+    }
+
+    private RuleNode chain(RuleNode root) {
+        List<RuleNode> operands = new ArrayList<>();
+        collect(root.getLeft(), root.getType(), operands);
+        collect(root.getRight(), root.getType(), operands);
+
+        List<RuleNode> ordered = operands;
+        long evaluations = profile.evaluations(root);
+        if (evaluations > 0) {
+            boolean and = root.getType() == RuleNode.Type.AND;
+            double[] costs = new double[operands.size()];
+            double[] decisive = new double[operands.size()];
+            Map<RuleNode, Double> ranks = new IdentityHashMap<>();
+            for (int i = 0; i < operands.size(); i++) {
+                RuleNode operand = operands.get(i);
+                double measured = profile.cost(operand);
+                costs[i] = measured >= 0 ? measured : staticCost(operand);
+                // Probability that the operand ends the chain
+                decisive[i] = and ? 1 - profile.trueRate(operand) : profile.trueRate(operand);
+                ranks.put(operand, costs[i] / decisive[i]);
+            }
+            ordered = new ArrayList<>(operands);
+            ordered.sort(Comparator.comparingDouble(ranks::get));
+
+            if (!sameOrder(ordered, operands)) {
+                reorderedChains++;
+                currentCost += evaluations * expectedCost(operands, operands, costs, decisive);
+                reorderedCost += evaluations * expectedCost(ordered, operands, costs, decisive);
+            }
+        }
+
+        RuleNode result = copy(ordered.get(0));
+        for (int i = 1; i < ordered.size(); i++) {
+            result = RuleNode.logical(root.getType(), result, copy(ordered.get(i)));
+        }
+        return result;
+    }
+
+    // Operands of the chain in written order; shared nodes end the chain
+    private static void collect(RuleNode node, RuleNode.Type type, List<RuleNode> operands) {
+        if (node.getType() == type && node.getSharedId() < 0) {
+            collect(node.getLeft(), type, operands);
+            collect(node.getRight(), type, operands);
+        } else {
+            operands.add(node);
+        }
+    }
+
+    // Each operand runs only if none before it decided the chain
+    private static double expectedCost(List<RuleNode> order, List<RuleNode> operands, double[] costs, double[] decisive) {
+        double expected = 0;
+        double reached = 1;
+        for (RuleNode operand : order) {
+            int i = indexOf(operands, operand);
+            expected += reached * costs[i];
+            reached *= 1 - decisive[i];
+        }
+        return expected;
+    }
+
+    private static boolean sameOrder(List<RuleNode> a, List<RuleNode> b) {
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(List<RuleNode> operands, RuleNode operand) {
+        for (int i = 0; i < operands.size(); i++) {
+            if (operands.get(i) == operand) return i;
+        }
+        throw new IllegalStateException("Operand not in chain");
+    }
+
+    // Comparisons in the subtree, referenced rules included
+    private double staticCost(RuleNode node) {
+        return switch (node.getType()) {
+            case COMPARISON -> 1;
+            case RULE_REFERENCE -> {
+                String name = node.getReferencedRule().getName();
+                Double known = staticCosts.get(name);
+                if (known == null) {
+                    known = staticCost(ruleNodeMap.get(name));
+                    staticCosts.put(name, known);
+                }
+                yield known;
+            }
+            case NOT -> staticCost(node.getLeft());
+            default -> staticCost(node.getLeft()) + staticCost(node.getRight());
+        };
+    }
+}
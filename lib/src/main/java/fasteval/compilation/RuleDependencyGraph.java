@@ -0,0 +1,130 @@
+package fasteval.compilation;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Rule -> referenced rules, walked once per rule. Rules are scheduled in levels (Kahn's
+// algorithm): a level only references rules of earlier levels, so all rules of one level can be
+// compiled at the same time.
+public class RuleDependencyGraph {
+
+    // Iteration order follows the rule map, which keeps the schedule deterministic
+    private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+    private final Map<String, List<String>> dependents = new HashMap<>();
+    private final List<List<String>> levels;
+
+    public RuleDependencyGraph(Map<String, RuleNode> ruleNodeMap) {
+        for (Map.Entry<String, RuleNode> entry : ruleNodeMap.entrySet()) {
+            Set<String> refs = RuleNodeReferenceFinder.findReferencedRuleNames(entry.getValue());
+            for (String ref : refs) {
+                if (!ruleNodeMap.containsKey(ref)) {
+                    throw new IllegalStateException("Rule '" + entry.getKey() + "' references unknown rule '" + ref + "'");
+                }
+                dependents.computeIfAbsent(ref, k -> new ArrayList<>()).add(entry.getKey());
+            }
+            dependencies.put(entry.getKey(), refs);
+        }
+        this.levels = computeLevels();
+    }
+
+    public Set<String> dependenciesOf(String ruleName) {
+        return Collections.unmodifiableSet(dependencies.getOrDefault(ruleName, Set.of()));
+    }
+
+    public List<String> dependentsOf(String ruleName) {
+        return Collections.unmodifiableList(dependents.getOrDefault(ruleName, List.of()));
+    }
+
+    // Level 0 references no rule; level k only references rules of levels below k
+    public List<List<String>> levels() {
+        return levels;
+    }
+
+    // Every rule after the rules it references
+    public List<String> order() {
+        List<String> order = new ArrayList<>(dependencies.size());
+        levels.forEach(order::addAll);
+        return order;
+    }
+
+    // Levels restricted to the given rules; references to other rules count as already available
+    public List<List<String>> levels(Collection<String> ruleNames) {
+        Set<String> subset = new HashSet<>(ruleNames);
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> level : levels) {
+            List<String> kept = level.stream().filter(subset::contains).toList();
+            if (!kept.isEmpty()) result.add(kept);
+        }
+        return result;
+    }
+
+    // The given rules plus every rule that references one of them, directly or transitively
+    public Set<String> withDependents(Set<String> ruleNames) {
+        Set<String> result = new HashSet<>(ruleNames);
+        Deque<String> pending = new ArrayDeque<>(ruleNames);
+        while (!pending.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(pending.pop(), List.of())) {
+                if (result.add(dependent)) {
+                    pending.push(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<List<String>> computeLevels() {
+        Map<String, Integer> remaining = new HashMap<>();
+        List<String> current = new ArrayList<>();
+        dependencies.forEach((name, refs) -> {
+            remaining.put(name, refs.size());
+            if (refs.isEmpty()) current.add(name);
+        });
+
+        List<List<String>> result = new ArrayList<>();
+        int scheduled = 0;
+        List<String> level = current;
+        while (!level.isEmpty()) {
+            result.add(Collections.unmodifiableList(level));
+            scheduled += level.size();
+            List<String> next = new ArrayList<>();
+            for (String name : level) {
+                for (String dependent : dependents.getOrDefault(name, List.of())) {
+                    if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            level = next;
+        }
+
+        if (scheduled < dependencies.size()) {
+            throw new IllegalStateException("Cyclic dependency in rules: " + String.join(" -> ", findCycle(remaining)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // Follows unscheduled references until a rule repeats; every unscheduled rule has one
+    private List<String> findCycle(Map<String, Integer> remaining) {
+        String start = remaining.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow();
+
+        List<String> path = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>();
+        String current = start;
+        while (!positions.containsKey(current)) {
+            positions.put(current, path.size());
+            path.add(current);
+            current = dependencies.get(current).stream()
+                    .filter(ref -> remaining.get(ref) > 0)
+                    .findFirst()
+                    .orElseThrow();
+        }
+        List<String> cycle = new ArrayList<>(path.subList(positions.get(current), path.size()));
+        cycle.add(current);
+        return cycle;
+    }
+}
@@ -1,200 +1,266 @@
 package fasteval.compilation;
 
-import fasteval.context.EvalContext;
-import fasteval.model.CompiledRule;
 import fasteval.model.RuleNode;
-import net.bytebuddy.description.method.MethodDescription;
-import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.scaffold.InstrumentedType;
 import net.bytebuddy.implementation.Implementation;
 import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
-import net.bytebuddy.implementation.bytecode.StackManipulation;
-import net.bytebuddy.implementation.bytecode.constant.TextConstant;
-import net.bytebuddy.implementation.bytecode.member.FieldAccess;
-import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
-import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
 import net.bytebuddy.jar.asm.Label;
 import net.bytebuddy.jar.asm.MethodVisitor;
 import net.bytebuddy.jar.asm.Opcodes;
-import net.bytebuddy.matcher.ElementMatchers;
 
-import java.lang.reflect.Method;
+import java.util.Map;
 
+// Emits the body of CompiledRule.evaluate(EvalContext) straight from the RuleNode tree.
+// Every node leaves 0/1 on the operand stack; AND/OR jump past their right operand.
 public class RuleEvaluationImplementation implements Implementation {
 
+    static final String EVAL_CONTEXT = "fasteval/context/EvalContext";
+    static final String COMPILED_RULE = "fasteval/model/CompiledRule";
+    static final String RULE_MEMO = "fasteval/eval/RuleMemo";
+    static final int CONTEXT_VAR = 1;
+    static final int MEMO_VAR = 2;
+
     private final RuleNode node;
+    private final Map<String, Integer> ruleIds;
 
     public RuleEvaluationImplementation(RuleNode node) {
+        this(node, null);
+    }
+
+    // Implements evaluate(ctx, memo): references with an id go through RuleMemo.evaluate
+    public RuleEvaluationImplementation(RuleNode node, Map<String, Integer> ruleIds) {
         this.node = node;
+        this.ruleIds = ruleIds;
     }
 
     @Override
     public ByteCodeAppender appender(Target implementationTarget) {
         return (mv, context, method) -> {
-            StackManipulation stackManipulation = compileNode(node, implementationTarget);
-            StackManipulation.Size size = stackManipulation.apply(mv, context);
+            String owner = implementationTarget.getInstrumentedType().getInternalName();
+            compileNode(mv, node, owner);
             mv.visitInsn(Opcodes.IRETURN);
-            return new ByteCodeAppender.Size(size.getMaximalSize(), method.getStackSize());
+            return new ByteCodeAppender.Size(maxStack(node), method.getStackSize());
         };
     }
 
+    @Override
+    public InstrumentedType prepare(InstrumentedType instrumentedType) {
+        return instrumentedType;
+    }
 
-    private StackManipulation compileNode(RuleNode node, Target target) {
+    void compileNode(MethodVisitor mv, RuleNode node, String owner) {
+        if (ruleIds != null && node.getSharedId() >= 0) {
+            compileShared(mv, node, owner);
+        } else {
+            compileUnshared(mv, node, owner);
+        }
+    }
+
+    // memo.isComputed(id) ? memo.result(id) : memo.store(id, node); only in the memoizing method
+    private void compileShared(MethodVisitor mv, RuleNode node, String owner) {
+        Label compute = new Label();
+        Label end = new Label();
+        int sharedId = node.getSharedId();
+        mv.visitVarInsn(Opcodes.ALOAD, MEMO_VAR);
+        mv.visitLdcInsn(sharedId);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RULE_MEMO, "isComputed", "(I)Z", false);
+        mv.visitJumpInsn(Opcodes.IFEQ, compute);
+        mv.visitVarInsn(Opcodes.ALOAD, MEMO_VAR);
+        mv.visitLdcInsn(sharedId);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RULE_MEMO, "result", "(I)Z", false);
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(compute);
+        mv.visitVarInsn(Opcodes.ALOAD, MEMO_VAR);
+        mv.visitLdcInsn(sharedId);
+        compileUnshared(mv, node, owner);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RULE_MEMO, "store", "(IZ)Z", false);
+        mv.visitLabel(end);
+    }
+
+    private void compileUnshared(MethodVisitor mv, RuleNode node, String owner) {
         switch (node.getType()) {
-            case COMPARISON: return compileComparison(node);
-            case AND: return combineLogical(node, Opcodes.IAND, target);
-            case OR: return combineLogical(node, Opcodes.IOR, target);
-            case XOR: return combineLogical(node, Opcodes.IXOR, target);
-            case NOT: return negate(compileNode(node.getLeft(), target));
-            case RULE_REFERENCE: return compileRuleReference(node, target);
-            default: throw new IllegalStateException("Unsupported node type: " + node.getType());
+            case COMPARISON -> compileComparison(mv, node);
+            case AND -> compileShortCircuit(mv, node, owner, Opcodes.IFEQ, Opcodes.ICONST_0);
+            case OR -> compileShortCircuit(mv, node, owner, Opcodes.IFNE, Opcodes.ICONST_1);
+            case XOR -> {
+                compileNode(mv, node.getLeft(), owner);
+                compileNode(mv, node.getRight(), owner);
+                mv.visitInsn(Opcodes.IXOR);
+            }
+            case NOT -> {
+                compileNode(mv, node.getLeft(), owner);
+                negate(mv);
+            }
+            case RULE_REFERENCE -> compileRuleReference(mv, node, owner);
+            default -> throw new IllegalStateException("Unsupported node type: " + node.getType());
         }
     }
 
-    private StackManipulation compileComparison(RuleNode node) {
-        String tokenName = node.getTokenName();
-        String valueStr = node.getValue();
+    // Rule references read the injected ref_<name> field and call its evaluate(ctx),
+    // or memo.evaluate(id, ref_<name>, ctx) when compiling the memoizing method
+    void compileRuleReference(MethodVisitor mv, RuleNode node, String owner) {
+        String ruleName = node.getReferencedRule().getName();
+        Integer ruleId = ruleIds == null ? null : ruleIds.get(ruleName);
+        if (ruleId != null) {
+            mv.visitVarInsn(Opcodes.ALOAD, MEMO_VAR);
+            mv.visitLdcInsn(ruleId);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "ref_" + ruleName, "L" + COMPILED_RULE + ";");
+        mv.visitVarInsn(Opcodes.ALOAD, CONTEXT_VAR);
+        if (ruleId != null) {
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, RULE_MEMO, "evaluate",
+                    "(ILfasteval/model/RuleRepresentation;L" + EVAL_CONTEXT + ";)Z", false);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, COMPILED_RULE, "evaluate", "(L" + EVAL_CONTEXT + ";)Z", true);
+        }
+    }
+
+    // left; if (left decides) push decided value, else evaluate right
+    private void compileShortCircuit(MethodVisitor mv, RuleNode node, String owner, int decideOpcode, int decidedValue) {
+        Label decided = new Label();
+        Label end = new Label();
+        compileNode(mv, node.getLeft(), owner);
+        mv.visitJumpInsn(decideOpcode, decided);
+        compileNode(mv, node.getRight(), owner);
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(decided);
+        mv.visitInsn(decidedValue);
+        mv.visitLabel(end);
+    }
+
+    private void compileComparison(MethodVisitor mv, RuleNode node) {
+        String token = node.getTokenName();
         String operator = node.getOperator();
+        String valueStr = node.getValue();
+        String type = tokenType(node);
 
-        try {
-            // Try parse as int
-            int intVal = Integer.parseInt(valueStr);
-            Method getIntMethod = EvalContext.class.getMethod("getInt", String.class);
-            return compileIntComparison(getIntMethod, tokenName, intVal, operator);
-        } catch (NumberFormatException e) {
-            try {
-                // Try parse as boolean
-                boolean boolVal = Boolean.parseBoolean(valueStr);
-                Method getBoolMethod = EvalContext.class.getMethod("getBoolean", String.class);
-                return compileBooleanComparison(getBoolMethod, tokenName, boolVal, operator);
-            } catch (Exception inner) {
-                throw new RuntimeException("Failed to compile boolean comparison for " + tokenName, inner);
+        switch (type) {
+            case "double" -> {
+                double right = Double.parseDouble(valueStr.replace(',', '.'));
+                readToken(mv, node, "getDouble", "D");
+                mv.visitLdcInsn(right);
+                // DCMPG for < and <= so that NaN compares false, DCMPL otherwise
+                mv.visitInsn(operator.equals("<") || operator.equals("<=") ? Opcodes.DCMPG : Opcodes.DCMPL);
+                pushCondition(mv, zeroCompareOpcode(operator));
+            }
+            case "int" -> {
+                int right = Integer.parseInt(valueStr);
+                readToken(mv, node, "getInt", "I");
+                mv.visitLdcInsn(right);
+                pushCondition(mv, intCompareOpcode(operator));
+            }
+            case "boolean" -> {
+                boolean right = Boolean.parseBoolean(valueStr);
+                readToken(mv, node, "getBoolean", "Z");
+                mv.visitInsn(right ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+                pushCondition(mv, equalityOpcode(operator, Opcodes.IF_ICMPEQ, Opcodes.IF_ICMPNE, "boolean"));
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to build comparison for: " + tokenName + " " + operator + " " + valueStr, e);
+            case "string" -> {
+                int opcode = equalityOpcode(operator, Opcodes.IF_ICMPEQ, Opcodes.IF_ICMPNE, "string");
+                // "literal".equals(ctx.getString(...)) keeps a missing value false instead of throwing
+                mv.visitLdcInsn(valueStr);
+                readToken(mv, node, "getString", "Ljava/lang/String;");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+                if (opcode == Opcodes.IF_ICMPNE) {
+                    negate(mv);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported token type: " + type + " for " + token);
         }
     }
 
-    @Override
-    public InstrumentedType prepare(InstrumentedType instrumentedType) {
-        return instrumentedType;
+    // ctx.getX(slot, name) when the token is bound to a slot, ctx.getX(name) otherwise
+    private void readToken(MethodVisitor mv, RuleNode node, String getter, String returnDescriptor) {
+        mv.visitVarInsn(Opcodes.ALOAD, CONTEXT_VAR);
+        if (node.getTokenSlot() >= 0) {
+            mv.visitLdcInsn(node.getTokenSlot());
+            mv.visitLdcInsn(node.getTokenName());
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, EVAL_CONTEXT, getter, "(ILjava/lang/String;)" + returnDescriptor, true);
+        } else {
+            mv.visitLdcInsn(node.getTokenName());
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, EVAL_CONTEXT, getter, "(Ljava/lang/String;)" + returnDescriptor, true);
+        }
     }
 
-    private StackManipulation compileIntComparison(Method getter, String token, int rightVal, String operator) {
-        Label trueLabel = new Label();
-        Label endLabel = new Label();
-
-        return new StackManipulation.Compound(
-                MethodVariableAccess.REFERENCE.loadFrom(1),
-                new TextConstant(token),
-                MethodInvocation.invoke(new MethodDescription.ForLoadedMethod(getter)),
-                new StackManipulation() {
-                    @Override public boolean isValid() { return true; }
-
-                    @Override
-                    public Size apply(MethodVisitor mv, Context context) {
-                        mv.visitLdcInsn(rightVal);
-                        switch (operator) {
-                            case ">": mv.visitJumpInsn(Opcodes.IF_ICMPGT, trueLabel); break;
-                            case "<": mv.visitJumpInsn(Opcodes.IF_ICMPLT, trueLabel); break;
-                            case "==": mv.visitJumpInsn(Opcodes.IF_ICMPEQ, trueLabel); break;
-                            case "!=": mv.visitJumpInsn(Opcodes.IF_ICMPNE, trueLabel); break;
-                            case ">=": mv.visitJumpInsn(Opcodes.IF_ICMPGE, trueLabel); break;
-                            case "<=": mv.visitJumpInsn(Opcodes.IF_ICMPLE, trueLabel); break;
-                            default: throw new IllegalArgumentException("Unsupported operator: " + operator);
-                        }
-                        mv.visitInsn(Opcodes.ICONST_0);
-                        mv.visitJumpInsn(Opcodes.GOTO, endLabel);
-                        mv.visitLabel(trueLabel);
-                        mv.visitInsn(Opcodes.ICONST_1);
-                        mv.visitLabel(endLabel);
-                        return new Size(2, 2);
-                    }
-                }
-        );
-    }
-
-    private StackManipulation compileBooleanComparison(Method getter, String token, boolean expected, String operator) {
-        Label trueLabel = new Label();
-        Label endLabel = new Label();
-
-        return new StackManipulation.Compound(
-                MethodVariableAccess.REFERENCE.loadFrom(1),
-                new TextConstant(token),
-                MethodInvocation.invoke(new MethodDescription.ForLoadedMethod(getter)),
-                new StackManipulation() {
-                    @Override public boolean isValid() { return true; }
-
-                    @Override
-                    public Size apply(MethodVisitor mv, Context context) {
-                        mv.visitInsn(expected ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
-                        switch (operator) {
-                            case "==": mv.visitJumpInsn(Opcodes.IF_ICMPEQ, trueLabel); break;
-                            case "!=": mv.visitJumpInsn(Opcodes.IF_ICMPNE, trueLabel); break;
-                            default: throw new IllegalArgumentException("Unsupported boolean operator: " + operator);
-                        }
-                        mv.visitInsn(Opcodes.ICONST_0);
-                        mv.visitJumpInsn(Opcodes.GOTO, endLabel);
-                        mv.visitLabel(trueLabel);
-                        mv.visitInsn(Opcodes.ICONST_1);
-                        mv.visitLabel(endLabel);
-                        return new Size(2, 2);
-                    }
-                }
-        );
+    // Consumes the operands of a conditional jump and pushes 1 when it is taken, 0 otherwise
+    private static void pushCondition(MethodVisitor mv, int jumpOpcode) {
+        Label isTrue = new Label();
+        Label end = new Label();
+        mv.visitJumpInsn(jumpOpcode, isTrue);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(isTrue);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitLabel(end);
     }
 
-    private StackManipulation combineLogical(RuleNode node, int opcode, Target target) {
-        return new StackManipulation.Compound(
-                compileNode(node.getLeft(), target),
-                compileNode(node.getRight(), target),
-                new StackManipulation() {
-                    @Override public boolean isValid() { return true; }
+    private static void negate(MethodVisitor mv) {
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IXOR);
+    }
 
-                    @Override public Size apply(MethodVisitor mv, Context context) {
-                        mv.visitInsn(opcode);
-                        return new Size(1, 2);
-                    }
-                }
-        );
-    }
-
-    private StackManipulation negate(StackManipulation inner) {
-        Label trueLabel = new Label();
-        Label endLabel = new Label();
-        return new StackManipulation.Compound(
-                inner,
-                new StackManipulation() {
-                    @Override public boolean isValid() { return true; }
-
-                    @Override public Size apply(MethodVisitor mv, Context context) {
-                        mv.visitJumpInsn(Opcodes.IFEQ, trueLabel);
-                        mv.visitInsn(Opcodes.ICONST_0);
-                        mv.visitJumpInsn(Opcodes.GOTO, endLabel);
-                        mv.visitLabel(trueLabel);
-                        mv.visitInsn(Opcodes.ICONST_1);
-                        mv.visitLabel(endLabel);
-                        return new Size(1, 1);
-                    }
-                }
-        );
+    private static int intCompareOpcode(String operator) {
+        return switch (operator) {
+            case ">" -> Opcodes.IF_ICMPGT;
+            case "<" -> Opcodes.IF_ICMPLT;
+            case "==" -> Opcodes.IF_ICMPEQ;
+            case "!=" -> Opcodes.IF_ICMPNE;
+            case ">=" -> Opcodes.IF_ICMPGE;
+            case "<=" -> Opcodes.IF_ICMPLE;
+            default -> throw new IllegalArgumentException("Unsupported operator: " + operator);
+        };
     }
 
-    private StackManipulation compileRuleReference(RuleNode node, Target target) {
-        String fieldName = "ref_" + node.getReferencedRule().getName();
-        try {
-            Method evaluateMethod = CompiledRule.class.getMethod("evaluate", EvalContext.class);
-            return new StackManipulation.Compound(
-                    MethodVariableAccess.loadThis(),
-                    FieldAccess.forField(target.getInstrumentedType()
-                            .getDeclaredFields()
-                            .filter(ElementMatchers.named(fieldName))
-                            .getOnly()).read(),
-                    MethodVariableAccess.REFERENCE.loadFrom(1),
-                    MethodInvocation.invoke(new MethodDescription.ForLoadedMethod(evaluateMethod))
-            );
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to compile rule reference: " + fieldName, e);
+    // Jumps on the int left by DCMPL/DCMPG
+    private static int zeroCompareOpcode(String operator) {
+        return switch (operator) {
+            case ">" -> Opcodes.IFGT;
+            case "<" -> Opcodes.IFLT;
+            case "==" -> Opcodes.IFEQ;
+            case "!=" -> Opcodes.IFNE;
+            case ">=" -> Opcodes.IFGE;
+            case "<=" -> Opcodes.IFLE;
+            default -> throw new IllegalArgumentException("Unsupported operator: " + operator);
+        };
+    }
+
+    private static int equalityOpcode(String operator, int eq, int ne, String type) {
+        return switch (operator) {
+            case "==" -> eq;
+            case "!=" -> ne;
+            default -> throw new IllegalArgumentException("Unsupported " + type + " operator: " + operator);
+        };
+    }
+
+    // Declared type when the parser bound the token, otherwise inferred from the literal
+    static String tokenType(RuleNode node) {
+        if (node.getTokenType() != null) {
+            return node.getTokenType();
         }
+        String value = node.getValue();
+        if (value.equals("true") || value.equals("false")) {
+            return "boolean";
+        }
+        try {
+            Integer.parseInt(value);
+            return "int";
+        } catch (NumberFormatException ignored) {}
+        try {
+            Double.parseDouble(value);
+            return "double";
+        } catch (NumberFormatException ignored) {}
+        return "string";
+    }
+
+    // Operand stack depth needed by compileNode; shared nodes may hold memo and id beneath
+    static int maxStack(RuleNode node) {
+        return (node.getSharedId() >= 0 ? 2 : 0) + switch (node.getType()) {
+            case COMPARISON -> 4;
+            case AND, OR -> Math.max(maxStack(node.getLeft()), maxStack(node.getRight()));
+            case XOR -> Math.max(maxStack(node.getLeft()), 1 + maxStack(node.getRight()));
+            case NOT -> Math.max(maxStack(node.getLeft()), 2);
+            case RULE_REFERENCE -> 4;
+        };
     }
 }
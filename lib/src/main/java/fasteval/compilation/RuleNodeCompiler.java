@@ -1,43 +1,241 @@
 package fasteval.compilation;
 
+import fasteval.compilationv2.ClassSpace;
+import fasteval.compilationv2.GroupCompiler;
 import fasteval.compilationv2.InMemoryJavaCompiler;
 import fasteval.compilationv2.RuleNodeJavaGenerator;
+import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
+import fasteval.model.CompiledGroup;
 import fasteval.model.CompiledRule;
 import fasteval.model.RuleNode;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.matcher.ElementMatchers;
 
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class RuleNodeCompiler {
 
     private final boolean useStringCompiler;
+    private final ForkJoinPool pool;
+    // String mode only; null for none
+    private ClassCache classCache;
+    // Every class this compiler generates, hidden and unloaded with the rule set using them
+    private final ClassSpace classSpace = new ClassSpace();
 
     public RuleNodeCompiler() {
         this(false);
     }
 
     public RuleNodeCompiler(boolean useStringCompiler) {
+        this(useStringCompiler, ForkJoinPool.commonPool());
+    }
+
+    // compileAll compiles the rules of one dependency level in parallel on the given pool
+    public RuleNodeCompiler(boolean useStringCompiler, ForkJoinPool pool) {
         this.useStringCompiler = useStringCompiler;
+        this.pool = pool;
+    }
+
+    // compileAll takes rule classes from the cache where it has them and stores the ones it compiles
+    public RuleNodeCompiler withClassCache(ClassCache classCache) {
+        this.classCache = classCache;
+        return this;
+    }
+
+    public ClassSpace getClassSpace() {
+        return classSpace;
     }
 
     public CompiledRule compile(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap) {
+        return compile(ruleName, node, compiledRuleMap, null);
+    }
+
+    // With rule ids the compiled rule also memoizes its references through evaluate(ctx, memo)
+    public CompiledRule compile(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap,
+                                Map<String, Integer> ruleIds) {
         return useStringCompiler
-                ? compileWithStringCompiler(ruleName, node, compiledRuleMap)
-                : compileWithByteBuddy(ruleName, node, compiledRuleMap);
+                ? compileWithStringCompiler(ruleName, node, compiledRuleMap, ruleIds)
+                : compileWithByteBuddy(ruleName, node, compiledRuleMap, ruleIds);
+    }
+
+    // Compiles a whole rule set; dependencyOrder lists every rule after the rules it references.
+    // In string mode all sources go through javac together instead of one task per rule.
+    public Map<String, CompiledRule> compileAll(Map<String, RuleNode> ruleNodeMap, List<String> dependencyOrder,
+                                                Map<String, Integer> ruleIds) {
+        return compileAll(ruleNodeMap, dependencyOrder, ruleIds, Map.of());
+    }
+
+    // Compiles only the rules in dependencyOrder; references to any other rule resolve to the
+    // already compiled instance in existing. The result holds both.
+    public Map<String, CompiledRule> compileAll(Map<String, RuleNode> ruleNodeMap, List<String> dependencyOrder,
+                                                Map<String, Integer> ruleIds, Map<String, CompiledRule> existing) {
+        Map<String, CompiledRule> compiledRuleMap = new ConcurrentHashMap<>(existing);
+        if (!useStringCompiler) {
+            // A level only references earlier levels, so its rules are independent of each other
+            for (List<String> level : new RuleDependencyGraph(ruleNodeMap).levels(dependencyOrder)) {
+                try {
+                    pool.submit(() -> level.parallelStream().forEach(ruleName -> compiledRuleMap.put(ruleName,
+                            compileWithByteBuddy(ruleName, ruleNodeMap.get(ruleName), compiledRuleMap, ruleIds)))).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while compiling rules", e);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+                }
+            }
+            return new HashMap<>(compiledRuleMap);
+        }
+
+        return compileAllWithStringCompiler(ruleNodeMap, dependencyOrder, ruleIds, compiledRuleMap, classCache != null);
+    }
+
+    private Map<String, CompiledRule> compileAllWithStringCompiler(Map<String, RuleNode> ruleNodeMap, List<String> dependencyOrder,
+                                                                   Map<String, Integer> ruleIds, Map<String, CompiledRule> compiledRuleMap,
+                                                                   boolean readCache) {
+        // 1. Class files from the cache, and Java source code for every other rule
+        Map<String, String> keys = classCache == null ? Map.of() : classCache.keys(ruleNodeMap, dependencyOrder, ruleIds);
+        Map<String, byte[]> classBytes = new HashMap<>();
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String ruleName : dependencyOrder) {
+            String className = "Rule_" + ruleName;
+            byte[] cached = readCache ? classCache.load(keys.get(ruleName)) : null;
+            if (cached != null) {
+                classBytes.put("fasteval.compiled." + className, cached);
+            } else {
+                sources.put("fasteval.compiled." + className, new RuleNodeJavaGenerator(className, ruleNodeMap.get(ruleName), ruleIds).generate());
+            }
+        }
+
+        // 2. Compile the rest in one batch and load everything
+        List<String> classNames = dependencyOrder.stream().map(ruleName -> "fasteval.compiled.Rule_" + ruleName).toList();
+        Map<String, byte[]> compiledBytes;
+        try {
+            Map<String, Class<?>> classes;
+            try {
+                compiledBytes = sources.isEmpty() ? Map.of() : InMemoryJavaCompiler.compileToBytes(sources);
+                classBytes.putAll(compiledBytes);
+                // Counted only once every class is defined, so a bad cache entry is not counted twice
+                classes = classSpace.defineHidden(classBytes, classNames);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to compile rules via string compiler", e);
+            }
+
+            // 3. Instantiate in dependency order so referenced rules already exist
+            for (String ruleName : dependencyOrder) {
+                Class<?> compiledClass = classes.get("fasteval.compiled.Rule_" + ruleName);
+                compiledRuleMap.put(ruleName, instantiate(ruleName, compiledClass, ruleNodeMap.get(ruleName), compiledRuleMap));
+            }
+        } catch (LinkageError e) {
+            // A cache entry that is not a valid class file; compiling everything overwrites it
+            if (!readCache) throw e;
+            return compileAllWithStringCompiler(ruleNodeMap, dependencyOrder, ruleIds, compiledRuleMap, false);
+        }
+
+        if (classCache != null) {
+            for (String ruleName : dependencyOrder) {
+                byte[] bytes = compiledBytes.get("fasteval.compiled.Rule_" + ruleName);
+                if (bytes != null) classCache.store(keys.get(ruleName), bytes);
+            }
+        }
+        return new HashMap<>(compiledRuleMap);
+    }
+
+    // One CompiledGroup class per group, through javac in string mode and ByteBuddy otherwise.
+    // Groups naming an unknown rule are skipped; evaluating them reports the missing rule as before.
+    public Map<String, CompiledGroup> compileGroups(Map<String, List<String>> groups, Map<String, RuleNode> ruleNodeMap,
+                                                    Map<String, CompiledRule> compiledRuleMap, Map<String, Integer> ruleIds) {
+        if (useStringCompiler) {
+            return GroupCompiler.compileAll(groups, ruleNodeMap, compiledRuleMap, ruleIds, classSpace);
+        }
+        Map<String, CompiledGroup> compiled = new HashMap<>();
+        int index = 0;
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            GroupPlan plan;
+            try {
+                plan = new GroupPlan(group.getValue(), ruleNodeMap, ruleIds);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            compiled.put(group.getKey(), compileGroupWithByteBuddy("Group_" + index++, plan, ruleNodeMap, compiledRuleMap, ruleIds));
+        }
+        return compiled;
     }
 
-    private CompiledRule compileWithStringCompiler(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap) {
+    private CompiledGroup compileGroupWithByteBuddy(String className, GroupPlan plan, Map<String, RuleNode> ruleNodeMap,
+                                                    Map<String, CompiledRule> compiledRuleMap, Map<String, Integer> ruleIds) {
+        try {
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+                    .name("fasteval.compiled." + className)
+                    .implement(CompiledGroup.class)
+                    .defineField(GroupEvaluationImplementation.REFS_FIELD, CompiledRule[].class, Visibility.PRIVATE, FieldManifestation.FINAL)
+                    .defineConstructor(Visibility.PUBLIC)
+                    .withParameters(CompiledRule[].class)
+                    .intercept(MethodCall.invoke(Object.class.getConstructor())
+                            .andThen(FieldAccessor.ofField(GroupEvaluationImplementation.REFS_FIELD).setsArgumentAt(0)))
+                    .method(ElementMatchers.named("evaluate"))
+                    .intercept(new GroupEvaluationImplementation(plan, ruleNodeMap, ruleIds, -1));
+            for (int c = 0; c < plan.chunks().size(); c++) {
+                builder = builder
+                        .defineMethod("c" + c, void.class, Visibility.PRIVATE)
+                        .withParameters(EvalContext.class, RuleMemo.class, long[].class)
+                        .intercept(new GroupEvaluationImplementation(plan, ruleNodeMap, ruleIds, c));
+            }
+            byte[] bytes = builder
+                    .visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+                    .make()
+                    .getBytes();
+            Class<?> compiledClass = classSpace.defineHidden(bytes);
+
+            CompiledRule[] refs = plan.references().stream()
+                    .map(compiledRuleMap::get)
+                    .toArray(CompiledRule[]::new);
+            return (CompiledGroup) compiledClass.getConstructor(CompiledRule[].class).newInstance((Object) refs);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compile group via ByteBuddy: " + className, e);
+        }
+    }
+
+    private CompiledRule instantiate(String ruleName, Class<?> compiledClass, RuleNode node, Map<String, CompiledRule> compiledRuleMap) {
+        try {
+            Set<String> references = RuleNodeReferenceFinder.findReferencedRuleNames(node);
+            Constructor<?> constructor = compiledClass.getDeclaredConstructors()[0];
+            List<CompiledRule> params = references.stream()
+                    .map(compiledRuleMap::get)
+                    .collect(Collectors.toList());
+            return (CompiledRule) constructor.newInstance(params.toArray());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to instantiate compiled rule: " + ruleName, e);
+        }
+    }
+
+    private CompiledRule compileWithStringCompiler(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap,
+                                                   Map<String, Integer> ruleIds) {
         try {
             String className = "Rule_" + ruleName;
             String fullClassName = "fasteval.compiled." + className;
 
             // 1. Generate Java source code for the rule
-            RuleNodeJavaGenerator generator = new RuleNodeJavaGenerator(className, node);
+            RuleNodeJavaGenerator generator = new RuleNodeJavaGenerator(className, node, ruleIds);
             String javaCode = generator.generate();
 
             // 2. Compile the source code and load the class
-            Class<?> compiledClass = InMemoryJavaCompiler.compile(fullClassName, javaCode);
+            Class<?> compiledClass = InMemoryJavaCompiler.compile(fullClassName, javaCode, classSpace);
 
             // 3. Find all referenced rules
             Set<String> references = RuleNodeReferenceFinder.findReferencedRuleNames(node);
@@ -56,10 +254,49 @@ public class RuleNodeCompiler {
         }
     }
 
-    private CompiledRule compileWithByteBuddy(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap) {
-        throw new UnsupportedOperationException("ByteBuddy backend not implemented in this version.");
-        // If you still want to support ByteBuddy:
-        // - restore your previous working bytecode generation logic here
-        // - use `new ByteBuddy()` and inject fields + evaluate method + constructor
+    private CompiledRule compileWithByteBuddy(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap,
+                                              Map<String, Integer> ruleIds) {
+        try {
+            // 1. Referenced rules become final fields, injected in this order by the constructor
+            List<String> references = new ArrayList<>(RuleNodeReferenceFinder.findReferencedRuleNames(node));
+            Class<?>[] parameterTypes = new Class<?>[references.size()];
+            Arrays.fill(parameterTypes, CompiledRule.class);
+
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+                    .name("fasteval.compiled.Rule_" + ruleName)
+                    .implement(CompiledRule.class);
+            for (String ref : references) {
+                builder = builder.defineField("ref_" + ref, CompiledRule.class, Visibility.PRIVATE, FieldManifestation.FINAL);
+            }
+
+            // 2. Constructor and evaluate methods; frames are computed because of the branches
+            builder = builder
+                    .defineConstructor(Visibility.PUBLIC)
+                    .withParameters(parameterTypes)
+                    .intercept(MethodCall.invoke(Object.class.getConstructor())
+                            .andThen(new InjectRuleReferences(references)))
+                    .method(ElementMatchers.named("evaluate").and(ElementMatchers.takesArguments(EvalContext.class)))
+                    .intercept(new RuleEvaluationImplementation(node));
+            if (ruleIds != null && (!references.isEmpty() || SharedSubexpressions.containsShared(node))) {
+                builder = builder
+                        .method(ElementMatchers.named("evaluate").and(ElementMatchers.takesArguments(EvalContext.class, RuleMemo.class)))
+                        .intercept(new RuleEvaluationImplementation(node, ruleIds));
+            }
+            byte[] bytes = builder
+                    .visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+                    .make()
+                    .getBytes();
+            Class<?> compiledClass = classSpace.defineHidden(bytes);
+
+            // 3. Instantiate with the already compiled referenced rules
+            Object[] params = references.stream()
+                    .map(compiledRuleMap::get)
+                    .toArray();
+            return (CompiledRule) compiledClass.getDeclaredConstructors()[0].newInstance(params);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compile rule via ByteBuddy: " + ruleName, e);
+        }
     }
 }
@@ -2,8 +2,7 @@ package fasteval.compilation;
 
 import fasteval.model.RuleNode;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class RuleNodeReferenceFinder {
 
@@ -13,6 +12,25 @@ public class RuleNodeReferenceFinder {
         return result;
     }
 
+    // Orders rules so that every rule comes after the rules it references
+    public static List<String> dependencyOrder(Map<String, RuleNode> ruleNodeMap) {
+        return new RuleDependencyGraph(ruleNodeMap).order();
+    }
+
+    // Rule ids follow dependency order, so sorting ids also orders rules by dependency
+    public static Map<String, Integer> assignRuleIds(List<String> dependencyOrder) {
+        Map<String, Integer> ruleIds = new HashMap<>();
+        for (String ruleName : dependencyOrder) {
+            ruleIds.put(ruleName, ruleIds.size());
+        }
+        return ruleIds;
+    }
+
+    // The given rules plus every rule that references one of them, directly or transitively
+    public static Set<String> withDependents(Map<String, RuleNode> ruleNodeMap, Set<String> ruleNames) {
+        return new RuleDependencyGraph(ruleNodeMap).withDependents(ruleNames);
+    }
+
     private static void walk(RuleNode node, Set<String> result) {
         if (node == null) return;
 
@@ -0,0 +1,69 @@
+package fasteval.compilation;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Finds the compound sub-expressions (AND/OR/XOR/NOT) that the hash-consed rule DAG reaches from
+// more than one place and gives each a memo id, so that evaluations sharing a RuleMemo compute
+// them once. Comparisons are shared in memory but not memoized: reading one slot costs less than
+// the memo lookup would.
+public final class SharedSubexpressions {
+
+    private SharedSubexpressions() {
+    }
+
+    // Ids are taken from firstId upwards; returns the next unused id
+    public static int assignIds(Map<String, RuleNode> ruleNodeMap, int firstId) {
+        Map<RuleNode, Integer> uses = new IdentityHashMap<>();
+        List<RuleNode> compound = new ArrayList<>();
+        Deque<RuleNode> pending = new ArrayDeque<>();
+        for (RuleNode root : ruleNodeMap.values()) {
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                RuleNode node = pending.pop();
+                // Children of a node already seen were counted the first time
+                if (uses.merge(node, 1, Integer::sum) > 1) continue;
+                if (isCompound(node)) compound.add(node);
+                if (node.getLeft() != null) pending.push(node.getLeft());
+                if (node.getRight() != null) pending.push(node.getRight());
+            }
+        }
+
+        int nextId = firstId;
+        for (RuleNode node : compound) {
+            if (uses.get(node) > 1) {
+                node.setSharedId(nextId++);
+            }
+        }
+        return nextId;
+    }
+
+    // Highest memo id used by the nodes of these rules plus one, at least minimum
+    public static int nextFreeId(Collection<RuleNode> roots, int minimum) {
+        int next = minimum;
+        Set<RuleNode> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<RuleNode> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            RuleNode node = pending.pop();
+            if (!seen.add(node)) continue;
+            next = Math.max(next, node.getSharedId() + 1);
+            if (node.getLeft() != null) pending.push(node.getLeft());
+            if (node.getRight() != null) pending.push(node.getRight());
+        }
+        return next;
+    }
+
+    // Whether evaluating the node (without following references) touches a shared sub-expression
+    public static boolean containsShared(RuleNode node) {
+        if (node == null) return false;
+        return node.getSharedId() >= 0 || containsShared(node.getLeft()) || containsShared(node.getRight());
+    }
+
+    private static boolean isCompound(RuleNode node) {
+        return switch (node.getType()) {
+            case AND, OR, XOR, NOT -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package fasteval.compilation;
+
+import fasteval.compilationv2.ClassSpace;
+import fasteval.model.CompiledRule;
+import fasteval.model.InterpretedRule;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Compiles the rules of a tiered rule set as they get hot. Every rule starts as a TieredRule
+// serving the interpreter; rules that reach the threshold are compiled in batches, so one javac
+// run covers all rules that got hot meanwhile, and swapped in one by one. In the background
+// mode batches run on one daemon thread shared by all tiered rule sets; otherwise the rule is
+// compiled on the thread evaluating it. A rule that fails to compile stays interpreted and is
+// reported to onFailure; a failed batch is retried rule by rule, so the others still compile.
+public final class TieredCompiler {
+
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fasteval-tiered-compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final Map<String, Integer> ruleIds;
+    private final RuleNodeCompiler compiler;
+    private final int hotThreshold;
+    private final boolean background;
+    private final Consumer<Exception> onFailure;
+    private final Map<String, TieredRule> rules = new HashMap<>();
+    // Guarded by itself
+    private final Set<String> pending = new HashSet<>();
+    private boolean drainScheduled;
+
+    private TieredCompiler(Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds, ClassCache classCache,
+                           boolean stringMode, int hotThreshold, boolean background, Consumer<Exception> onFailure) {
+        this.ruleNodeMap = ruleNodeMap;
+        this.ruleIds = ruleIds;
+        this.compiler = new RuleNodeCompiler(stringMode).withClassCache(classCache);
+        this.hotThreshold = hotThreshold;
+        this.background = background;
+        this.onFailure = onFailure;
+    }
+
+    // One TieredRule per rule, interpreting it with the same memo ids compiled code will use;
+    // classCache is optional and only used in string mode
+    public static TieredCompiler tier(Map<String, RuleNode> ruleNodeMap, Map<String, String> tokenTypeMap,
+                                                 Map<String, Integer> ruleIds, ClassCache classCache, boolean stringMode,
+                                                 int hotThreshold, boolean background, Consumer<Exception> onFailure) {
+        TieredCompiler tiered = new TieredCompiler(ruleNodeMap, ruleIds, classCache, stringMode, hotThreshold, background, onFailure);
+        ruleNodeMap.forEach((name, root) -> tiered.rules.put(name,
+                new TieredRule(name, tiered, new InterpretedRule(root, ruleNodeMap, tokenTypeMap, ruleIds))));
+        return tiered;
+    }
+
+    public Map<String, CompiledRule> rules() {
+        return new HashMap<>(rules);
+    }
+
+    // Fills up as rules get compiled
+    public ClassSpace getClassSpace() {
+        return compiler.getClassSpace();
+    }
+
+    int hotThreshold() {
+        return hotThreshold;
+    }
+
+    void request(TieredRule rule) {
+        if (!background) {
+            compile(List.of(rule.getName()));
+            return;
+        }
+        synchronized (pending) {
+            pending.add(rule.getName());
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+        BACKGROUND.execute(this::drain);
+    }
+
+    private void drain() {
+        List<String> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            drainScheduled = false;
+        }
+        compile(batch);
+    }
+
+    // Serialized, so a rule requested twice is compiled once
+    synchronized void compile(List<String> ruleNames) {
+        // Ids follow dependency order, which compileAll expects
+        List<String> toCompile = ruleNames.stream()
+                .filter(name -> !rules.get(name).isCompiled())
+                .sorted(Comparator.comparingInt(ruleIds::get))
+                .toList();
+        if (toCompile.isEmpty()) return;
+
+        try {
+            install(toCompile);
+        } catch (RuntimeException batchFailure) {
+            // Tell the rules that do not compile from the rest of the batch
+            for (String name : toCompile) {
+                try {
+                    install(List.of(name));
+                } catch (RuntimeException e) {
+                    onFailure.accept(new RuntimeException("Failed to compile tiered rule: " + name, e));
+                }
+            }
+        }
+    }
+
+    // References to rules outside the batch go through their wrappers
+    private void install(List<String> ruleNames) {
+        Map<String, CompiledRule> compiled = compiler.compileAll(ruleNodeMap, ruleNames, ruleIds, new HashMap<>(rules));
+        for (String name : ruleNames) {
+            rules.get(name).install(compiled.get(name));
+        }
+    }
+}
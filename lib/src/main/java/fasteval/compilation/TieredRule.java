@@ -0,0 +1,53 @@
+package fasteval.compilation;
+
+import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleRepresentation;
+import lombok.Getter;
+
+// A rule that is interpreted until TieredCompiler swaps in its compiled class. Counts its
+// evaluations and asks for compilation once they reach the compiler's threshold. Compiled rules
+// that reference it call through this wrapper, so they pick up the swap as well.
+public final class TieredRule implements CompiledRule {
+    @Getter
+    private final String name;
+    private final TieredCompiler compiler;
+    private volatile RuleRepresentation current;
+    private volatile boolean requested;
+    // Racy on purpose: a lost increment only delays the request, and requested makes it one
+    private int evaluations;
+
+    TieredRule(String name, TieredCompiler compiler, RuleRepresentation interpreted) {
+        this.name = name;
+        this.compiler = compiler;
+        this.current = interpreted;
+    }
+
+    @Override
+    public boolean evaluate(EvalContext context) {
+        if (!requested) count();
+        return current.evaluate(context);
+    }
+
+    @Override
+    public boolean evaluate(EvalContext context, RuleMemo memo) {
+        if (!requested) count();
+        return current.evaluate(context, memo);
+    }
+
+    public boolean isCompiled() {
+        return current instanceof CompiledRule;
+    }
+
+    void install(CompiledRule compiled) {
+        current = compiled;
+    }
+
+    private void count() {
+        if (++evaluations >= compiler.hotThreshold()) {
+            requested = true;
+            compiler.request(this);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package fasteval.compilation;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Token -> ids of the rules whose result can change with it: the rules comparing the token
+// themselves, plus every rule referencing one of those, directly or transitively. Built once
+// per rule set from the parsed rules; ids come sorted. That is dependency order only for a rule
+// set built from scratch: a reload keeps the old ids and appends new ones, so a rule may then
+// reference a rule with a higher id. Callers evaluate through a RuleMemo, which computes a
+// referenced rule on demand, so they do not rely on the order.
+public final class TokenDependencyIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> affected;
+
+    private TokenDependencyIndex(Map<String, int[]> affected) {
+        this.affected = affected;
+    }
+
+    public static TokenDependencyIndex build(Map<String, RuleNode> ruleNodeMap, Map<String, Integer> ruleIds) {
+        // References are left to the dependency graph, so each rule only lists its own comparisons
+        Map<String, Set<String>> readers = new HashMap<>();
+        for (Map.Entry<String, RuleNode> entry : ruleNodeMap.entrySet()) {
+            for (String tokenName : tokensComparedBy(entry.getValue())) {
+                readers.computeIfAbsent(tokenName, k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+
+        RuleDependencyGraph graph = new RuleDependencyGraph(ruleNodeMap);
+        Map<String, int[]> affected = new HashMap<>();
+        readers.forEach((tokenName, ruleNames) -> affected.put(tokenName, graph.withDependents(ruleNames).stream()
+                .map(ruleIds::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray()));
+        return new TokenDependencyIndex(affected);
+    }
+
+    // Empty when no rule depends on the token
+    public int[] affectedRules(String tokenName) {
+        return affected.getOrDefault(tokenName, NONE);
+    }
+
+    private static Set<String> tokensComparedBy(RuleNode node) {
+        Set<String> result = new HashSet<>();
+        walk(node, result);
+        return result;
+    }
+
+    private static void walk(RuleNode node, Set<String> result) {
+        if (node == null) return;
+
+        if (node.getType() == RuleNode.Type.COMPARISON) {
+            result.add(node.getTokenName());
+        }
+
+        walk(node.getLeft(), result);
+        walk(node.getRight(), result);
+    }
+}
@@ -0,0 +1,128 @@
+package fasteval.compilationv2;
+
+import fasteval.compiled.HiddenClasses;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The classes generated for one rule set version. Classes that stand alone, every rule and group
+// class, become hidden classes: they are not registered with any loader, so each one unloads
+// as soon as nothing uses it. Classes that refer to each other by name (RuleSetCompiler) cannot
+// be hidden; they share one loader of their own, which unloads with them. No class bytes are
+// kept either way. The space counts what it defines and how much metaspace grew meanwhile; the
+// growth is approximate, as classes loaded by other threads at the same time count as well.
+public final class ClassSpace {
+
+    private static final MemoryPoolMXBean METASPACE = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getName().equals("Metaspace"))
+            .findFirst()
+            .orElse(null);
+
+    private int classCount;
+    private long classFileBytes;
+    private long metaspaceBytes;
+
+    // classBytes must be a class in fasteval.compiled that names no other generated class.
+    // Serialized, so that parallel compilation does not count the same metaspace growth twice.
+    public synchronized Class<?> defineHidden(byte[] classBytes) {
+        long before = metaspaceUsed();
+        Class<?> defined = hidden(classBytes);
+        record(1, classBytes.length, before);
+        return defined;
+    }
+
+    // Defines the named class files as hidden classes. All or nothing in the counts: when one is
+    // not a valid class, the classes defined before it are left unreferenced and not counted
+    public synchronized Map<String, Class<?>> defineHidden(Map<String, byte[]> classBytes, Collection<String> classNames) {
+        long before = metaspaceUsed();
+        long bytes = 0;
+        Map<String, Class<?>> classes = new LinkedHashMap<>();
+        for (String className : classNames) {
+            byte[] definition = classBytes.get(className);
+            classes.put(className, hidden(definition));
+            bytes += definition.length;
+        }
+        record(classes.size(), bytes, before);
+        return classes;
+    }
+
+    // Defines class files that may refer to each other through one new loader and loads the named ones
+    public synchronized Map<String, Class<?>> defineLinked(Map<String, byte[]> classBytes, Collection<String> classNames)
+            throws ClassNotFoundException {
+        long before = metaspaceUsed();
+        LinkedClassLoader loader = new LinkedClassLoader(new ConcurrentHashMap<>(classBytes));
+        Map<String, Class<?>> classes = new LinkedHashMap<>();
+        for (String className : classNames) {
+            classes.put(className, loader.loadClass(className));
+        }
+        record(loader.definedClasses, loader.definedBytes, before);
+        return classes;
+    }
+
+    public synchronized int getClassCount() {
+        return classCount;
+    }
+
+    public synchronized long getClassFileBytes() {
+        return classFileBytes;
+    }
+
+    public synchronized long getMetaspaceBytes() {
+        return metaspaceBytes;
+    }
+
+    // Metaspace in use across the JVM; -1 when the JVM does not report it
+    public static long metaspaceUsed() {
+        return METASPACE == null ? -1 : METASPACE.getUsage().getUsed();
+    }
+
+    private static Class<?> hidden(byte[] classBytes) {
+        try {
+            // HiddenClasses only marks the package; its lookup is not handed out
+            return MethodHandles.privateLookupIn(HiddenClasses.class, MethodHandles.lookup())
+                    .defineHiddenClass(classBytes, true)
+                    .lookupClass();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot define hidden class in fasteval.compiled", e);
+        }
+    }
+
+    private void record(int classes, long bytes, long metaspaceBefore) {
+        classCount += classes;
+        classFileBytes += bytes;
+        if (metaspaceBefore >= 0) {
+            metaspaceBytes += Math.max(0, metaspaceUsed() - metaspaceBefore);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ClassSpace{classes=" + classCount + ", classFileBytes=" + classFileBytes + ", metaspaceBytes=" + metaspaceBytes + "}";
+    }
+
+    private static class LinkedClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classBytes;
+        private int definedClasses;
+        private long definedBytes;
+
+        LinkedClassLoader(Map<String, byte[]> classBytes) {
+            super(ClassSpace.class.getClassLoader());
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // Bytes are dropped once defined; the loader keeps the class alive
+            byte[] bytes = classBytes.remove(name);
+            if (bytes == null) throw new ClassNotFoundException(name);
+            definedClasses++;
+            definedBytes += bytes.length;
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package fasteval.compilationv2;
+
+import fasteval.compilation.GroupPlan;
+import fasteval.model.CompiledGroup;
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Compiles every group to a CompiledGroup through javac, one hidden class per group in one batch.
+// Groups naming an unknown rule are skipped; evaluating them reports the missing rule as before.
+public class GroupCompiler {
+
+    public static Map<String, CompiledGroup> compileAll(Map<String, List<String>> groups,
+                                                        Map<String, RuleNode> ruleNodeMap,
+                                                        Map<String, ? extends CompiledRule> compiledRules,
+                                                        Map<String, Integer> ruleIds, ClassSpace space) {
+        Map<String, GroupPlan> plans = new LinkedHashMap<>();
+        Map<String, String> classNames = new HashMap<>();
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            GroupPlan plan;
+            try {
+                plan = new GroupPlan(group.getValue(), ruleNodeMap, ruleIds);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            String className = "Group_" + plans.size();
+            plans.put(group.getKey(), plan);
+            classNames.put(group.getKey(), "fasteval.compiled." + className);
+            sources.put("fasteval.compiled." + className, new GroupJavaGenerator(className, plan, ruleNodeMap, ruleIds).generate());
+        }
+        if (sources.isEmpty()) return Map.of();
+
+        try {
+            Map<String, Class<?>> classes = InMemoryJavaCompiler.compileAll(sources, space);
+            Map<String, CompiledGroup> compiled = new HashMap<>();
+            for (Map.Entry<String, GroupPlan> entry : plans.entrySet()) {
+                CompiledRule[] refs = entry.getValue().references().stream()
+                        .map(compiledRules::get)
+                        .toArray(CompiledRule[]::new);
+                Class<?> groupClass = classes.get(classNames.get(entry.getKey()));
+                compiled.put(entry.getKey(), (CompiledGroup) groupClass.getConstructor(CompiledRule[].class).newInstance((Object) refs));
+            }
+            return compiled;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compile groups", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package fasteval.compilationv2;
+
+import fasteval.compilation.GroupPlan;
+import fasteval.model.RuleNode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+// Generates one CompiledGroup class for a group. Member bodies are written out inline; rules
+// they reference are called through a CompiledRule[] and memoized, so shared sub-rules run once.
+// Each method keeps the mask words it touches in locals and ORs them into the mask at the end.
+public class GroupJavaGenerator {
+
+    private final String className;
+    private final GroupPlan plan;
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final Map<String, Integer> ruleIds;
+
+    public GroupJavaGenerator(String className, GroupPlan plan, Map<String, RuleNode> ruleNodeMap,
+                              Map<String, Integer> ruleIds) {
+        this.className = className;
+        this.plan = plan;
+        this.ruleNodeMap = ruleNodeMap;
+        this.ruleIds = ruleIds;
+    }
+
+    public String generate() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("package fasteval.compiled;\n\n")
+                .append("import fasteval.model.*;\n")
+                .append("import fasteval.context.EvalContext;\n")
+                .append("import fasteval.eval.RuleMemo;\n")
+                .append("public final class ").append(className).append(" implements CompiledGroup {\n");
+
+        sb.append("  private final CompiledRule[] refs;\n");
+        sb.append("  public ").append(className).append("(CompiledRule[] refs) {\n");
+        sb.append("    this.refs = refs;\n");
+        sb.append("  }\n\n");
+
+        List<List<String>> chunks = plan.chunks();
+        sb.append("  @Override public void evaluate(EvalContext ctx, RuleMemo memo, long[] mask) {\n");
+        for (int c = 0; c < chunks.size(); c++) {
+            sb.append("    c").append(c).append("(ctx, memo, mask);\n");
+        }
+        sb.append("  }\n");
+
+        for (int c = 0; c < chunks.size(); c++) {
+            SortedSet<Integer> words = plan.wordsOf(chunks.get(c));
+            sb.append("\n  private void c").append(c).append("(EvalContext ctx, RuleMemo memo, long[] mask) {\n");
+            for (int word : words) {
+                sb.append("    long w").append(word).append(" = 0L;\n");
+            }
+            for (String member : chunks.get(c)) {
+                int ruleId = ruleIds.get(member);
+                sb.append("    if (memo.isComputed(").append(ruleId).append(") ? memo.result(").append(ruleId)
+                        .append(") : memo.store(").append(ruleId).append(", ")
+                        .append(generateExpression(ruleNodeMap.get(member))).append(")) {\n");
+                for (int index : plan.memberIndexes(member)) {
+                    sb.append("      w").append(index >>> 6).append(" |= ").append(1L << index).append("L;\n");
+                }
+                sb.append("    }\n");
+            }
+            sb.append("    if (mask != null) {\n");
+            for (int word : words) {
+                sb.append("      mask[").append(word).append("] |= w").append(word).append(";\n");
+            }
+            sb.append("    }\n");
+            sb.append("  }\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private String generateExpression(RuleNode node) {
+        return RuleNodeJavaGenerator.memoizeShared(node, generateNode(node));
+    }
+
+    private String generateNode(RuleNode node) {
+        return switch (node.getType()) {
+            case AND -> "(" + generateExpression(node.getLeft()) + " && " + generateExpression(node.getRight()) + ")";
+            case OR -> "(" + generateExpression(node.getLeft()) + " || " + generateExpression(node.getRight()) + ")";
+            case XOR -> "(" + generateExpression(node.getLeft()) + " ^ " + generateExpression(node.getRight()) + ")";
+            case NOT -> "(!" + generateExpression(node.getLeft()) + ")";
+            case RULE_REFERENCE -> {
+                String ruleName = node.getReferencedRule().getName();
+                yield "memo.evaluate(" + ruleIds.get(ruleName) + ", refs[" + plan.referenceIndex(ruleName) + "], ctx)";
+            }
+            case COMPARISON -> RuleNodeJavaGenerator.generateComparison(node);
+        };
+    }
+}
@@ -1,22 +1,73 @@
 package fasteval.compilationv2;
 
+import fasteval.model.CompiledRule;
+
 import javax.tools.*;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.OutputStream;
 import java.net.URI;
-import java.util.Collections;
-import java.util.Map;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class InMemoryJavaCompiler {
 
     private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
-    private static final Map<String, byte[]> compiledClasses = new ConcurrentHashMap<>();
 
-    public static Class<?> compile(String className, String sourceCode) throws ClassNotFoundException {
-        JavaFileObject javaFile = new JavaSourceFromString(className, sourceCode);
+    // Sources per javac task in batch mode; chunks are compiled in parallel
+    static final int BATCH_CHUNK_SIZE = 1000;
+
+    // Each call defines its classes into the given space; nothing is shared between calls, so
+    // rule sets compiled concurrently with the same class names do not pick up each other's classes
+    public static Class<?> compile(String className, String sourceCode, ClassSpace space) {
+        return compileAll(Map.of(className, sourceCode), space).get(className);
+    }
+
+    // Compiles all sources (class name -> source) with one javac task per chunk and defines each
+    // class as a hidden class. Sources must not depend on each other; generated rules only refer
+    // to each other through CompiledRule.
+    public static Map<String, Class<?>> compileAll(Map<String, String> sources, ClassSpace space) {
+        return space.defineHidden(compileToBytes(sources), sources.keySet());
+    }
+
+    // Sources that reference each other by name: one javac task, and one loader for all of them
+    public static Map<String, Class<?>> compileLinked(Map<String, String> sources, ClassSpace space) throws ClassNotFoundException {
+        return space.defineLinked(compileToBytes(sources, Integer.MAX_VALUE), sources.keySet());
+    }
+
+    // The class files javac produces for the sources, by binary class name
+    public static Map<String, byte[]> compileToBytes(Map<String, String> sources) {
+        return compileToBytes(sources, BATCH_CHUNK_SIZE);
+    }
+
+    // Sources that reference each other by name must land in the same chunk
+    public static Map<String, byte[]> compileToBytes(Map<String, String> sources, int chunkSize) {
+        List<List<JavaFileObject>> chunks = new ArrayList<>();
+        List<JavaFileObject> current = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            current.add(new JavaSourceFromString(source.getKey(), source.getValue()));
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) chunks.add(current);
+
+        Map<String, byte[]> classBytes = new ConcurrentHashMap<>();
+        if (chunks.size() > 1) {
+            chunks.parallelStream().forEach(chunk -> compileChunk(chunk, classBytes));
+        } else {
+            chunks.forEach(chunk -> compileChunk(chunk, classBytes));
+        }
+        return classBytes;
+    }
 
-        JavaFileManager fileManager = new ForwardingJavaFileManager<>(COMPILER.getStandardFileManager(null, null, null)) {
+    private static void compileChunk(List<JavaFileObject> chunk, Map<String, byte[]> classBytes) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        // StandardJavaFileManager is not thread-safe, so every chunk gets its own
+        JavaFileManager fileManager = new ForwardingJavaFileManager<>(COMPILER.getStandardFileManager(diagnostics, null, null)) {
             @Override
             public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
                 return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
@@ -25,7 +76,7 @@ public class InMemoryJavaCompiler {
                         return new ByteArrayOutputStream() {
                             @Override
                             public void close() {
-                                compiledClasses.put(name, toByteArray());
+                                classBytes.put(name, toByteArray());
                             }
                         };
                     }
@@ -33,31 +84,27 @@ public class InMemoryJavaCompiler {
             }
         };
 
-        JavaCompiler.CompilationTask task = COMPILER.getTask(
-                null,
-                fileManager,
-                null,
-                null,
-                null,
-                Collections.singletonList(javaFile)
-        );
-
+        JavaCompiler.CompilationTask task = COMPILER.getTask(null, fileManager, diagnostics, compilerOptions(), null, chunk);
         if (!task.call()) {
-            throw new RuntimeException("Compilation failed for class: " + className);
+            String errors = diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .limit(5)
+                    .map(d -> (d.getSource() == null ? "" : d.getSource().getName() + ": ") + d.getMessage(null))
+                    .collect(Collectors.joining("\n"));
+            throw new RuntimeException("Batch compilation failed for " + chunk.size() + " classes:\n" + errors);
         }
-
-        return loadClass(className);
     }
 
-    private static Class<?> loadClass(String className) throws ClassNotFoundException {
-        return new ClassLoader() {
-            @Override
-            protected Class<?> findClass(String name) {
-                byte[] bytes = compiledClasses.get(name);
-                if (bytes == null) throw new RuntimeException("Class not found: " + name);
-                return defineClass(name, bytes, 0, bytes.length);
-            }
-        }.loadClass(className);
+    // javac only sees java.class.path by default, which misses the library when it is loaded
+    // by a launcher or container class loader
+    private static List<String> compilerOptions() {
+        Set<String> classPath = new LinkedHashSet<>(Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)));
+        try {
+            classPath.add(Paths.get(CompiledRule.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+        } catch (Exception ignored) {
+            // No code source (e.g. bootstrap or custom loader); rely on java.class.path
+        }
+        return List.of("-classpath", String.join(File.pathSeparator, classPath));
     }
 
     private static class JavaSourceFromString extends SimpleJavaFileObject {
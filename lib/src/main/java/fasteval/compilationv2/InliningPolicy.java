@@ -0,0 +1,30 @@
+package fasteval.compilationv2;
+
+import lombok.Getter;
+
+// Decides when RuleSetJavaGenerator copies a referenced rule into its caller instead of calling it.
+// Size is the referenced rule's node count after its own inlining; fan-in is the number of
+// places in the rule set that reference it.
+@Getter
+public class InliningPolicy {
+    public static final InliningPolicy DEFAULT = new InliningPolicy(16, 8, 500);
+    public static final InliningPolicy NONE = new InliningPolicy(0, 0, 500);
+
+    private final int maxInlineSize;
+    private final int maxFanIn;
+    // Rule methods per generated class; keeps classes well below the constant pool limit
+    private final int rulesPerClass;
+
+    public InliningPolicy(int maxInlineSize, int maxFanIn, int rulesPerClass) {
+        if (rulesPerClass < 1) {
+            throw new IllegalArgumentException("rulesPerClass must be positive: " + rulesPerClass);
+        }
+        this.maxInlineSize = maxInlineSize;
+        this.maxFanIn = maxFanIn;
+        this.rulesPerClass = rulesPerClass;
+    }
+
+    public boolean shouldInline(int size, int fanIn) {
+        return size <= maxInlineSize && fanIn <= maxFanIn;
+    }
+}
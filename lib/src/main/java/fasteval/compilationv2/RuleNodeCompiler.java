@@ -10,6 +10,8 @@ import java.util.stream.Collectors;
 
 public class RuleNodeCompiler {
 
+    private final ClassSpace classSpace = new ClassSpace();
+
     public CompiledRule compile(String ruleName, RuleNode node, Map<String, CompiledRule> compiledRuleMap) {
         try {
             String className = "Rule_" + ruleName;
@@ -20,7 +22,7 @@ public class RuleNodeCompiler {
             String javaCode = generator.generate();
 
             // 2. Compile the source code and load the class
-            Class<?> compiledClass = InMemoryJavaCompiler.compile(fullClassName, javaCode);
+            Class<?> compiledClass = InMemoryJavaCompiler.compile(fullClassName, javaCode, classSpace);
 
             // 3. Find all referenced rules
             Set<String> references = RuleNodeReferenceFinder.findReferencedRuleNames(node);
@@ -1,6 +1,7 @@
 package fasteval.compilationv2;
 
 import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.compilation.SharedSubexpressions;
 import fasteval.context.EvalContext;
 import fasteval.model.CompiledRule;
 import fasteval.model.RuleNode;
@@ -12,14 +13,24 @@ import java.util.stream.Collectors;
 
 public class RuleNodeJavaGenerator {
 
+    // Part of every ClassCache key; bump whenever the generated code changes
+    public static final int VERSION = 1;
+
     private final String className;
     private final RuleNode node;
     private final Set<String> referencedRules;
+    private final Map<String, Integer> ruleIds;
 
     public RuleNodeJavaGenerator(String className, RuleNode node) {
+        this(className, node, null);
+    }
+
+    // With rule ids the class also gets a memoizing evaluate(ctx, memo)
+    public RuleNodeJavaGenerator(String className, RuleNode node, Map<String, Integer> ruleIds) {
         this.className = className;
         this.node = node;
         this.referencedRules = RuleNodeReferenceFinder.findReferencedRuleNames(node);
+        this.ruleIds = ruleIds;
     }
 
     public String generate() {
@@ -28,6 +39,7 @@ public class RuleNodeJavaGenerator {
         sb.append("package fasteval.compiled;\n\n")
                 .append("import fasteval.model.*;\n")
                 .append("import fasteval.context.EvalContext;\n")
+                .append("import fasteval.eval.RuleMemo;\n")
                 .append("public class ").append(className).append(" implements CompiledRule {\n");
 
         // Inject referenced fields
@@ -48,29 +60,61 @@ public class RuleNodeJavaGenerator {
 
         // evaluate method
         sb.append("  @Override public boolean evaluate(EvalContext ctx) {\n");
-        sb.append("    return ").append(generateExpression(node)).append(";\n");
+        sb.append("    return ").append(generateExpression(node, false)).append(";\n");
         sb.append("  }\n");
 
+        // memoizing evaluate method, only useful when the rule references others or shares
+        // sub-expressions with them
+        if (ruleIds != null && (!referencedRules.isEmpty() || SharedSubexpressions.containsShared(node))) {
+            sb.append("\n  @Override public boolean evaluate(EvalContext ctx, RuleMemo memo) {\n");
+            sb.append("    return ").append(generateExpression(node, true)).append(";\n");
+            sb.append("  }\n");
+        }
+
         sb.append("}\n");
         return sb.toString();
     }
 
-    private String generateExpression(RuleNode node) {
+    private String generateExpression(RuleNode node, boolean memo) {
+        String expression = generateNode(node, memo);
+        return memo ? memoizeShared(node, expression) : expression;
+    }
+
+    // memo.isComputed(id) ? memo.result(id) : memo.store(id, expression) for shared sub-expressions
+    static String memoizeShared(RuleNode node, String expression) {
+        int sharedId = node.getSharedId();
+        if (sharedId < 0) return expression;
+        return "(memo.isComputed(" + sharedId + ") ? memo.result(" + sharedId + ") : memo.store(" + sharedId + ", " + expression + "))";
+    }
+
+    private String generateNode(RuleNode node, boolean memo) {
         return switch (node.getType()) {
-            case AND -> "(" + generateExpression(node.getLeft()) + " && " + generateExpression(node.getRight()) + ")";
-            case OR -> "(" + generateExpression(node.getLeft()) + " || " + generateExpression(node.getRight()) + ")";
-            case XOR -> "(" + generateExpression(node.getLeft()) + " ^ " + generateExpression(node.getRight()) + ")";
-            case NOT -> "(!" + generateExpression(node.getLeft()) + ")";
-            case RULE_REFERENCE -> "ref_" + node.getReferencedRule().getName() + ".evaluate(ctx)";
+            case AND -> "(" + generateExpression(node.getLeft(), memo) + " && " + generateExpression(node.getRight(), memo) + ")";
+            case OR -> "(" + generateExpression(node.getLeft(), memo) + " || " + generateExpression(node.getRight(), memo) + ")";
+            case XOR -> "(" + generateExpression(node.getLeft(), memo) + " ^ " + generateExpression(node.getRight(), memo) + ")";
+            case NOT -> "(!" + generateExpression(node.getLeft(), memo) + ")";
+            case RULE_REFERENCE -> generateReference(node.getReferencedRule().getName(), memo);
             case COMPARISON -> generateComparison(node);
         };
     }
 
-    private String generateComparison(RuleNode node) {
+    private String generateReference(String ruleName, boolean memo) {
+        Integer ruleId = memo ? ruleIds.get(ruleName) : null;
+        return ruleId == null
+                ? "ref_" + ruleName + ".evaluate(ctx)"
+                : "memo.evaluate(" + ruleId + ", ref_" + ruleName + ", ctx)";
+    }
+
+    static String generateComparison(RuleNode node) {
         String token = node.getTokenName();
         String value = node.getValue();
         String op = node.getOperator();
 
+        // Parsed nodes know their declared type and read the context by slot
+        if (node.getTokenType() != null) {
+            return generateTypedComparison(node.getTokenType(), token, node.getTokenSlot(), op, value);
+        }
+
         if (value.equals("true") || value.equals("false")) {
             return "ctx.getBoolean(\"" + token + "\") " + op + " " + Boolean.parseBoolean(value);
         }
@@ -88,4 +132,19 @@ public class RuleNodeJavaGenerator {
         String escaped = value.replace("\"", "\\\"");
         String expr = "ctx.getString(\"" + token + "\").equals(\"" + escaped + "\")";
         return op.equals("!=") ? "(" + expr + " == false)" : expr;    }
+
+    private static String generateTypedComparison(String type, String token, int slot, String op, String value) {
+        String read = "(" + slot + ", \"" + token + "\")";
+        return switch (type) {
+            case "double" -> "ctx.getDouble" + read + " " + op + " " + Double.parseDouble(value.replace(',', '.'));
+            case "int" -> "ctx.getInt" + read + " " + op + " " + Integer.parseInt(value);
+            case "boolean" -> "ctx.getBoolean" + read + " " + op + " " + Boolean.parseBoolean(value);
+            case "string" -> {
+                String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"");
+                String expr = "\"" + escaped + "\".equals(ctx.getString" + read + ")";
+                yield op.equals("!=") ? "(!" + expr + ")" : expr;
+            }
+            default -> throw new IllegalArgumentException("Unsupported token type: " + type);
+        };
+    }
 }
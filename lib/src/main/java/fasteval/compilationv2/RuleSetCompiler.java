@@ -0,0 +1,66 @@
+package fasteval.compilationv2;
+
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Compiles a whole rule set through RuleSetJavaGenerator: all classes go through one javac
+// task (they call each other's static methods) and every rule gets a CompiledRule instance
+// bound to its id in the class that holds it.
+public class RuleSetCompiler {
+
+    private final InliningPolicy policy;
+    // The classes name each other, so they share a loader instead of being hidden
+    private final ClassSpace classSpace = new ClassSpace();
+
+    public RuleSetCompiler(InliningPolicy policy) {
+        this.policy = policy;
+    }
+
+    public ClassSpace getClassSpace() {
+        return classSpace;
+    }
+
+    // ruleOrder decides which rules share a class; rules of one group are best kept adjacent
+    public Map<String, CompiledRule> compile(Map<String, RuleNode> ruleNodeMap, List<String> ruleOrder,
+                                             Map<String, Integer> ruleIds) {
+        try {
+            RuleSetJavaGenerator generator = new RuleSetJavaGenerator("RuleSet_", ruleNodeMap, ruleOrder, policy, ruleIds);
+            Map<String, Class<?>> classes = InMemoryJavaCompiler.compileLinked(generator.generate(), classSpace);
+
+            Map<String, CompiledRule> compiledRuleMap = new HashMap<>();
+            for (String ruleName : ruleOrder) {
+                Class<?> compiledClass = classes.get(generator.classNameOf(ruleName));
+                CompiledRule rule = (CompiledRule) compiledClass.getConstructor(int.class).newInstance(generator.idOf(ruleName));
+                compiledRuleMap.put(ruleName, rule);
+            }
+            return compiledRuleMap;
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compile rule set", e);
+        }
+    }
+
+    // Places the members of each group, preceded by the rules they depend on, next to each other
+    public static List<String> groupClusteredOrder(List<String> dependencyOrder, Map<String, List<String>> groups,
+                                                   Map<String, Set<String>> dependencies) {
+        Set<String> placed = new LinkedHashSet<>();
+        for (List<String> members : groups.values()) {
+            for (String member : members) {
+                place(member, dependencies, placed);
+            }
+        }
+        placed.addAll(dependencyOrder);
+        return new ArrayList<>(placed);
+    }
+
+    private static void place(String ruleName, Map<String, Set<String>> dependencies, Set<String> placed) {
+        Set<String> deps = dependencies.get(ruleName);
+        if (deps == null || placed.contains(ruleName)) return;
+        for (String dep : deps) {
+            place(dep, dependencies, placed);
+        }
+        placed.add(ruleName);
+    }
+}
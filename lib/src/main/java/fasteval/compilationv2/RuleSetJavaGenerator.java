@@ -0,0 +1,217 @@
+package fasteval.compilationv2;
+
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Generates a whole rule set as a few classes instead of one class per rule. Every rule becomes a
+// static method r_<name>(ctx) and references turn into static calls, or into a copy of the
+// referenced expression when the InliningPolicy allows it, so HotSpot can compile a decision as
+// one unit. Each class also implements CompiledRule, dispatching on a rule id given at construction.
+public class RuleSetJavaGenerator {
+
+    private static final String PACKAGE = "fasteval.compiled";
+
+    private final String classPrefix;
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final List<String> ruleOrder;
+    private final InliningPolicy policy;
+    private final Map<String, Integer> ruleIds;
+
+    private final Map<String, Integer> fanIn = new HashMap<>();
+    private final Map<String, Boolean> hasCalls = new HashMap<>();
+    private final Map<String, Integer> expandedSize = new HashMap<>();
+    private final Map<String, String> ownerClass = new HashMap<>();
+    private final Map<String, Integer> classIndex = new HashMap<>();
+
+    public RuleSetJavaGenerator(String classPrefix,
+                                Map<String, RuleNode> ruleNodeMap,
+                                List<String> ruleOrder,
+                                InliningPolicy policy) {
+        this(classPrefix, ruleNodeMap, ruleOrder, policy, null);
+    }
+
+    // With rule ids, rules that call others also get m_<name>(ctx, memo) variants behind
+    // evaluate(ctx, memo), so a group evaluation computes each called rule once
+    public RuleSetJavaGenerator(String classPrefix,
+                                Map<String, RuleNode> ruleNodeMap,
+                                List<String> ruleOrder,
+                                InliningPolicy policy,
+                                Map<String, Integer> ruleIds) {
+        this.classPrefix = classPrefix;
+        this.ruleNodeMap = ruleNodeMap;
+        this.ruleOrder = ruleOrder;
+        this.policy = policy;
+        this.ruleIds = ruleIds;
+    }
+
+    // Returns fully qualified class name -> source
+    public Map<String, String> generate() {
+        for (RuleNode node : ruleNodeMap.values()) {
+            countReferences(node);
+        }
+
+        // Assign rules to classes in the given order; rules placed together share a class
+        List<List<String>> units = new ArrayList<>();
+        for (int i = 0; i < ruleOrder.size(); i += policy.getRulesPerClass()) {
+            List<String> unit = ruleOrder.subList(i, Math.min(ruleOrder.size(), i + policy.getRulesPerClass()));
+            String className = classPrefix + units.size();
+            for (int id = 0; id < unit.size(); id++) {
+                ownerClass.put(unit.get(id), className);
+                classIndex.put(unit.get(id), id);
+            }
+            units.add(unit);
+        }
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < units.size(); i++) {
+            String className = classPrefix + i;
+            sources.put(PACKAGE + "." + className, generateClass(className, units.get(i)));
+        }
+        return sources;
+    }
+
+    public String classNameOf(String ruleName) {
+        return PACKAGE + "." + ownerClass.get(ruleName);
+    }
+
+    public int idOf(String ruleName) {
+        return classIndex.get(ruleName);
+    }
+
+    public boolean isInlined(String ruleName) {
+        return policy.shouldInline(expandedSize(ruleName), fanIn.getOrDefault(ruleName, 0));
+    }
+
+    private String generateClass(String className, List<String> rules) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("package ").append(PACKAGE).append(";\n\n")
+                .append("import fasteval.model.*;\n")
+                .append("import fasteval.context.EvalContext;\n")
+                .append("import fasteval.eval.RuleMemo;\n")
+                .append("public final class ").append(className).append(" implements CompiledRule {\n");
+
+        sb.append("  private final int id;\n");
+        sb.append("  public ").append(className).append("(int id) {\n");
+        sb.append("    this.id = id;\n");
+        sb.append("  }\n\n");
+
+        // evaluate dispatches to the static method of this instance's rule
+        sb.append("  @Override public boolean evaluate(EvalContext ctx) {\n");
+        sb.append("    switch (id) {\n");
+        for (int id = 0; id < rules.size(); id++) {
+            sb.append("      case ").append(id).append(": return r_").append(rules.get(id)).append("(ctx);\n");
+        }
+        sb.append("      default: throw new IllegalStateException(\"Unknown rule id: \" + id);\n");
+        sb.append("    }\n");
+        sb.append("  }\n");
+
+        boolean memoized = ruleIds != null && rules.stream().anyMatch(this::hasCalls);
+        if (memoized) {
+            sb.append("\n  @Override public boolean evaluate(EvalContext ctx, RuleMemo memo) {\n");
+            sb.append("    switch (id) {\n");
+            for (int id = 0; id < rules.size(); id++) {
+                String rule = rules.get(id);
+                sb.append("      case ").append(id).append(": return ")
+                        .append(hasCalls(rule) ? "m_" + rule + "(ctx, memo)" : "r_" + rule + "(ctx)").append(";\n");
+            }
+            sb.append("      default: throw new IllegalStateException(\"Unknown rule id: \" + id);\n");
+            sb.append("    }\n");
+            sb.append("  }\n");
+        }
+
+        // Package-private rather than private: rules in other classes of the set call them directly
+        for (String rule : rules) {
+            sb.append("\n  static boolean r_").append(rule).append("(EvalContext ctx) {\n");
+            sb.append("    return ").append(generateExpression(ruleNodeMap.get(rule), className, false)).append(";\n");
+            sb.append("  }\n");
+            if (ruleIds != null && hasCalls(rule)) {
+                sb.append("\n  static boolean m_").append(rule).append("(EvalContext ctx, RuleMemo memo) {\n");
+                sb.append("    return ").append(generateExpression(ruleNodeMap.get(rule), className, true)).append(";\n");
+                sb.append("  }\n");
+            }
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private String generateExpression(RuleNode node, String className, boolean memo) {
+        String expression = generateNode(node, className, memo);
+        return memo ? RuleNodeJavaGenerator.memoizeShared(node, expression) : expression;
+    }
+
+    private String generateNode(RuleNode node, String className, boolean memo) {
+        return switch (node.getType()) {
+            case AND -> "(" + generateExpression(node.getLeft(), className, memo) + " && " + generateExpression(node.getRight(), className, memo) + ")";
+            case OR -> "(" + generateExpression(node.getLeft(), className, memo) + " || " + generateExpression(node.getRight(), className, memo) + ")";
+            case XOR -> "(" + generateExpression(node.getLeft(), className, memo) + " ^ " + generateExpression(node.getRight(), className, memo) + ")";
+            case NOT -> "(!" + generateExpression(node.getLeft(), className, memo) + ")";
+            case RULE_REFERENCE -> generateReference(node.getReferencedRule().getName(), className, memo);
+            case COMPARISON -> RuleNodeJavaGenerator.generateComparison(node);
+        };
+    }
+
+    private String generateReference(String ruleName, String className, boolean memo) {
+        if (isInlined(ruleName)) {
+            return "(" + generateExpression(ruleNodeMap.get(ruleName), className, memo) + ")";
+        }
+        String owner = ownerClass.get(ruleName);
+        String prefix = owner.equals(className) ? "" : owner + ".";
+        if (!memo) {
+            return prefix + "r_" + ruleName + "(ctx)";
+        }
+        int ruleId = ruleIds.get(ruleName);
+        String call = hasCalls(ruleName) ? prefix + "m_" + ruleName + "(ctx, memo)" : prefix + "r_" + ruleName + "(ctx)";
+        return "(memo.isComputed(" + ruleId + ") ? memo.result(" + ruleId + ") : memo.store(" + ruleId + ", " + call + "))";
+    }
+
+    // Whether a rule still calls another rule once inlining is applied, or contains a shared
+    // sub-expression; either way it gets a memoizing variant
+    private boolean hasCalls(String ruleName) {
+        Boolean cached = hasCalls.get(ruleName);
+        if (cached != null) return cached;
+        boolean calls = hasCalls(ruleNodeMap.get(ruleName));
+        hasCalls.put(ruleName, calls);
+        return calls;
+    }
+
+    private boolean hasCalls(RuleNode node) {
+        if (node == null) return false;
+        if (node.getSharedId() >= 0) return true;
+        if (node.getType() == RuleNode.Type.RULE_REFERENCE) {
+            String ref = node.getReferencedRule().getName();
+            return !isInlined(ref) || hasCalls(ref);
+        }
+        return hasCalls(node.getLeft()) || hasCalls(node.getRight());
+    }
+
+    private void countReferences(RuleNode node) {
+        if (node == null) return;
+        if (node.getType() == RuleNode.Type.RULE_REFERENCE) {
+            fanIn.merge(node.getReferencedRule().getName(), 1, Integer::sum);
+        }
+        countReferences(node.getLeft());
+        countReferences(node.getRight());
+    }
+
+    // Node count of a rule once the references it inlines are expanded
+    private int expandedSize(String ruleName) {
+        Integer cached = expandedSize.get(ruleName);
+        if (cached != null) return cached;
+        int size = expandedSize(ruleNodeMap.get(ruleName));
+        expandedSize.put(ruleName, size);
+        return size;
+    }
+
+    private int expandedSize(RuleNode node) {
+        if (node == null) return 0;
+        if (node.getType() == RuleNode.Type.RULE_REFERENCE) {
+            String ref = node.getReferencedRule().getName();
+            int size = expandedSize(ref);
+            return policy.shouldInline(size, fanIn.getOrDefault(ref, 0)) ? size : 1;
+        }
+        return 1 + expandedSize(node.getLeft()) + expandedSize(node.getRight());
+    }
+}
@@ -0,0 +1,9 @@
+package fasteval.compiled;
+
+// Generated rule and group classes are named into this package, and a hidden class can only be
+// defined through a lookup on its own package; ClassSpace takes a private lookup on this class
+public final class HiddenClasses {
+
+    private HiddenClasses() {
+    }
+}
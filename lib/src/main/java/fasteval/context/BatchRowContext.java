@@ -0,0 +1,94 @@
+package fasteval.context;
+
+import lombok.Getter;
+
+// Read-only EvalContext over one row of a ColumnarBatch. Moving to another row is a field
+// write, so a single instance serves a whole loop over the batch.
+public final class BatchRowContext implements EvalContext {
+
+    private final ColumnarBatch batch;
+    @Getter
+    private int row;
+
+    BatchRowContext(ColumnarBatch batch) {
+        this.batch = batch;
+    }
+
+    public BatchRowContext row(int row) {
+        this.row = row;
+        return this;
+    }
+
+    @Override
+    public double getDouble(int slot, String tokenName) {
+        return slot >= 0 ? batch.getDouble(slot, row) : getDouble(tokenName);
+    }
+
+    @Override
+    public int getInt(int slot, String tokenName) {
+        return slot >= 0 ? batch.getInt(slot, row) : getInt(tokenName);
+    }
+
+    @Override
+    public boolean getBoolean(int slot, String tokenName) {
+        return slot >= 0 ? batch.getBoolean(slot, row) : getBoolean(tokenName);
+    }
+
+    @Override
+    public String getString(int slot, String tokenName) {
+        return slot >= 0 ? batch.getString(slot, row) : getString(tokenName);
+    }
+
+    @Override
+    public double getDouble(String tokenName) {
+        return batch.getDouble(slotOf(tokenName, "double", "a double"), row);
+    }
+
+    @Override
+    public int getInt(String tokenName) {
+        return batch.getInt(slotOf(tokenName, "int", "an int"), row);
+    }
+
+    @Override
+    public boolean getBoolean(String tokenName) {
+        return batch.getBoolean(slotOf(tokenName, "boolean", "a boolean"), row);
+    }
+
+    @Override
+    public String getString(String tokenName) {
+        String val = batch.getString(slotOf(tokenName, "string", "a string"), row);
+        if (val == null) {
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not a string");
+        }
+        return val;
+    }
+
+    @Override
+    public EvalContext withDouble(String tokenName, double value) {
+        throw new UnsupportedOperationException("Batch rows are read-only; set values on the ColumnarBatch");
+    }
+
+    @Override
+    public EvalContext withInt(String tokenName, int value) {
+        throw new UnsupportedOperationException("Batch rows are read-only; set values on the ColumnarBatch");
+    }
+
+    @Override
+    public EvalContext withBoolean(String tokenName, boolean value) {
+        throw new UnsupportedOperationException("Batch rows are read-only; set values on the ColumnarBatch");
+    }
+
+    @Override
+    public EvalContext withString(String tokenName, String value) {
+        throw new UnsupportedOperationException("Batch rows are read-only; set values on the ColumnarBatch");
+    }
+
+    private int slotOf(String tokenName, String type, String description) {
+        TokenSlotLayout layout = batch.getLayout();
+        int slot = layout.slotOf(tokenName);
+        if (slot < 0 || !type.equals(layout.typeOf(tokenName))) {
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not " + description);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,134 @@
+package fasteval.context;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Many evaluation contexts stored column by column: one primitive column per token slot.
+// Booleans are bitsets, strings are dictionary codes per column (-1 for null). Columns can be
+// filled through the setters or written directly through the column accessors.
+public class ColumnarBatch {
+
+    @Getter
+    private final TokenSlotLayout layout;
+    @Getter
+    private final int rowCount;
+    private final double[][] doubles;
+    private final int[][] ints;
+    private final long[][] booleans;
+    private final int[][] stringCodes;
+    private final List<List<String>> dictionaries = new ArrayList<>();
+    private final List<Map<String, Integer>> dictionaryIndexes = new ArrayList<>();
+
+    public ColumnarBatch(TokenSlotLayout layout, int rowCount) {
+        this.layout = layout;
+        this.rowCount = rowCount;
+        this.doubles = new double[layout.getDoubleCount()][rowCount];
+        this.ints = new int[layout.getIntCount()][rowCount];
+        this.booleans = new long[layout.getBooleanCount()][(rowCount + 63) >>> 6];
+        this.stringCodes = new int[layout.getStringCount()][rowCount];
+        for (int slot = 0; slot < stringCodes.length; slot++) {
+            Arrays.fill(stringCodes[slot], -1);
+            dictionaries.add(new ArrayList<>());
+            dictionaryIndexes.add(new HashMap<>());
+        }
+    }
+
+    // Column access by slot; the arrays are the batch's storage
+    public double[] doubleColumn(int slot) {
+        return doubles[slot];
+    }
+
+    public int[] intColumn(int slot) {
+        return ints[slot];
+    }
+
+    public long[] booleanColumn(int slot) {
+        return booleans[slot];
+    }
+
+    public int[] stringCodeColumn(int slot) {
+        return stringCodes[slot];
+    }
+
+    public ColumnarBatch setDouble(int slot, int row, double value) {
+        doubles[slot][row] = value;
+        return this;
+    }
+
+    public ColumnarBatch setInt(int slot, int row, int value) {
+        ints[slot][row] = value;
+        return this;
+    }
+
+    public ColumnarBatch setBoolean(int slot, int row, boolean value) {
+        if (value) {
+            booleans[slot][row >>> 6] |= 1L << row;
+        } else {
+            booleans[slot][row >>> 6] &= ~(1L << row);
+        }
+        return this;
+    }
+
+    public ColumnarBatch setString(int slot, int row, String value) {
+        stringCodes[slot][row] = value == null ? -1 : encode(slot, value);
+        return this;
+    }
+
+    public double getDouble(int slot, int row) {
+        return doubles[slot][row];
+    }
+
+    public int getInt(int slot, int row) {
+        return ints[slot][row];
+    }
+
+    public boolean getBoolean(int slot, int row) {
+        return (booleans[slot][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public String getString(int slot, int row) {
+        int code = stringCodes[slot][row];
+        return code < 0 ? null : dictionaries.get(slot).get(code);
+    }
+
+    // Dictionary code of a value in a string column, adding it if new
+    public int encode(int slot, String value) {
+        Map<String, Integer> index = dictionaryIndexes.get(slot);
+        Integer code = index.get(value);
+        if (code == null) {
+            code = index.size();
+            index.put(value, code);
+            dictionaries.get(slot).add(value);
+        }
+        return code;
+    }
+
+    // Dictionary code of a value, or -1 if no row holds it
+    public int codeOf(int slot, String value) {
+        Integer code = dictionaryIndexes.get(slot).get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int slot, int code) {
+        return dictionaries.get(slot).get(code);
+    }
+
+    // Slot of a token of the given type, for callers filling columns by name
+    public int slotOf(String tokenName, String type) {
+        int slot = layout.slotOf(tokenName);
+        if (slot < 0 || !type.equals(layout.typeOf(tokenName))) {
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not of type " + type);
+        }
+        return slot;
+    }
+
+    // A cursor presenting one row at a time as an EvalContext; not thread-safe, create one per thread
+    public BatchRowContext rowContext() {
+        return new BatchRowContext(this);
+    }
+}
@@ -1,8 +1,11 @@
 package fasteval.context;
 
+import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.model.CompiledGroup;
 import fasteval.model.CompiledRule;
 import fasteval.model.RuleRepresentation;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,16 +13,54 @@ import java.util.Map;
 public class CompiledRuleContext implements RuleContextInterface {
     private final Map<String, CompiledRule> compiledRules;
     private final Map<String, List<String>> ruleGroups;
+    private final TokenSlotLayout tokenSlotLayout;
+    private final Map<String, Integer> ruleIds;
+    private final RuleTable ruleTable;
 
     public CompiledRuleContext(Map<String, CompiledRule> compiledRules,
                                Map<String, List<String>> ruleGroups) {
+        this(compiledRules, ruleGroups, new TokenSlotLayout(List.of()));
+    }
+
+    public CompiledRuleContext(Map<String, CompiledRule> compiledRules,
+                               Map<String, List<String>> ruleGroups,
+                               TokenSlotLayout tokenSlotLayout) {
+        this(compiledRules, ruleGroups, tokenSlotLayout, RuleNodeReferenceFinder.assignRuleIds(new ArrayList<>(compiledRules.keySet())));
+    }
+
+    // ruleIds must be the ids the rules were compiled with
+    public CompiledRuleContext(Map<String, CompiledRule> compiledRules,
+                               Map<String, List<String>> ruleGroups,
+                               TokenSlotLayout tokenSlotLayout,
+                               Map<String, Integer> ruleIds) {
+        this(compiledRules, ruleGroups, tokenSlotLayout, ruleIds, Map.of());
+    }
+
+    public CompiledRuleContext(Map<String, CompiledRule> compiledRules,
+                               Map<String, List<String>> ruleGroups,
+                               TokenSlotLayout tokenSlotLayout,
+                               Map<String, Integer> ruleIds,
+                               Map<String, CompiledGroup> compiledGroups) {
+        this(compiledRules, ruleGroups, tokenSlotLayout, ruleIds, compiledGroups, 0);
+    }
+
+    // memoSize: rule ids plus the shared sub-expression ids the rules were compiled with
+    public CompiledRuleContext(Map<String, CompiledRule> compiledRules,
+                               Map<String, List<String>> ruleGroups,
+                               TokenSlotLayout tokenSlotLayout,
+                               Map<String, Integer> ruleIds,
+                               Map<String, CompiledGroup> compiledGroups,
+                               int memoSize) {
         this.compiledRules = compiledRules;
         this.ruleGroups = ruleGroups;
+        this.tokenSlotLayout = tokenSlotLayout;
+        this.ruleIds = ruleIds;
+        this.ruleTable = new RuleTable(compiledRules, ruleGroups, ruleIds, compiledGroups, memoSize);
     }
 
     @Override
     public Map<String, RuleRepresentation> getRules() {
-        return new HashMap<>(compiledRules); // CompiledRule extends RuleRepresentation
+        return ruleTable.asMap(); // CompiledRule extends RuleRepresentation
     }
 
     @Override
@@ -32,4 +73,19 @@ public class CompiledRuleContext implements RuleContextInterface {
         // Return an empty map as compiled rules don't need token types
         return new HashMap<>();
     }
+
+    @Override
+    public TokenSlotLayout getTokenSlotLayout() {
+        return tokenSlotLayout;
+    }
+
+    @Override
+    public Map<String, Integer> getRuleIds() {
+        return ruleIds;
+    }
+
+    @Override
+    public RuleTable getRuleTable() {
+        return ruleTable;
+    }
 }
@@ -17,4 +17,22 @@ public interface EvalContext {
     EvalContext withBoolean(String tokenName, boolean value);
 
     EvalContext withString(String tokenName, String value);
-}
\ No newline at end of file
+
+    // Slot-aware reads used by the evaluators. The slot comes from the TokenSlotLayout the
+    // rules were loaded with; contexts without slot storage fall back to the name lookup.
+    default double getDouble(int slot, String tokenName) {
+        return getDouble(tokenName);
+    }
+
+    default int getInt(int slot, String tokenName) {
+        return getInt(tokenName);
+    }
+
+    default boolean getBoolean(int slot, String tokenName) {
+        return getBoolean(tokenName);
+    }
+
+    default String getString(int slot, String tokenName) {
+        return getString(tokenName);
+    }
+}
@@ -1,5 +1,7 @@
 package fasteval.context;
 
+import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.compilation.SharedSubexpressions;
 import fasteval.definitions.TokenDefinition;
 import fasteval.model.InterpretedRule;
 import fasteval.model.RuleNode;
@@ -15,23 +17,45 @@ public class ObjectRuleContext implements RuleContextInterface {
     private final Map<String, RuleNode> ruleNodeMap;
     private final Map<String, List<String>> ruleGroups;
     private final Map<String, String> tokenTypeMap;
+    private final TokenSlotLayout tokenSlotLayout;
+    private final Map<String, Integer> ruleIds;
+    private final RuleTable ruleTable;
 
     public ObjectRuleContext(Map<String, RuleNode> ruleNodeMap,
                              Map<String, List<String>> ruleGroups,
                              List<TokenDefinition> tokens) {
+        this(ruleNodeMap, ruleGroups, tokens, new TokenSlotLayout(tokens));
+    }
+
+    public ObjectRuleContext(Map<String, RuleNode> ruleNodeMap,
+                             Map<String, List<String>> ruleGroups,
+                             List<TokenDefinition> tokens,
+                             TokenSlotLayout tokenSlotLayout) {
+        this(ruleNodeMap, ruleGroups, tokens, tokenSlotLayout,
+                RuleNodeReferenceFinder.assignRuleIds(RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap)));
+    }
+
+    public ObjectRuleContext(Map<String, RuleNode> ruleNodeMap,
+                             Map<String, List<String>> ruleGroups,
+                             List<TokenDefinition> tokens,
+                             TokenSlotLayout tokenSlotLayout,
+                             Map<String, Integer> ruleIds) {
         this.ruleNodeMap = ruleNodeMap;
         this.ruleGroups = ruleGroups;
         this.tokenTypeMap = tokens.stream()
                 .collect(Collectors.toMap(TokenDefinition::getName, TokenDefinition::getType));
+        this.tokenSlotLayout = tokenSlotLayout;
+        this.ruleIds = ruleIds;
+        this.ruleTable = new RuleTable(ruleNodeMap.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        e -> new InterpretedRule(e.getValue(), ruleNodeMap, tokenTypeMap, ruleIds)
+                )), ruleGroups, ruleIds, Map.of(), SharedSubexpressions.nextFreeId(ruleNodeMap.values(), 0));
     }
 
     @Override
     public Map<String, RuleRepresentation> getRules() {
-        return ruleNodeMap.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> new InterpretedRule(e.getValue(), ruleNodeMap, tokenTypeMap)
-                ));
+        return ruleTable.asMap();
     }
 
     @Override
@@ -45,4 +69,19 @@ public class ObjectRuleContext implements RuleContextInterface {
         return tokenTypeMap;
     }
 
+    @Override
+    public TokenSlotLayout getTokenSlotLayout() {
+        return tokenSlotLayout;
+    }
+
+    @Override
+    public Map<String, Integer> getRuleIds() {
+        return ruleIds;
+    }
+
+    @Override
+    public RuleTable getRuleTable() {
+        return ruleTable;
+    }
+
 }
@@ -6,9 +6,19 @@ import java.util.List;
 import java.util.Map;
 
 public interface RuleContextInterface {
+    // Unmodifiable and built once; prefer getRuleTable() on hot paths
     Map<String, RuleRepresentation> getRules();
     Map<String, List<String>> getRuleGroups();
 
     // Add a method to fetch the token type map
     Map<String, String> getTokenTypeMap();
-}
\ No newline at end of file
+
+    // Slot assignment the rules were bound to; SlotEvalContexts must be created from it
+    TokenSlotLayout getTokenSlotLayout();
+
+    // Ids used by RuleMemo; the builder assigns them in dependency order
+    Map<String, Integer> getRuleIds();
+
+    // Rules and groups resolved to ids once per rule set
+    RuleTable getRuleTable();
+}
@@ -0,0 +1,120 @@
+package fasteval.context;
+
+import fasteval.model.CompiledGroup;
+import fasteval.model.RuleRepresentation;
+
+import java.util.*;
+
+// Immutable view of a loaded rule set, resolved once: rules are stored by rule id, and each group
+// keeps its member ids both in declared order and in evaluation (dependency) order.
+public class RuleTable {
+
+    private final RuleRepresentation[] rules;
+    private final String[] names;
+    private final Map<String, Integer> ruleIds;
+    private final Map<String, int[]> groupMembers = new HashMap<>();
+    private final Map<String, int[]> groupEvaluationOrder = new HashMap<>();
+    private final Map<String, List<String>> ruleGroups;
+    private final Map<String, RuleRepresentation> ruleMap;
+    private final Map<String, CompiledGroup> compiledGroups;
+    private final int memoSize;
+
+    public RuleTable(Map<String, ? extends RuleRepresentation> rules,
+                     Map<String, List<String>> ruleGroups,
+                     Map<String, Integer> ruleIds) {
+        this(rules, ruleGroups, ruleIds, Map.of());
+    }
+
+    // compiledGroups may cover only some groups; the others are evaluated member by member
+    public RuleTable(Map<String, ? extends RuleRepresentation> rules,
+                     Map<String, List<String>> ruleGroups,
+                     Map<String, Integer> ruleIds,
+                     Map<String, CompiledGroup> compiledGroups) {
+        this(rules, ruleGroups, ruleIds, compiledGroups, 0);
+    }
+
+    // memoSize covers the ids of shared sub-expressions, which no rule id overlaps
+    public RuleTable(Map<String, ? extends RuleRepresentation> rules,
+                     Map<String, List<String>> ruleGroups,
+                     Map<String, Integer> ruleIds,
+                     Map<String, CompiledGroup> compiledGroups,
+                     int memoSize) {
+        int size = ruleIds.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        this.rules = new RuleRepresentation[size];
+        this.names = new String[size];
+        this.ruleIds = Map.copyOf(ruleIds);
+        this.memoSize = Math.max(size, memoSize);
+
+        for (Map.Entry<String, ? extends RuleRepresentation> entry : rules.entrySet()) {
+            Integer ruleId = ruleIds.get(entry.getKey());
+            if (ruleId == null) {
+                throw new IllegalArgumentException("No rule id assigned to rule: " + entry.getKey());
+            }
+            this.rules[ruleId] = entry.getValue();
+            this.names[ruleId] = entry.getKey();
+        }
+        this.ruleMap = Collections.unmodifiableMap(new HashMap<>(rules));
+
+        this.ruleGroups = ruleGroups;
+        this.compiledGroups = Map.copyOf(compiledGroups);
+
+        // Unknown members are kept as -1 so evaluating the group reports them like before
+        for (Map.Entry<String, List<String>> group : ruleGroups.entrySet()) {
+            int[] members = group.getValue().stream().mapToInt(this::idOf).toArray();
+            groupMembers.put(group.getKey(), members);
+            groupEvaluationOrder.put(group.getKey(), Arrays.stream(members).sorted().distinct().toArray());
+        }
+    }
+
+    // Number of id slots; ids are dense unless rules were removed from the set
+    public int size() {
+        return rules.length;
+    }
+
+    // Ids a RuleMemo for this table needs room for
+    public int memoSize() {
+        return memoSize;
+    }
+
+    // Returns -1 when the rule does not exist
+    public int idOf(String ruleName) {
+        Integer ruleId = ruleIds.get(ruleName);
+        return ruleId == null || rules[ruleId] == null ? -1 : ruleId;
+    }
+
+    public RuleRepresentation rule(int ruleId) {
+        return rules[ruleId];
+    }
+
+    public String nameOf(int ruleId) {
+        return names[ruleId];
+    }
+
+    public boolean hasGroup(String groupName) {
+        return groupMembers.containsKey(groupName);
+    }
+
+    // Member ids in declared order; callers must not modify the array
+    public int[] groupMembers(String groupName) {
+        return groupMembers.get(groupName);
+    }
+
+    // Distinct member ids sorted by rule id; callers must not modify the array. After a reload ids
+    // are not dependency order, which is fine: RuleMemo computes a referenced rule on demand
+    public int[] groupEvaluationOrder(String groupName) {
+        return groupEvaluationOrder.get(groupName);
+    }
+
+    // Null when the backend generated no class for the group
+    public CompiledGroup compiledGroup(String groupName) {
+        return compiledGroups.get(groupName);
+    }
+
+    public String groupMemberName(String groupName, int index) {
+        return ruleGroups.get(groupName).get(index);
+    }
+
+    public Map<String, RuleRepresentation> asMap() {
+        return ruleMap;
+    }
+}
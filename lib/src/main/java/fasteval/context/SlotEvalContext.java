@@ -0,0 +1,147 @@
+package fasteval.context;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+// EvalContext backed by primitive arrays indexed by token slot. Reading or writing by slot
+// neither hashes nor boxes; the name-based methods resolve the slot through the layout first.
+public class SlotEvalContext implements EvalContext {
+
+    @Getter
+    private final TokenSlotLayout layout;
+    private final double[] doubles;
+    private final int[] ints;
+    private final long[] booleans;
+    private final String[] strings;
+
+    public SlotEvalContext(TokenSlotLayout layout) {
+        this.layout = layout;
+        this.doubles = new double[layout.getDoubleCount()];
+        this.ints = new int[layout.getIntCount()];
+        this.booleans = new long[(layout.getBooleanCount() + 63) >>> 6];
+        this.strings = new String[layout.getStringCount()];
+    }
+
+    // Slot access
+    public double getDoubleAt(int slot) {
+        return doubles[slot];
+    }
+
+    public int getIntAt(int slot) {
+        return ints[slot];
+    }
+
+    public boolean getBooleanAt(int slot) {
+        return (booleans[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public String getStringAt(int slot) {
+        return strings[slot];
+    }
+
+    public SlotEvalContext setDouble(int slot, double value) {
+        doubles[slot] = value;
+        return this;
+    }
+
+    public SlotEvalContext setInt(int slot, int value) {
+        ints[slot] = value;
+        return this;
+    }
+
+    public SlotEvalContext setBoolean(int slot, boolean value) {
+        if (value) {
+            booleans[slot >>> 6] |= 1L << slot;
+        } else {
+            booleans[slot >>> 6] &= ~(1L << slot);
+        }
+        return this;
+    }
+
+    public SlotEvalContext setString(int slot, String value) {
+        strings[slot] = value;
+        return this;
+    }
+
+    // Resets every slot so the context can be refilled for the next evaluation
+    public void clear() {
+        Arrays.fill(doubles, 0.0);
+        Arrays.fill(ints, 0);
+        Arrays.fill(booleans, 0L);
+        Arrays.fill(strings, null);
+    }
+
+    @Override
+    public double getDouble(int slot, String tokenName) {
+        return slot >= 0 ? doubles[slot] : getDouble(tokenName);
+    }
+
+    @Override
+    public int getInt(int slot, String tokenName) {
+        return slot >= 0 ? ints[slot] : getInt(tokenName);
+    }
+
+    @Override
+    public boolean getBoolean(int slot, String tokenName) {
+        return slot >= 0 ? getBooleanAt(slot) : getBoolean(tokenName);
+    }
+
+    @Override
+    public String getString(int slot, String tokenName) {
+        return slot >= 0 ? strings[slot] : getString(tokenName);
+    }
+
+    @Override
+    public double getDouble(String tokenName) {
+        return doubles[slotOf(tokenName, "double", "a double")];
+    }
+
+    @Override
+    public int getInt(String tokenName) {
+        return ints[slotOf(tokenName, "int", "an int")];
+    }
+
+    @Override
+    public boolean getBoolean(String tokenName) {
+        return getBooleanAt(slotOf(tokenName, "boolean", "a boolean"));
+    }
+
+    @Override
+    public String getString(String tokenName) {
+        String val = strings[slotOf(tokenName, "string", "a string")];
+        if (val == null) {
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not a string");
+        }
+        return val;
+    }
+
+    // Fluent setters
+    @Override
+    public SlotEvalContext withDouble(String tokenName, double value) {
+        return setDouble(slotOf(tokenName, "double", "a double"), value);
+    }
+
+    @Override
+    public SlotEvalContext withInt(String tokenName, int value) {
+        return setInt(slotOf(tokenName, "int", "an int"), value);
+    }
+
+    @Override
+    public SlotEvalContext withBoolean(String tokenName, boolean value) {
+        return setBoolean(slotOf(tokenName, "boolean", "a boolean"), value);
+    }
+
+    @Override
+    public SlotEvalContext withString(String tokenName, String value) {
+        return setString(slotOf(tokenName, "string", "a string"), value);
+    }
+
+    private int slotOf(String tokenName, String type, String description) {
+        int slot = layout.slotOf(tokenName);
+        if (slot < 0 || !type.equals(layout.typeOf(tokenName))) {
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not " + description);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,64 @@
+package fasteval.context;
+
+import fasteval.definitions.TokenDefinition;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Assigns every declared token a slot in the primitive array of its type.
+// Built once when the rule file is loaded; rule nodes and SlotEvalContext share it.
+public class TokenSlotLayout {
+    @Getter
+    private final List<TokenDefinition> tokens;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Map<String, String> types = new HashMap<>();
+
+    @Getter
+    private int doubleCount;
+    @Getter
+    private int intCount;
+    @Getter
+    private int booleanCount;
+    @Getter
+    private int stringCount;
+
+    public TokenSlotLayout(List<TokenDefinition> tokens) {
+        this.tokens = Collections.unmodifiableList(tokens);
+        for (TokenDefinition token : tokens) {
+            String type = token.getType().toLowerCase();
+            types.put(token.getName(), type);
+            switch (type) {
+                case "double" -> slots.put(token.getName(), doubleCount++);
+                case "int" -> slots.put(token.getName(), intCount++);
+                case "boolean" -> slots.put(token.getName(), booleanCount++);
+                case "string" -> slots.put(token.getName(), stringCount++);
+                default -> {
+                    // Unsupported types keep no slot and fail when evaluated, as before
+                }
+            }
+        }
+    }
+
+    // Slot within the array of the token's type, or -1 if the token has none
+    public int slotOf(String tokenName) {
+        Integer slot = slots.get(tokenName);
+        return slot == null ? -1 : slot;
+    }
+
+    // Lower-cased declared type, or null for unknown tokens
+    public String typeOf(String tokenName) {
+        return types.get(tokenName);
+    }
+
+    public SlotEvalContext newContext() {
+        return new SlotEvalContext(this);
+    }
+
+    // Two layouts are interchangeable when they resolve every token to the same slot
+    public boolean isCompatibleWith(TokenSlotLayout other) {
+        return this == other || (other != null && slots.equals(other.slots) && types.equals(other.types));
+    }
+}
@@ -0,0 +1,37 @@
+package fasteval.eval;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Splits the rows of a batch into ranges that start on multiples of 64, so every range owns
+// whole words of a result bitmap and ranges can be evaluated on different threads.
+public final class BatchRanges {
+
+    // Below this many rows a batch is evaluated on the calling thread
+    public static final int PARALLEL_THRESHOLD = 16_384;
+    static final int MIN_RANGE = 4_096;
+
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int fromRow, int toRow);
+    }
+
+    private BatchRanges() {
+    }
+
+    public static void forEach(int rowCount, RangeTask task) {
+        if (rowCount < PARALLEL_THRESHOLD) {
+            task.run(0, rowCount);
+            return;
+        }
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int rangeSize = Math.max(MIN_RANGE, (rowCount / (parallelism * 4) + 63) & ~63);
+        int ranges = (rowCount + rangeSize - 1) / rangeSize;
+        IntStream.range(0, ranges).parallel()
+                .forEach(i -> task.run(i * rangeSize, Math.min(rowCount, (i + 1) * rangeSize)));
+    }
+
+    public static long[] newBitmap(int rowCount) {
+        return new long[(rowCount + 63) >>> 6];
+    }
+}
@@ -0,0 +1,119 @@
+package fasteval.eval;
+
+import fasteval.context.EvalContext;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// How often each node of the parsed rules is true and what it costs, sampled by evaluating rules
+// through a profiling interpreter with the same short-circuiting as the backends. Cost is counted
+// in comparisons executed; a referenced rule or shared sub-expression costs its comparisons the
+// first time a sample evaluates it and nothing afterwards, as with a RuleMemo. Nodes are told
+// apart by identity.
+public final class NodeProfile {
+
+    private final Map<String, RuleNode> ruleNodeMap;
+    private final Map<String, String> tokenTypeMap;
+    private final Map<RuleNode, Stats> stats = new IdentityHashMap<>();
+    private long samples;
+
+    public NodeProfile(Map<String, RuleNode> ruleNodeMap, Map<String, String> tokenTypeMap) {
+        this.ruleNodeMap = ruleNodeMap;
+        this.tokenTypeMap = tokenTypeMap;
+    }
+
+    // Evaluates the rules against the context and records every node reached
+    public synchronized void sample(Collection<String> ruleNames, EvalContext context) {
+        Sample sample = new Sample(new RuleNodeEvaluator(context, ruleNodeMap, tokenTypeMap));
+        for (String ruleName : ruleNames) {
+            reference(ruleName, sample);
+        }
+        samples++;
+    }
+
+    public synchronized long samples() {
+        return samples;
+    }
+
+    // Times the node was evaluated; 0 when samples never reached it
+    public synchronized long evaluations(RuleNode node) {
+        Stats s = stats.get(node);
+        return s == null ? 0 : s.evaluations;
+    }
+
+    // Share of evaluations that were true, smoothed so that a few samples do not read as certainty
+    public synchronized double trueRate(RuleNode node) {
+        Stats s = stats.get(node);
+        return s == null ? 0.5 : (s.trues + 1.0) / (s.evaluations + 2.0);
+    }
+
+    // Mean comparisons per evaluation, or -1 when samples never reached the node
+    public synchronized double cost(RuleNode node) {
+        Stats s = stats.get(node);
+        return s == null ? -1 : (double) s.comparisons / s.evaluations;
+    }
+
+    private boolean evaluate(RuleNode node, Sample sample) {
+        int sharedId = node.getSharedId();
+        if (sharedId >= 0) {
+            Boolean known = sample.shared.get(sharedId);
+            if (known != null) {
+                record(node, known, 0);
+                return known;
+            }
+        }
+        long before = sample.comparisons;
+        boolean result = switch (node.getType()) {
+            case COMPARISON -> {
+                sample.comparisons++;
+                yield sample.evaluator.evaluate(node);
+            }
+            case RULE_REFERENCE -> reference(node.getReferencedRule().getName(), sample);
+            case AND -> evaluate(node.getLeft(), sample) && evaluate(node.getRight(), sample);
+            case OR -> evaluate(node.getLeft(), sample) || evaluate(node.getRight(), sample);
+            case XOR -> evaluate(node.getLeft(), sample) ^ evaluate(node.getRight(), sample);
+            case NOT -> !evaluate(node.getLeft(), sample);
+        };
+        if (sharedId >= 0) sample.shared.put(sharedId, result);
+        record(node, result, sample.comparisons - before);
+        return result;
+    }
+
+    private void record(RuleNode node, boolean result, long comparisons) {
+        Stats s = stats.computeIfAbsent(node, n -> new Stats());
+        s.evaluations++;
+        s.comparisons += comparisons;
+        if (result) s.trues++;
+    }
+
+    private boolean reference(String ruleName, Sample sample) {
+        Boolean known = sample.rules.get(ruleName);
+        if (known != null) {
+            return known;
+        }
+        RuleNode root = ruleNodeMap.get(ruleName);
+        if (root == null) {
+            throw new IllegalArgumentException("Rule not found: " + ruleName);
+        }
+        boolean result = evaluate(root, sample);
+        sample.rules.put(ruleName, result);
+        return result;
+    }
+
+    private static final class Stats {
+        long evaluations;
+        long trues;
+        long comparisons;
+    }
+
+    private static final class Sample {
+        final RuleNodeEvaluator evaluator;
+        final Map<String, Boolean> rules = new HashMap<>();
+        final Map<Integer, Boolean> shared = new HashMap<>();
+        long comparisons;
+
+        Sample(RuleNodeEvaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package fasteval.eval;
+
+import fasteval.context.EvalContext;
+import fasteval.model.RuleRepresentation;
+
+import java.util.Arrays;
+
+// Results of the rules already evaluated against one EvalContext, indexed by rule id. Shared
+// sub-expressions are memoized here too, under ids no rule uses.
+// Group evaluation shares one memo across its members so that a rule referenced by
+// many of them is evaluated once.
+public class RuleMemo {
+
+    // Grown on demand for ids past the initial size (shared sub-expressions); steady state
+    // evaluation into a reused memo does not allocate
+    private long[] computed;
+    private long[] results;
+
+    public RuleMemo(int ruleCount) {
+        this.computed = new long[(ruleCount + 63) >>> 6];
+        this.results = new long[(ruleCount + 63) >>> 6];
+    }
+
+    public boolean isComputed(int ruleId) {
+        int word = ruleId >>> 6;
+        return word < computed.length && (computed[word] & (1L << ruleId)) != 0;
+    }
+
+    public boolean result(int ruleId) {
+        return (results[ruleId >>> 6] & (1L << ruleId)) != 0;
+    }
+
+    // Returns the stored value so generated code can memoize inside an expression
+    public boolean store(int ruleId, boolean value) {
+        if (ruleId >>> 6 >= computed.length) {
+            grow(ruleId);
+        }
+        computed[ruleId >>> 6] |= 1L << ruleId;
+        if (value) {
+            results[ruleId >>> 6] |= 1L << ruleId;
+        } else {
+            results[ruleId >>> 6] &= ~(1L << ruleId);
+        }
+        return value;
+    }
+
+    public boolean evaluate(int ruleId, RuleRepresentation rule, EvalContext context) {
+        if (isComputed(ruleId)) {
+            return result(ruleId);
+        }
+        return store(ruleId, rule.evaluate(context, this));
+    }
+
+    private void grow(int ruleId) {
+        int length = Math.max((ruleId >>> 6) + 1, computed.length * 2);
+        computed = Arrays.copyOf(computed, length);
+        results = Arrays.copyOf(results, length);
+    }
+
+    // Forgets one result; the next evaluate() of the id recomputes it. result() keeps the old value
+    public void forget(int ruleId) {
+        int word = ruleId >>> 6;
+        if (word < computed.length) {
+            computed[word] &= ~(1L << ruleId);
+        }
+    }
+
+    // Forgets every result whose bit is clear in keep
+    public void retain(long[] keep) {
+        for (int word = 0; word < computed.length; word++) {
+            computed[word] &= word < keep.length ? keep[word] : 0L;
+        }
+    }
+
+    // Forgets every result so the memo can be reused for another context
+    public void reset() {
+        Arrays.fill(computed, 0L);
+    }
+}
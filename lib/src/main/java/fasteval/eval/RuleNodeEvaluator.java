@@ -11,16 +11,38 @@ public class RuleNodeEvaluator {
     private final EvalContext context;
     private final Map<String, RuleNode> ruleNodeMap;
     private final Map<String, String> tokenTypeMap;
+    private final RuleMemo memo;
+    private final Map<String, Integer> ruleIds;
 
     public RuleNodeEvaluator(EvalContext context,
                              Map<String, RuleNode> ruleNodeMap,
                              Map<String, String> tokenTypeMap) {
+        this(context, ruleNodeMap, tokenTypeMap, null, Map.of());
+    }
+
+    // Referenced rules with an id are read from and recorded in the memo
+    public RuleNodeEvaluator(EvalContext context,
+                             Map<String, RuleNode> ruleNodeMap,
+                             Map<String, String> tokenTypeMap,
+                             RuleMemo memo,
+                             Map<String, Integer> ruleIds) {
         this.context = context;
         this.ruleNodeMap = ruleNodeMap;
         this.tokenTypeMap = tokenTypeMap;
+        this.memo = memo;
+        this.ruleIds = ruleIds;
     }
 
     public boolean evaluate(RuleNode node) {
+        // Sub-expressions shared between rules are computed once per memo
+        int sharedId = node.getSharedId();
+        if (sharedId >= 0 && memo != null) {
+            return memo.isComputed(sharedId) ? memo.result(sharedId) : memo.store(sharedId, evaluateNode(node));
+        }
+        return evaluateNode(node);
+    }
+
+    private boolean evaluateNode(RuleNode node) {
         switch (node.getType()) {
             case COMPARISON:
                 return evalComparison(node);
@@ -30,7 +52,7 @@ public class RuleNodeEvaluator {
                 if (referencedNode == null) {
                     throw new RuntimeException("Referenced rule not found: " + referencedDef.getName());
                 }
-                return evaluate(referencedNode);
+                return evaluateReference(referencedDef.getName(), referencedNode);
             case AND:
                 return evaluate(node.getLeft()) && evaluate(node.getRight());
             case OR:
@@ -44,42 +66,43 @@ public class RuleNodeEvaluator {
         }
     }
 
+    private boolean evaluateReference(String ruleName, RuleNode referencedNode) {
+        Integer ruleId = memo == null ? null : ruleIds.get(ruleName);
+        if (ruleId == null) {
+            return evaluate(referencedNode);
+        }
+        if (memo.isComputed(ruleId)) {
+            return memo.result(ruleId);
+        }
+        return memo.store(ruleId, evaluate(referencedNode));
+    }
+
     private boolean evalComparison(RuleNode node) {
         String token = node.getTokenName();
         String operator = node.getOperator();
         String valueStr = node.getValue();
 
-        String expectedType = tokenTypeMap.get(token);
+        // Parsed nodes carry their type and slot; hand-built ones fall back to the type map
+        String expectedType = node.getTokenType() != null ? node.getTokenType() : tokenTypeMap.get(token);
         if (expectedType == null) {
             throw new IllegalArgumentException("Token type not found for: " + token);
         }
-
-        Object value = getTokenValue(token, expectedType);
+        int slot = node.getTokenSlot();
 
         switch (expectedType.toLowerCase()) {
             case "double":
-                return compare((Double) value, Double.parseDouble(valueStr.replaceAll(",", ".")), operator);
+                return compare(context.getDouble(slot, token), Double.parseDouble(valueStr.replaceAll(",", ".")), operator);
             case "int":
-                return compare((Integer) value, Integer.parseInt(valueStr), operator);
+                return compare(context.getInt(slot, token), Integer.parseInt(valueStr), operator);
             case "boolean":
-                return compare((Boolean) value, Boolean.parseBoolean(valueStr), operator);
+                return compare(context.getBoolean(slot, token), Boolean.parseBoolean(valueStr), operator);
             case "string":
-                return compare((String) value, valueStr, operator);
+                return compare(context.getString(slot, token), valueStr, operator);
             default:
                 throw new IllegalArgumentException("Unsupported token type: " + expectedType);
         }
     }
 
-    private Object getTokenValue(String token, String expectedType) {
-        return switch (expectedType.toLowerCase()) {
-            case "boolean" -> context.getBoolean(token);
-            case "int" -> context.getInt(token);
-            case "double" -> context.getDouble(token);
-            case "string" -> context.getString(token);
-            default -> throw new IllegalArgumentException("Unknown token type: " + expectedType);
-        };
-    }
-
     private boolean compare(double left, double right, String op) {
         return switch (op) {
             case ">" -> left > right;
@@ -106,8 +129,8 @@ public class RuleNodeEvaluator {
 
     private boolean compare(String left, String right, String op) {
         return switch (op) {
-            case "==" -> left.equals(right);
-            case "!=" -> !left.equals(right);
+            case "==" -> right.equals(left);
+            case "!=" -> !right.equals(left);
             default -> throw new IllegalArgumentException("Invalid string operator: " + op);
         };
     }
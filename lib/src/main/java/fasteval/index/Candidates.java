@@ -0,0 +1,94 @@
+package fasteval.index;
+
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.RuleMemo;
+import fasteval.model.RuleNode;
+import fasteval.model.RuleRepresentation;
+
+import java.util.*;
+
+// Group members an index may evaluate, sorted by an int key (for example a literal's position).
+// Evaluating one records it in the memo and, when it passed, sets its bits in the group mask.
+final class Candidates {
+
+    // A distinct member rule and its positions in the group (a rule may be listed twice)
+    record Candidate(int ruleId, RuleRepresentation rule, int[] memberIndexes) {
+    }
+
+    private final int[] keys;
+    private final int[] ruleIds;
+    private final RuleRepresentation[] rules;
+    private final int[][] memberIndexes;
+
+    private Candidates(List<Keyed> sorted) {
+        this.keys = sorted.stream().mapToInt(Keyed::key).toArray();
+        this.ruleIds = sorted.stream().mapToInt(keyed -> keyed.candidate().ruleId()).toArray();
+        this.rules = sorted.stream().map(keyed -> keyed.candidate().rule()).toArray(RuleRepresentation[]::new);
+        this.memberIndexes = sorted.stream().map(keyed -> keyed.candidate().memberIndexes()).toArray(int[][]::new);
+    }
+
+    // Distinct members in declared order, keyed by rule name
+    static Map<String, Candidate> of(List<String> members, Map<String, RuleNode> ruleNodeMap, RuleTable ruleTable) {
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < members.size(); i++) {
+            if (ruleTable.idOf(members.get(i)) < 0 || !ruleNodeMap.containsKey(members.get(i))) {
+                throw new IllegalArgumentException("Rule not found: " + members.get(i));
+            }
+            positions.computeIfAbsent(members.get(i), k -> new ArrayList<>()).add(i);
+        }
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        positions.forEach((ruleName, indexes) -> {
+            int ruleId = ruleTable.idOf(ruleName);
+            candidates.put(ruleName, new Candidate(ruleId, ruleTable.rule(ruleId), indexes.stream().mapToInt(Integer::intValue).toArray()));
+        });
+        return candidates;
+    }
+
+    int size() {
+        return ruleIds.length;
+    }
+
+    // First position whose key is at least the given one
+    int from(int key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    void evaluate(int from, int to, EvalContext context, RuleMemo memo, long[] mask) {
+        for (int i = from; i < to; i++) {
+            if (memo.evaluate(ruleIds[i], rules[i], context) && mask != null) {
+                for (int member : memberIndexes[i]) {
+                    mask[member >>> 6] |= 1L << member;
+                }
+            }
+        }
+    }
+
+    void evaluateAll(EvalContext context, RuleMemo memo, long[] mask) {
+        evaluate(0, ruleIds.length, context, memo, mask);
+    }
+
+    private record Keyed(int key, Candidate candidate) {
+    }
+
+    static final class Builder {
+        private final List<Keyed> keyed = new ArrayList<>();
+
+        Builder add(int key, Candidate candidate) {
+            keyed.add(new Keyed(key, candidate));
+            return this;
+        }
+
+        Candidates build() {
+            keyed.sort(Comparator.comparingInt(Keyed::key));
+            return new Candidates(keyed);
+        }
+    }
+}
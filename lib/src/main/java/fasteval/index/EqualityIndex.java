@@ -0,0 +1,242 @@
+package fasteval.index;
+
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.RuleMemo;
+import fasteval.index.Candidates.Candidate;
+import fasteval.model.CompiledGroup;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Evaluates a group through the string, int and boolean equalities its members require. Each
+// member is anchored on one required `token == literal` (see RequiredComparisons), preferring the
+// token with the most distinct literals in the group; per token the members are bucketed by
+// literal. At evaluation the token's value selects its bucket with one lookup, so the members
+// evaluated are the ones whose literal matches, however many other literals the group has.
+// Members that only require `token != literal` are anchored on that and skipped only when the
+// value equals their literal; members with neither are always evaluated. A context that lacks
+// the token (EvalContextImpl) selects no bucket: the token's members are all evaluated, so
+// members that would short-circuit before reading it give the same results as DEFAULT.
+public final class EqualityIndex implements CompiledGroup {
+
+    private final TokenIndex[] tokens;
+    private final Candidates unanchored;
+
+    private EqualityIndex(TokenIndex[] tokens, Candidates unanchored) {
+        this.tokens = tokens;
+        this.unanchored = unanchored;
+    }
+
+    public static EqualityIndex build(List<String> members, Map<String, RuleNode> ruleNodeMap, RuleTable ruleTable) {
+        Map<String, Candidate> candidates = Candidates.of(members, ruleNodeMap, ruleTable);
+
+        // Every equality the members require, and per token all of their literals
+        Map<String, List<RuleNode>> equalities = new HashMap<>();
+        Map<String, TokenIndex.Builder> builders = new LinkedHashMap<>();
+        for (String ruleName : candidates.keySet()) {
+            List<RuleNode> required = RequiredComparisons.of(ruleNodeMap.get(ruleName), ruleNodeMap).stream()
+                    .filter(EqualityIndex::isEquality)
+                    .toList();
+            equalities.put(ruleName, required);
+            for (RuleNode comparison : required) {
+                builders.computeIfAbsent(comparison.getTokenName(), name -> new TokenIndex.Builder(comparison))
+                        .addLiteral(comparison);
+            }
+        }
+
+        Candidates.Builder unanchored = new Candidates.Builder();
+        candidates.forEach((ruleName, candidate) -> {
+            RuleNode anchor = null;
+            for (RuleNode comparison : equalities.get(ruleName)) {
+                if (anchor == null || rank(comparison, builders) > rank(anchor, builders)) {
+                    anchor = comparison;
+                }
+            }
+            if (anchor == null) {
+                unanchored.add(0, candidate);
+            } else {
+                builders.get(anchor.getTokenName()).add(anchor, candidate);
+            }
+        });
+
+        TokenIndex[] tokens = builders.values().stream()
+                .filter(TokenIndex.Builder::hasAnchors)
+                .map(TokenIndex.Builder::build)
+                .toArray(TokenIndex[]::new);
+        return new EqualityIndex(tokens, unanchored.build());
+    }
+
+    @Override
+    public void evaluate(EvalContext context, RuleMemo memo, long[] mask) {
+        for (TokenIndex token : tokens) {
+            token.evaluate(context, memo, mask);
+        }
+        unanchored.evaluateAll(context, memo, mask);
+    }
+
+    // Tokens with anchored members
+    public int tokenCount() {
+        return tokens.length;
+    }
+
+    // Distinct members evaluated on every call
+    public int unanchoredCount() {
+        return unanchored.size();
+    }
+
+    private static boolean isEquality(RuleNode comparison) {
+        String type = comparison.getTokenType();
+        return type != null && comparison.getTokenSlot() >= 0
+                && (type.equalsIgnoreCase("string") || type.equalsIgnoreCase("int") || type.equalsIgnoreCase("boolean"))
+                && (comparison.getOperator().equals("==") || comparison.getOperator().equals("!="));
+    }
+
+    // Booleans have no != here: flag != x is flag == !x
+    private static boolean isEqual(RuleNode comparison) {
+        return comparison.getOperator().equals("==") || comparison.getTokenType().equalsIgnoreCase("boolean");
+    }
+
+    // An equality beats an inequality; between equalities, more distinct literals discriminate better
+    private static int rank(RuleNode comparison, Map<String, TokenIndex.Builder> builders) {
+        return isEqual(comparison) ? 1 + builders.get(comparison.getTokenName()).literalCount() : 0;
+    }
+
+    // Literals become positions: strings through a map, ints by binary search, booleans 0 and 1
+    private static final class TokenIndex {
+        private static final int STRING = 0;
+        private static final int INT = 1;
+        private static final int BOOLEAN = 2;
+
+        private final int slot;
+        private final String name;
+        private final int kind;
+        private final Map<String, Integer> stringPositions;
+        private final int[] intLiterals;
+        // Per literal position
+        private final Candidates[] equal;
+        private final Candidates[] notEqual;
+        // Positions that have != members
+        private final int[] notEqualPositions;
+
+        private TokenIndex(Builder builder, Candidates[] equal, Candidates[] notEqual) {
+            this.slot = builder.slot;
+            this.name = builder.name;
+            this.kind = builder.kind;
+            this.stringPositions = builder.stringPositions;
+            this.intLiterals = builder.intLiterals.stream().mapToInt(Integer::intValue).toArray();
+            this.equal = equal;
+            this.notEqual = notEqual;
+            this.notEqualPositions = IntStream.range(0, notEqual.length)
+                    .filter(p -> notEqual[p].size() > 0)
+                    .toArray();
+        }
+
+        void evaluate(EvalContext context, RuleMemo memo, long[] mask) {
+            int position;
+            try {
+                position = position(context);
+            } catch (IllegalArgumentException missing) {
+                evaluateAll(context, memo, mask);
+                return;
+            }
+            if (position >= 0) {
+                equal[position].evaluateAll(context, memo, mask);
+            }
+            for (int p : notEqualPositions) {
+                if (p != position) {
+                    notEqual[p].evaluateAll(context, memo, mask);
+                }
+            }
+        }
+
+        private void evaluateAll(EvalContext context, RuleMemo memo, long[] mask) {
+            for (int p = 0; p < equal.length; p++) {
+                equal[p].evaluateAll(context, memo, mask);
+                notEqual[p].evaluateAll(context, memo, mask);
+            }
+        }
+
+        // -1 when the value is none of the literals (a missing string included)
+        private int position(EvalContext context) {
+            switch (kind) {
+                case STRING -> {
+                    Integer position = stringPositions.get(context.getString(slot, name));
+                    return position == null ? -1 : position;
+                }
+                case INT -> {
+                    int position = Arrays.binarySearch(intLiterals, context.getInt(slot, name));
+                    return position < 0 ? -1 : position;
+                }
+                default -> {
+                    return context.getBoolean(slot, name) ? 1 : 0;
+                }
+            }
+        }
+
+        static final class Builder {
+            private final int slot;
+            private final String name;
+            private final int kind;
+            private final Map<String, Integer> stringPositions = new HashMap<>();
+            private final SortedSet<Integer> intLiterals = new TreeSet<>();
+            private final List<RuleNode> anchors = new ArrayList<>();
+            private final List<Candidate> candidates = new ArrayList<>();
+
+            Builder(RuleNode comparison) {
+                this.slot = comparison.getTokenSlot();
+                this.name = comparison.getTokenName();
+                String type = comparison.getTokenType();
+                this.kind = type.equalsIgnoreCase("string") ? STRING : type.equalsIgnoreCase("int") ? INT : BOOLEAN;
+            }
+
+            void addLiteral(RuleNode comparison) {
+                String value = comparison.getValue();
+                switch (kind) {
+                    case STRING -> stringPositions.putIfAbsent(value, stringPositions.size());
+                    case INT -> intLiterals.add(Integer.parseInt(value));
+                    default -> {
+                    }
+                }
+            }
+
+            int literalCount() {
+                return kind == STRING ? stringPositions.size() : kind == INT ? intLiterals.size() : 2;
+            }
+
+            void add(RuleNode anchor, Candidate candidate) {
+                anchors.add(anchor);
+                candidates.add(candidate);
+            }
+
+            boolean hasAnchors() {
+                return !anchors.isEmpty();
+            }
+
+            TokenIndex build() {
+                int[] sortedInts = intLiterals.stream().mapToInt(Integer::intValue).toArray();
+                int literalCount = literalCount();
+                Candidates.Builder[] equal = new Candidates.Builder[literalCount];
+                Candidates.Builder[] notEqual = new Candidates.Builder[literalCount];
+                for (int p = 0; p < literalCount; p++) {
+                    equal[p] = new Candidates.Builder();
+                    notEqual[p] = new Candidates.Builder();
+                }
+                for (int i = 0; i < anchors.size(); i++) {
+                    RuleNode anchor = anchors.get(i);
+                    boolean equality = isEqual(anchor);
+                    int position = switch (kind) {
+                        case STRING -> stringPositions.get(anchor.getValue());
+                        case INT -> Arrays.binarySearch(sortedInts, Integer.parseInt(anchor.getValue()));
+                        default -> Boolean.parseBoolean(anchor.getValue()) == anchor.getOperator().equals("==") ? 1 : 0;
+                    };
+                    (equality ? equal : notEqual)[position].add(0, candidates.get(i));
+                }
+                return new TokenIndex(this,
+                        Arrays.stream(equal).map(Candidates.Builder::build).toArray(Candidates[]::new),
+                        Arrays.stream(notEqual).map(Candidates.Builder::build).toArray(Candidates[]::new));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package fasteval.index;
+
+import fasteval.context.EvalContext;
+import fasteval.context.RuleTable;
+import fasteval.eval.RuleMemo;
+import fasteval.index.Candidates.Candidate;
+import fasteval.model.CompiledGroup;
+import fasteval.model.RuleNode;
+
+import java.util.*;
+
+// Evaluates a group through the numeric thresholds its members require. Each member is anchored
+// on one required `token <op> literal` comparison (see RequiredComparisons), the one it is least
+// likely to pass judging by the literal's rank. Per token the distinct literals are sorted once;
+// at evaluation one binary search places the token's value among them, which settles every
+// anchor on that token. Members whose anchor fails are skipped and stay uncomputed in the memo;
+// the rest are evaluated as usual. Members without a numeric anchor are always evaluated. A
+// context that lacks the token (EvalContextImpl) settles none of its anchors, so all of the
+// token's members are evaluated and give the same results as DEFAULT.
+public final class IntervalIndex implements CompiledGroup {
+
+    private static final List<String> OPERATORS = List.of(">", ">=", "<", "<=", "==");
+
+    private final TokenIndex[] tokens;
+    private final Candidates unanchored;
+
+    private IntervalIndex(TokenIndex[] tokens, Candidates unanchored) {
+        this.tokens = tokens;
+        this.unanchored = unanchored;
+    }
+
+    public static IntervalIndex build(List<String> members, Map<String, RuleNode> ruleNodeMap, RuleTable ruleTable) {
+        Map<String, Candidate> candidates = Candidates.of(members, ruleNodeMap, ruleTable);
+
+        // Every numeric threshold the members require, and per token all of their literals
+        Map<String, List<RuleNode>> thresholds = new HashMap<>();
+        Map<String, TokenIndex.Builder> builders = new LinkedHashMap<>();
+        for (String ruleName : candidates.keySet()) {
+            List<RuleNode> required = RequiredComparisons.of(ruleNodeMap.get(ruleName), ruleNodeMap).stream()
+                    .filter(IntervalIndex::isThreshold)
+                    .toList();
+            thresholds.put(ruleName, required);
+            for (RuleNode comparison : required) {
+                builders.computeIfAbsent(comparison.getTokenName(), name -> new TokenIndex.Builder(comparison))
+                        .addLiteral(literal(comparison));
+            }
+        }
+        builders.values().forEach(TokenIndex.Builder::sortLiterals);
+
+        // Each member is anchored on the threshold it is least likely to pass
+        Candidates.Builder unanchored = new Candidates.Builder();
+        candidates.forEach((ruleName, candidate) -> {
+            RuleNode anchor = null;
+            double anchorShare = 1.0;
+            for (RuleNode comparison : thresholds.get(ruleName)) {
+                double share = builders.get(comparison.getTokenName()).passShare(comparison);
+                if (anchor == null || share < anchorShare) {
+                    anchor = comparison;
+                    anchorShare = share;
+                }
+            }
+            if (anchor == null) {
+                unanchored.add(0, candidate);
+            } else {
+                builders.get(anchor.getTokenName()).add(anchor, candidate);
+            }
+        });
+
+        TokenIndex[] tokens = builders.values().stream()
+                .filter(TokenIndex.Builder::hasAnchors)
+                .map(TokenIndex.Builder::build)
+                .toArray(TokenIndex[]::new);
+        return new IntervalIndex(tokens, unanchored.build());
+    }
+
+    @Override
+    public void evaluate(EvalContext context, RuleMemo memo, long[] mask) {
+        for (TokenIndex token : tokens) {
+            token.evaluate(context, memo, mask);
+        }
+        unanchored.evaluateAll(context, memo, mask);
+    }
+
+    // Tokens with anchored members
+    public int tokenCount() {
+        return tokens.length;
+    }
+
+    // Distinct members evaluated on every call
+    public int unanchoredCount() {
+        return unanchored.size();
+    }
+
+    private static boolean isThreshold(RuleNode comparison) {
+        String type = comparison.getTokenType();
+        return type != null && comparison.getTokenSlot() >= 0
+                && (type.equalsIgnoreCase("double") || type.equalsIgnoreCase("int"))
+                && OPERATORS.contains(comparison.getOperator());
+    }
+
+    // Same literal parsing as the backends; +0.0 folds -0.0 into 0.0, which == treats as equal
+    static double literal(RuleNode comparison) {
+        String value = comparison.getValue();
+        return comparison.getTokenType().equalsIgnoreCase("int")
+                ? Integer.parseInt(value)
+                : Double.parseDouble(value.replace(',', '.')) + 0.0;
+    }
+
+    // The sorted distinct literals of one token and the members anchored on it, per operator
+    private static final class TokenIndex {
+        private final int slot;
+        private final String name;
+        private final boolean isInt;
+        private final double[] literals;
+        private final Candidates greater;
+        private final Candidates greaterOrEqual;
+        private final Candidates less;
+        private final Candidates lessOrEqual;
+        private final Candidates equal;
+
+        private TokenIndex(Builder builder, double[] literals, Candidates[] byOperator) {
+            this.slot = builder.slot;
+            this.name = builder.name;
+            this.isInt = builder.isInt;
+            this.literals = literals;
+            this.greater = byOperator[0];
+            this.greaterOrEqual = byOperator[1];
+            this.less = byOperator[2];
+            this.lessOrEqual = byOperator[3];
+            this.equal = byOperator[4];
+        }
+
+        void evaluate(EvalContext context, RuleMemo memo, long[] mask) {
+            double value;
+            try {
+                value = isInt ? context.getInt(slot, name) : context.getDouble(slot, name) + 0.0;
+            } catch (IllegalArgumentException missing) {
+                for (Candidates candidates : List.of(greater, greaterOrEqual, less, lessOrEqual, equal)) {
+                    candidates.evaluateAll(context, memo, mask);
+                }
+                return;
+            }
+            if (value != value) return; // NaN fails every anchor
+
+            // below: literals < value; at: 1 when literals[below] == value
+            int below = 0;
+            int high = literals.length;
+            while (below < high) {
+                int mid = (below + high) >>> 1;
+                if (literals[mid] < value) below = mid + 1;
+                else high = mid;
+            }
+            int at = below < literals.length && literals[below] == value ? 1 : 0;
+
+            // Literal index j: value > l_j iff j < below; value >= l_j iff j < below + at
+            greater.evaluate(0, greater.from(below), context, memo, mask);
+            greaterOrEqual.evaluate(0, greaterOrEqual.from(below + at), context, memo, mask);
+            less.evaluate(less.from(below + at), less.size(), context, memo, mask);
+            lessOrEqual.evaluate(lessOrEqual.from(below), lessOrEqual.size(), context, memo, mask);
+            if (at == 1) {
+                equal.evaluate(equal.from(below), equal.from(below + 1), context, memo, mask);
+            }
+        }
+
+        static final class Builder {
+            private final int slot;
+            private final String name;
+            private final boolean isInt;
+            private final List<Double> literalList = new ArrayList<>();
+            private double[] literals;
+            private final List<RuleNode> anchors = new ArrayList<>();
+            private final List<Candidate> candidates = new ArrayList<>();
+
+            Builder(RuleNode comparison) {
+                this.slot = comparison.getTokenSlot();
+                this.name = comparison.getTokenName();
+                this.isInt = comparison.getTokenType().equalsIgnoreCase("int");
+            }
+
+            void addLiteral(double literal) {
+                literalList.add(literal);
+            }
+
+            void sortLiterals() {
+                literals = literalList.stream().mapToDouble(Double::doubleValue).sorted().distinct().toArray();
+            }
+
+            // Estimated share of values passing, taking values to fall evenly between the literals
+            double passShare(RuleNode comparison) {
+                int position = Arrays.binarySearch(literals, literal(comparison));
+                double gaps = literals.length + 1;
+                return switch (comparison.getOperator()) {
+                    case ">", ">=" -> (literals.length - position) / gaps;
+                    case "<", "<=" -> (position + 1) / gaps;
+                    default -> 0.5 / gaps;
+                };
+            }
+
+            void add(RuleNode anchor, Candidate candidate) {
+                anchors.add(anchor);
+                candidates.add(candidate);
+            }
+
+            boolean hasAnchors() {
+                return !anchors.isEmpty();
+            }
+
+            TokenIndex build() {
+                Candidates.Builder[] byOperator = new Candidates.Builder[OPERATORS.size()];
+                for (int i = 0; i < byOperator.length; i++) {
+                    byOperator[i] = new Candidates.Builder();
+                }
+                for (int i = 0; i < anchors.size(); i++) {
+                    RuleNode anchor = anchors.get(i);
+                    int position = Arrays.binarySearch(literals, literal(anchor));
+                    byOperator[OPERATORS.indexOf(anchor.getOperator())].add(position, candidates.get(i));
+                }
+                return new TokenIndex(this, literals, Arrays.stream(byOperator).map(Candidates.Builder::build).toArray(Candidates[]::new));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fasteval.index;
+
+import fasteval.model.RuleNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Comparisons a rule cannot pass without: the root and both sides of every AND below it,
+// following rule references into the referenced rule. OR, XOR and NOT stop the walk.
+final class RequiredComparisons {
+
+    private RequiredComparisons() {
+    }
+
+    static List<RuleNode> of(RuleNode root, Map<String, RuleNode> ruleNodeMap) {
+        List<RuleNode> required = new ArrayList<>();
+        collect(root, ruleNodeMap, required);
+        return required;
+    }
+
+    private static void collect(RuleNode node, Map<String, RuleNode> ruleNodeMap, List<RuleNode> required) {
+        switch (node.getType()) {
+            case COMPARISON -> required.add(node);
+            case AND -> {
+                collect(node.getLeft(), ruleNodeMap, required);
+                collect(node.getRight(), ruleNodeMap, required);
+            }
+            case RULE_REFERENCE -> {
+                RuleNode referenced = ruleNodeMap.get(node.getReferencedRule().getName());
+                if (referenced != null) {
+                    collect(referenced, ruleNodeMap, required);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+}
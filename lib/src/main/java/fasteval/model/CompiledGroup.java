@@ -0,0 +1,12 @@
+package fasteval.model;
+
+import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
+
+// A whole group generated as one class: every distinct member is evaluated in rule id order
+// and recorded in the memo, which computes references on demand. With a mask, bit i is also set when member i (declared order) passed;
+// the caller clears the mask. The memo must be empty (or reset) and sized for the rule set.
+// Indexes may skip members that cannot pass: those stay uncomputed in the memo.
+public interface CompiledGroup {
+    void evaluate(EvalContext context, RuleMemo memo, long[] mask);
+}
@@ -1,6 +1,7 @@
 package fasteval.model;
 
 import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
 import fasteval.eval.RuleNodeEvaluator;
 
 import java.util.Map;
@@ -10,17 +11,31 @@ public class InterpretedRule implements RuleRepresentation {
     private final RuleNode rootNode;
     private final Map<String, RuleNode> ruleNodeMap;
     private final Map<String, String> tokenTypeMap;
+    private final Map<String, Integer> ruleIds;
 
     public InterpretedRule(RuleNode rootNode,
                            Map<String, RuleNode> ruleNodeMap,
                            Map<String, String> tokenTypeMap) {
+        this(rootNode, ruleNodeMap, tokenTypeMap, Map.of());
+    }
+
+    public InterpretedRule(RuleNode rootNode,
+                           Map<String, RuleNode> ruleNodeMap,
+                           Map<String, String> tokenTypeMap,
+                           Map<String, Integer> ruleIds) {
         this.rootNode = rootNode;
         this.ruleNodeMap = ruleNodeMap;
         this.tokenTypeMap = tokenTypeMap;
+        this.ruleIds = ruleIds;
     }
 
     @Override
     public boolean evaluate(EvalContext context) {
         return new RuleNodeEvaluator(context, ruleNodeMap, tokenTypeMap).evaluate(rootNode);
     }
+
+    @Override
+    public boolean evaluate(EvalContext context, RuleMemo memo) {
+        return new RuleNodeEvaluator(context, ruleNodeMap, tokenTypeMap, memo, ruleIds).evaluate(rootNode);
+    }
 }
\ No newline at end of file
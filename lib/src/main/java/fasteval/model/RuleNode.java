@@ -2,6 +2,8 @@ package fasteval.model;
 
 import fasteval.definitions.RuleDefinition;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 public class RuleNode {
@@ -20,9 +22,19 @@ public class RuleNode {
     String operator;
     String value;
 
+    // Resolved from the TokenSlotLayout when the rule is parsed; unset for unknown tokens
+    String tokenType;
+    int tokenSlot = -1;
+
     // For RULE_REFERENCE
     RuleDefinition referencedRule;
 
+    // Memo id of a sub-expression shared by several rules or places; -1 when not shared.
+    // Assigned per rule set after parsing, so it is not part of the node's structure.
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    int sharedId = -1;
+
     // Constructors (for clarity):
     public static RuleNode comparison(String token, String operator, String value) {
         RuleNode n = new RuleNode();
@@ -2,7 +2,13 @@ package fasteval.model;
 
 
 import fasteval.context.EvalContext;
+import fasteval.eval.RuleMemo;
 
 public interface RuleRepresentation {
     boolean evaluate(EvalContext context);
-}
\ No newline at end of file
+
+    // Evaluation that reads and records referenced rules in a memo shared by the caller
+    default boolean evaluate(EvalContext context, RuleMemo memo) {
+        return evaluate(context);
+    }
+}
@@ -1,25 +1,59 @@
 package fasteval.parser;
 
 import fasteval.context.ObjectRuleContext;
+import fasteval.context.TokenSlotLayout;
 import fasteval.definitions.RuleDefinition;
 import fasteval.definitions.TokenDefinition;
 import fasteval.model.RuleNode;
+import lombok.Getter;
 import lombok.ToString;
 
+import fasteval.parser.ExpressionScanner.Kind;
+
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @ToString
 public class ExpressionParser {
-    private final Set<String> ruleDefinitionsNamesSet;
+    // Above this many rules parseAllToMap parses in parallel; rules are independent of each other
+    static final int PARALLEL_PARSE_THRESHOLD = 10_000;
+
     private final Set<RuleDefinition> ruleDefinitionSet;
+    private final Map<String, RuleDefinition> ruleDefinitionsByName;
     private final Map<String, TokenDefinition> tokenNameTokenDefinitionMap;
-    private List<String> tokens;
-    private int pos;
+    @Getter
+    private final TokenSlotLayout tokenSlotLayout;
+
+    // Parse position lives per call so that one parser can be shared between threads
+    private static final class Cursor {
+        private final ExpressionScanner tokens;
+        // Null when nodes are not shared (single expressions)
+        private final RuleNodeInterner interner;
+        private int pos;
+
+        private Cursor(ExpressionScanner tokens, RuleNodeInterner interner) {
+            this.tokens = tokens;
+            this.interner = interner;
+        }
+
+        private RuleNode intern(RuleNode node) {
+            return interner == null ? node : interner.intern(node);
+        }
+    }
 
     public ExpressionParser(Set<RuleDefinition> ruleDefinitionSet, List<TokenDefinition> tokensList) {
+        this(ruleDefinitionSet, tokensList, new TokenSlotLayout(tokensList));
+    }
+
+    public ExpressionParser(Set<RuleDefinition> ruleDefinitionSet,
+                            List<TokenDefinition> tokensList,
+                            TokenSlotLayout tokenSlotLayout) {
         this.ruleDefinitionSet = ruleDefinitionSet;
-        this.ruleDefinitionsNamesSet = ruleDefinitionSet.stream().map(RuleDefinition::getName).collect(Collectors.toSet());
+        this.tokenSlotLayout = tokenSlotLayout;
+        this.ruleDefinitionsByName = new HashMap<>();
+        for (RuleDefinition rule : ruleDefinitionSet) {
+            ruleDefinitionsByName.putIfAbsent(rule.getName(), rule);
+        }
 
         this.tokenNameTokenDefinitionMap = new HashMap<>();
         for (TokenDefinition td : tokensList) {
@@ -28,14 +62,17 @@ public class ExpressionParser {
     }
 
     public RuleNode parse(String expr) {
-        tokens = tokenize(expr);
-        pos = 0;
+        return parse(expr, null);
+    }
 
-        RuleNode node = parseExpression();
+    private RuleNode parse(String expr, RuleNodeInterner interner) {
+        Cursor cursor = new Cursor(new ExpressionScanner(expr), interner);
+
+        RuleNode node = parseExpression(cursor);
 
         // After parsing a complete expression, ensure we consumed everything
-        if (pos < tokens.size()) {
-            throw new IllegalArgumentException("Unexpected token: '" + tokens.get(pos) + "'");
+        if (cursor.pos < cursor.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected token: '" + cursor.tokens.text(cursor.pos) + "'");
         }
 
         return node;
@@ -48,60 +85,54 @@ public class ExpressionParser {
         List<TokenDefinition> tokenDefinitions = new ArrayList<>(tokenNameTokenDefinitionMap.values());
 
         // Return ObjectRuleContext with the list of tokens (not a map)
-        return new ObjectRuleContext(ruleNodeMap, groups, tokenDefinitions);
-    }
-
-    private List<String> tokenize(String expr) {
-        return Arrays.asList(expr.replace("(", " ( ")
-                .replace(")", " ) ")
-                .trim().split("\\s+"));
+        return new ObjectRuleContext(ruleNodeMap, groups, tokenDefinitions, tokenSlotLayout);
     }
 
-    private RuleNode parseExpression() {
-        RuleNode node = parseTerm();
-        while (peek("AND", "OR", "XOR")) {
-            String operator = consume();
-            RuleNode right = parseTerm();
-            node = RuleNode.logical(RuleNode.Type.valueOf(operator), node, right);
+    private RuleNode parseExpression(Cursor cursor) {
+        RuleNode node = parseTerm(cursor);
+        while (peek(cursor, Kind.AND) || peek(cursor, Kind.OR) || peek(cursor, Kind.XOR)) {
+            RuleNode.Type type = switch (cursor.tokens.kind(cursor.pos++)) {
+                case AND -> RuleNode.Type.AND;
+                case OR -> RuleNode.Type.OR;
+                default -> RuleNode.Type.XOR;
+            };
+            RuleNode right = parseTerm(cursor);
+            node = cursor.intern(RuleNode.logical(type, node, right));
         }
         return node;
     }
 
-    private RuleNode parseTerm() {
-        if (peek("NOT")) {
-            consume("NOT");
-            RuleNode inner = parseTerm(); // NOT is right-associative
-            return RuleNode.not(inner);
-        } else if (peek("(")) {
-            consume("(");
-            RuleNode node = parseExpression();
-            consume(")");
+    private RuleNode parseTerm(Cursor cursor) {
+        if (peek(cursor, Kind.NOT)) {
+            cursor.pos++;
+            RuleNode inner = parseTerm(cursor); // NOT is right-associative
+            return cursor.intern(RuleNode.not(inner));
+        } else if (peek(cursor, Kind.LPAREN)) {
+            cursor.pos++;
+            RuleNode node = parseExpression(cursor);
+            consume(cursor, Kind.RPAREN);
             return node;
         } else {
-            return parseAtom();
+            return parseAtom(cursor);
         }
     }
 
-    private RuleNode parseAtom() {
-        String token = consume();
+    private RuleNode parseAtom(Cursor cursor) {
+        String token = consume(cursor);
 
-        if (peek(">", "<", "==", "!=", ">=", "<=")) {
-            String operator = consume();
-            String value = consume();
-            return RuleNode.comparison(token, operator, value);
+        if (peek(cursor, Kind.OPERATOR)) {
+            String operator = consume(cursor);
+            String value = consume(cursor);
+            return cursor.intern(bindToken(RuleNode.comparison(token, operator, value)));
 
-        } else if (ruleDefinitionsNamesSet.contains(token)) {
-            RuleDefinition matchedRule = ruleDefinitionSet.stream()
-                    .filter(r -> r.getName().equals(token))
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalStateException("Rule definition not found for: " + token));
-            return RuleNode.ruleRef(matchedRule);
+        } else if (ruleDefinitionsByName.containsKey(token)) {
+            return cursor.intern(RuleNode.ruleRef(ruleDefinitionsByName.get(token)));
 
         } else if (tokenNameTokenDefinitionMap.containsKey(token)) {
             TokenDefinition def = tokenNameTokenDefinitionMap.get(token);
             if ("boolean".equalsIgnoreCase(def.getType())) {
                 // treat the presence of a boolean token as: token == true
-                return RuleNode.comparison(token, "==", "true");
+                return cursor.intern(bindToken(RuleNode.comparison(token, "==", "true")));
             } else {
                 throw new IllegalArgumentException("Cannot use non-boolean token '" + token + "' as standalone rule");
             }
@@ -110,36 +141,52 @@ public class ExpressionParser {
         throw new IllegalArgumentException("Unknown token or rule reference: " + token);
     }
 
-    private boolean peek(String... options) {
-        if (pos >= tokens.size()) return false;
-        for (String option : options) {
-            if (tokens.get(pos).equals(option)) return true;
-        }
-        return false;
+    private RuleNode bindToken(RuleNode node) {
+        node.setTokenType(tokenSlotLayout.typeOf(node.getTokenName()));
+        node.setTokenSlot(tokenSlotLayout.slotOf(node.getTokenName()));
+        return node;
     }
 
-    private String consume() {
-        if (pos >= tokens.size()) {
+    private boolean peek(Cursor cursor, Kind kind) {
+        return cursor.pos < cursor.tokens.size() && cursor.tokens.kind(cursor.pos) == kind;
+    }
+
+    private String consume(Cursor cursor) {
+        if (cursor.pos >= cursor.tokens.size()) {
             throw new RuntimeException("Unexpected end of expression.");
         }
-        return tokens.get(pos++);
+        return cursor.tokens.text(cursor.pos++);
     }
 
-    private void consume(String expected) {
-        String actual = consume();
-        if (!actual.equals(expected)) {
-            throw new IllegalArgumentException("Expected '" + expected + "', found '" + actual + "'");
+    private void consume(Cursor cursor, Kind expected) {
+        boolean matches = peek(cursor, expected);
+        String actual = consume(cursor);
+        if (!matches) {
+            throw new IllegalArgumentException("Expected '" + (expected == Kind.RPAREN ? ")" : expected) + "', found '" + actual + "'");
         }
     }
 
+    // Rules of one call share structurally equal nodes (see RuleNodeInterner): the result is a DAG
     public Map<String, RuleNode> parseAllToMap() {
         Map<String, RuleNode> result = new LinkedHashMap<>();
+        RuleNodeInterner interner = new RuleNodeInterner();
 
-        for (RuleDefinition rule : ruleDefinitionSet) {
-            RuleNode ast = parse(rule.getExpression());
-            result.put(rule.getName(), ast);
+        if (ruleDefinitionSet.size() < PARALLEL_PARSE_THRESHOLD) {
+            for (RuleDefinition rule : ruleDefinitionSet) {
+                RuleNode ast = parse(rule.getExpression(), interner);
+                result.put(rule.getName(), ast);
+            }
+            return result;
         }
 
+        // Parse in parallel, then keep the order of the definition set like the sequential path
+        List<RuleDefinition> rules = new ArrayList<>(ruleDefinitionSet);
+        RuleNode[] asts = new RuleNode[rules.size()];
+        IntStream.range(0, rules.size()).parallel()
+                .forEach(i -> asts[i] = parse(rules.get(i).getExpression(), interner));
+        for (int i = 0; i < asts.length; i++) {
+            result.put(rules.get(i).getName(), asts[i]);
+        }
         return result;
     }
 }
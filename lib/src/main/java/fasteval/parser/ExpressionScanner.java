@@ -0,0 +1,116 @@
+package fasteval.parser;
+
+import java.util.Arrays;
+
+// Splits an expression into typed tokens in one pass over its chars: parentheses, and words
+// separated by whitespace. Words are classified as keywords or comparison operators by their
+// chars, without building a String; text is only cut out when a token is actually used.
+final class ExpressionScanner {
+
+    enum Kind { WORD, AND, OR, XOR, NOT, LPAREN, RPAREN, OPERATOR }
+
+    private final String expr;
+    private Kind[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    ExpressionScanner(String expr) {
+        this.expr = expr;
+        int capacity = Math.max(4, expr.length() / 4);
+        this.kinds = new Kind[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        scan();
+    }
+
+    int size() {
+        return count;
+    }
+
+    Kind kind(int index) {
+        return kinds[index];
+    }
+
+    String text(int index) {
+        return switch (kinds[index]) {
+            case LPAREN -> "(";
+            case RPAREN -> ")";
+            case AND -> "AND";
+            case OR -> "OR";
+            case XOR -> "XOR";
+            case NOT -> "NOT";
+            // Shared constants rather than one String per comparison
+            case OPERATOR -> operator(starts[index], ends[index]);
+            case WORD -> expr.substring(starts[index], ends[index]);
+        };
+    }
+
+    private void scan() {
+        int length = expr.length();
+        int i = 0;
+        while (i < length) {
+            char c = expr.charAt(i);
+            if (isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                add(Kind.LPAREN, i, ++i);
+            } else if (c == ')') {
+                add(Kind.RPAREN, i, ++i);
+            } else {
+                int start = i;
+                while (i < length && !isDelimiter(expr.charAt(i))) i++;
+                add(classify(start, i), start, i);
+            }
+        }
+    }
+
+    private Kind classify(int start, int end) {
+        int length = end - start;
+        if (length == 2 && expr.regionMatches(start, "OR", 0, 2)) return Kind.OR;
+        if (length == 3) {
+            if (expr.regionMatches(start, "AND", 0, 3)) return Kind.AND;
+            if (expr.regionMatches(start, "XOR", 0, 3)) return Kind.XOR;
+            if (expr.regionMatches(start, "NOT", 0, 3)) return Kind.NOT;
+        }
+        if (operator(start, end) != null) return Kind.OPERATOR;
+        return Kind.WORD;
+    }
+
+    private String operator(int start, int end) {
+        char first = expr.charAt(start);
+        if (end - start == 1) {
+            return first == '>' ? ">" : first == '<' ? "<" : null;
+        }
+        if (end - start != 2 || expr.charAt(start + 1) != '=') return null;
+        return switch (first) {
+            case '=' -> "==";
+            case '!' -> "!=";
+            case '>' -> ">=";
+            case '<' -> "<=";
+            default -> null;
+        };
+    }
+
+    private void add(Kind kind, int start, int end) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    // Same whitespace as the \s regex class the rule format has always been split on
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    private static boolean isDelimiter(char c) {
+        return isWhitespace(c) || c == '(' || c == ')';
+    }
+}
@@ -0,0 +1,20 @@
+package fasteval.parser;
+
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+
+// Receives the entries of a rules file in file order while TextFileParser streams it
+public interface RuleFileListener {
+    default void onToken(TokenDefinition token) {
+    }
+
+    default void onRule(RuleDefinition rule) {
+    }
+
+    // A group header; its members follow through onGroupMember
+    default void onGroup(String groupName) {
+    }
+
+    default void onGroupMember(String groupName, String ruleName) {
+    }
+}
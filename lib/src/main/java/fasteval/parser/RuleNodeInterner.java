@@ -0,0 +1,68 @@
+package fasteval.parser;
+
+import fasteval.model.RuleNode;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hash-consing for parsed rules: structurally equal nodes become one instance, so rules form a
+// DAG in which a comparison or sub-expression used by hundreds of rules exists once. Children
+// are interned before their parent, which makes node identity structural equality; the key
+// compares children by identity and caches its hash instead of walking the subtree like
+// RuleNode.equals/hashCode. Thread-safe, for parallel parsing.
+final class RuleNodeInterner {
+
+    private final ConcurrentHashMap<Key, RuleNode> nodes = new ConcurrentHashMap<>();
+
+    RuleNode intern(RuleNode node) {
+        RuleNode existing = nodes.putIfAbsent(new Key(node), node);
+        return existing != null ? existing : node;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    private static final class Key {
+        private final RuleNode node;
+        private final int hash;
+
+        Key(RuleNode node) {
+            this.node = node;
+            int h = node.getType().hashCode();
+            h = 31 * h + System.identityHashCode(node.getLeft());
+            h = 31 * h + System.identityHashCode(node.getRight());
+            h = 31 * h + Objects.hashCode(node.getTokenName());
+            h = 31 * h + Objects.hashCode(node.getOperator());
+            h = 31 * h + Objects.hashCode(node.getValue());
+            h = 31 * h + Objects.hashCode(referencedName(node));
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) return false;
+            RuleNode a = node;
+            RuleNode b = other.node;
+            return hash == other.hash
+                    && a.getType() == b.getType()
+                    && a.getLeft() == b.getLeft()
+                    && a.getRight() == b.getRight()
+                    && Objects.equals(a.getTokenName(), b.getTokenName())
+                    && Objects.equals(a.getOperator(), b.getOperator())
+                    && Objects.equals(a.getValue(), b.getValue())
+                    && Objects.equals(a.getTokenType(), b.getTokenType())
+                    && a.getTokenSlot() == b.getTokenSlot()
+                    && Objects.equals(referencedName(a), referencedName(b));
+        }
+
+        private static String referencedName(RuleNode node) {
+            return node.getReferencedRule() == null ? null : node.getReferencedRule().getName();
+        }
+    }
+}
@@ -5,9 +5,13 @@ import fasteval.definitions.TokenDefinition;
 import lombok.Getter;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,39 +23,100 @@ public class TextFileParser
     List<RuleDefinition> rules = new ArrayList<>();
     Map<String, List<String>> groups = new LinkedHashMap<>();
 
+    // Bytes read from the file per channel read; lines are decoded one at a time
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
     public void parseRulesFile(String filePath) throws IOException {
-        String currentGroup = null;
+        streamRulesFile(filePath, new RuleFileListener() {
+            @Override
+            public void onToken(TokenDefinition token) {
+                tokens.add(token);
+            }
+
+            @Override
+            public void onRule(RuleDefinition rule) {
+                rules.add(rule);
+            }
+
+            @Override
+            public void onGroup(String groupName) {
+                groups.put(groupName, new ArrayList<>());
+            }
+
+            @Override
+            public void onGroupMember(String groupName, String ruleName) {
+                groups.get(groupName).add(ruleName);
+            }
+        });
+    }
+
+    // Reads the file through a fixed-size buffer and hands every entry to the listener as soon
+    // as its line is complete, so memory does not grow with the file. Nothing is collected here.
+    public static void streamRulesFile(String filePath, RuleFileListener listener) throws IOException {
+        LineHandler handler = new LineHandler(listener);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            byte[] line = new byte[256];
+            int length = 0;
+
+            while (channel.read(buffer) != -1) {
+                int end = buffer.position();
+                for (int i = 0; i < end; i++) {
+                    if (bytes[i] == '\n') {
+                        handler.line(new String(line, 0, length, StandardCharsets.UTF_8));
+                        length = 0;
+                    } else {
+                        if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                        line[length++] = bytes[i];
+                    }
+                }
+                buffer.clear();
+            }
+            if (length > 0) {
+                handler.line(new String(line, 0, length, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    // Section state carried from line to line
+    private static final class LineHandler {
+        private final RuleFileListener listener;
+        private boolean parsingTokens = false;
+        private boolean parsingRules = false;
+        private boolean parsingGroups = false;
+        private String currentGroup = null;
+
+        private LineHandler(RuleFileListener listener) {
+            this.listener = listener;
+        }
 
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        boolean parsingTokens = false;
-        boolean parsingRules = false;
-        boolean parsingGroups = false;
-        for (String line : lines) {
+        private void line(String line) {
             line = line.trim();
-            if (line.isEmpty()) continue;
+            if (line.isEmpty()) return;
 
             if (line.startsWith("tokens:")) {
-                parsingTokens = true; parsingRules = false;parsingGroups = false; continue;
+                parsingTokens = true; parsingRules = false;parsingGroups = false; return;
             } else if (line.startsWith("rules:")) {
-                parsingRules = true; parsingTokens = false;parsingGroups = false; continue;
+                parsingRules = true; parsingTokens = false;parsingGroups = false; return;
             }else if (line.startsWith("groups:")) {
-                parsingGroups = true; parsingRules = false; parsingTokens = false; continue;
+                parsingGroups = true; parsingRules = false; parsingTokens = false; return;
             }
 
             if (parsingTokens) {
                 // Example line: stockPrice: double
                 String[] parts = line.split(":");
-                tokens.add(new TokenDefinition(parts[0].trim(), parts[1].trim()));
+                listener.onToken(new TokenDefinition(parts[0].trim(), parts[1].trim()));
             } else if (parsingRules) {
                 // Example line: priceHigh: stockPrice > 100.0
                 String[] parts = line.split(":", 2);
-                rules.add(new RuleDefinition(parts[0].trim(), parts[1].trim()));
+                listener.onRule(new RuleDefinition(parts[0].trim(), parts[1].trim()));
             }else if( parsingGroups) {
                 if (line.endsWith(":")) {
                     currentGroup = line.substring(0, line.length() - 1).trim();
-                    groups.put(currentGroup, new ArrayList<>());
+                    listener.onGroup(currentGroup);
                 } else if (currentGroup != null) {
-                    groups.get(currentGroup).add(line);
+                    listener.onGroupMember(currentGroup, line);
                 }
             }
         }
@@ -0,0 +1,78 @@
+package fasteval.perf;
+
+import fasteval.api.BatchResult;
+import fasteval.api.FastEvalBuilder;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.context.ColumnarBatch;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.parser.ExpressionParser;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+// Group evaluation over a batch, bit-sliced against row by row on the closure backend:
+// java fasteval.perf.BatchPerfMain [groupSize] [rowCount]
+public class BatchPerfMain {
+
+    public static void main(String[] args) {
+        final int groupSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int rowCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        final int RUNS = 5;
+
+        List<TokenDefinition> tokens = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tokens.add(new TokenDefinition("price" + i, "double"));
+            tokens.add(new TokenDefinition("flag" + i, "boolean"));
+        }
+
+        Random random = new Random(42);
+        List<RuleDefinition> rules = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < groupSize; i++) {
+            String expression = i < 20 || random.nextInt(3) == 0
+                    ? "price" + random.nextInt(20) + " > " + random.nextInt(1000) + ".5 AND flag" + random.nextInt(20) + " == true"
+                    : "(r" + random.nextInt(i) + " OR price" + random.nextInt(20) + " <= 250.0) AND NOT r" + random.nextInt(i);
+            rules.add(new RuleDefinition("r" + i, expression));
+            members.add("r" + i);
+        }
+
+        TokenSlotLayout layout = new TokenSlotLayout(tokens);
+        ExpressionParser parser = new ExpressionParser(new HashSet<>(rules), tokens, layout);
+        FastEvalRuleSet bitSliced = new FastEvalBuilder(parser, rules, tokens, Map.of("all", members)).usingClosureCompilation();
+        // Same compiled rules without parsed nodes: batches run row by row
+        FastEvalRuleSet rowByRow = new FastEvalRuleSet(bitSliced.getRuleContext());
+
+        ColumnarBatch batch = bitSliced.newBatch(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            for (int t = 0; t < 20; t++) {
+                batch.setDouble(t, r, random.nextDouble() * 1000);
+                batch.setBoolean(t, r, random.nextBoolean());
+            }
+        }
+
+        System.out.println("Group of " + groupSize + " rules over " + rowCount + " rows");
+        long rowBest = best(RUNS, () -> rowByRow.evaluateGroupBatch("all", batch));
+        long slicedBest = best(RUNS, () -> bitSliced.evaluateGroupBatch("all", batch));
+
+        for (int m = 0; m < groupSize; m++) {
+            if (!Arrays.equals(rowByRow.evaluateGroupBatch("all", batch).bitmap(m), bitSliced.evaluateGroupBatch("all", batch).bitmap(m))) {
+                throw new IllegalStateException("Results differ for " + members.get(m));
+            }
+        }
+        System.out.println("Row by row:  " + rowBest / 1_000_000 + " ms, " + (long) (rowCount / (rowBest / 1e9)) + " rows/s");
+        System.out.println("Bit-sliced:  " + slicedBest / 1_000_000 + " ms, " + (long) (rowCount / (slicedBest / 1e9)) + " rows/s");
+        System.out.printf("Speedup: %.1fx%n", (double) rowBest / slicedBest);
+    }
+
+    private static long best(int runs, Supplier<BatchResult> run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long t0 = System.nanoTime();
+            run.get();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best;
+    }
+}
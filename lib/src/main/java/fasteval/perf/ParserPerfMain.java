@@ -0,0 +1,48 @@
+package fasteval.perf;
+
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+
+import java.util.*;
+
+// Parser throughput on a generated rule set: java fasteval.perf.ParserPerfMain [ruleCount]
+public class ParserPerfMain {
+
+    public static void main(String[] args) {
+        final int ruleCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        final int RUNS = 5;
+
+        List<TokenDefinition> tokens = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tokens.add(new TokenDefinition("price" + i, "double"));
+            tokens.add(new TokenDefinition("flag" + i, "boolean"));
+        }
+
+        // Leaf comparisons mixed with rules referencing earlier rules
+        Random random = new Random(42);
+        Set<RuleDefinition> rules = new HashSet<>();
+        for (int i = 0; i < ruleCount; i++) {
+            String expression = i < 100 || random.nextInt(4) == 0
+                    ? "price" + random.nextInt(50) + " > " + random.nextInt(1000) + ".5 AND flag" + random.nextInt(50)
+                    : "(r" + random.nextInt(i) + " OR r" + random.nextInt(i) + ") AND NOT price" + random.nextInt(50) + " <= 10.0";
+            rules.add(new RuleDefinition("r" + i, expression));
+        }
+
+        ExpressionParser parser = new ExpressionParser(rules, tokens);
+
+        System.out.println("Parsing " + ruleCount + " rules...");
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long t0 = System.nanoTime();
+            Map<String, RuleNode> parsed = parser.parseAllToMap();
+            long elapsed = System.nanoTime() - t0;
+            if (parsed.size() != ruleCount) throw new IllegalStateException("Parsed " + parsed.size() + " rules");
+            best = Math.min(best, elapsed);
+        }
+
+        System.out.println("Best of " + RUNS + ": " + best / 1_000_000 + " ms");
+        System.out.println("Throughput: " + (long) (ruleCount / (best / 1e9)) + " rules/s");
+    }
+}
@@ -1,8 +1,8 @@
 package fasteval.perf;
 
-import fasteval.api.FastEval;
 import fasteval.api.FastEvalBuilder;
 import fasteval.api.FastEvalEngine;
+import fasteval.api.FastEvalRuleSet;
 import fasteval.context.EvalContext;
 import fasteval.parser.ExpressionParser;
 import fasteval.parser.TextFileParser;
@@ -29,13 +29,14 @@ public class PerfTestMain {
         EvalContext ctx = randomContextFromParser(parser);
 
         // === Interpreted ===
+        // Each backend gets its own rule set instance; neither replaces the other
         FastEvalBuilder interpreted = new FastEvalBuilder(expressionParser,
                 parser.getRules(),
                 parser.getTokens(),
                 parser.getGroups());
 
-        interpreted.usingInterpretation();
-        FastEvalEngine engineInterp = FastEval.withEvaluationContext(ctx);
+        FastEvalRuleSet interpretedSet = interpreted.usingInterpretation();
+        FastEvalEngine engineInterp = interpretedSet.withEvaluationContext(ctx);
 
         System.out.println("Warming up interpreted...");
         for (int i = 0; i < WARMUP; i++) engineInterp.evaluate(ruleToTest);
@@ -44,7 +45,7 @@ public class PerfTestMain {
         long t0 = System.nanoTime();
         for (int i = 0; i < RUNS; i++) {
             EvalContext eval = randomContextFromParser(parser);
-            FastEval.withEvaluationContext(eval).evaluate(ruleToTest);
+            interpretedSet.evaluate(ruleToTest, eval);
         }
         long t1 = System.nanoTime();
         long timeInterp = (t1 - t0) / 1_000_000;
@@ -56,8 +57,8 @@ public class PerfTestMain {
                 parser.getTokens(),
                 parser.getGroups());
 
-        compiled.usingStringCompilation();
-        FastEvalEngine engineCompiled = FastEval.withEvaluationContext(ctx);
+        FastEvalRuleSet compiledSet = compiled.usingStringCompilation();
+        FastEvalEngine engineCompiled = compiledSet.withEvaluationContext(ctx);
 
         System.out.println("Warming up compiled...");
         for (int i = 0; i < WARMUP; i++) engineCompiled.evaluate(ruleToTest);
@@ -66,7 +67,7 @@ public class PerfTestMain {
         long t2 = System.nanoTime();
         for (int i = 0; i < RUNS; i++) {
             EvalContext eval = randomContextFromParser(parser);
-            FastEval.withEvaluationContext(eval).evaluate(ruleToTest);
+            compiledSet.evaluate(ruleToTest, eval);
         }
         long t3 = System.nanoTime();
         long timeCompiled = (t3 - t2) / 1_000_000;
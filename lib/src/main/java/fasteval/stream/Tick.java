@@ -0,0 +1,117 @@
+package fasteval.stream;
+
+import fasteval.context.SlotEvalContext;
+import fasteval.context.TokenSlotLayout;
+
+// One key's token updates, claimed from TransitionPipeline.claim(key) and handed back with
+// publish(). The slot is preallocated in the worker's ring, so filling it allocates nothing;
+// it must not be touched after publish(), or after a setter threw: a rejected tick is dropped.
+public final class Tick<K> {
+    private static final byte DOUBLE = 0;
+    private static final byte INT = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte STRING = 3;
+
+    private final TickRing<K> ring;
+    private final TokenSlotLayout layout;
+    private final byte[] kinds;
+    private final int[] slots;
+    private final long[] values;
+    private final String[] strings;
+
+    // Written by the claiming producer, read by the worker once published
+    long sequence;
+    K key;
+    int count;
+    // Set when a bad update is rejected: the slot is published empty so the worker moves past it
+    boolean discarded;
+
+    Tick(TickRing<K> ring, TokenSlotLayout layout, int capacity) {
+        this.ring = ring;
+        this.layout = layout;
+        this.kinds = new byte[capacity];
+        this.slots = new int[capacity];
+        this.values = new long[capacity];
+        this.strings = new String[capacity];
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public Tick<K> setDouble(String tokenName, double value) {
+        add(DOUBLE, slotOf(tokenName, "double", "a double"), Double.doubleToRawLongBits(value), null);
+        return this;
+    }
+
+    public Tick<K> setInt(String tokenName, int value) {
+        add(INT, slotOf(tokenName, "int", "an int"), value, null);
+        return this;
+    }
+
+    public Tick<K> setBoolean(String tokenName, boolean value) {
+        add(BOOLEAN, slotOf(tokenName, "boolean", "a boolean"), value ? 1 : 0, null);
+        return this;
+    }
+
+    public Tick<K> setString(String tokenName, String value) {
+        add(STRING, slotOf(tokenName, "string", "a string"), 0, value);
+        return this;
+    }
+
+    // Hands the tick to its worker; updates of one key are applied in publish order
+    public void publish() {
+        ring.publish(this);
+    }
+
+    // Applied by the worker in the order the tokens were set
+    void applyTo(SlotEvalContext context) {
+        for (int i = 0; i < count; i++) {
+            switch (kinds[i]) {
+                case DOUBLE -> context.setDouble(slots[i], Double.longBitsToDouble(values[i]));
+                case INT -> context.setInt(slots[i], (int) values[i]);
+                case BOOLEAN -> context.setBoolean(slots[i], values[i] != 0);
+                default -> context.setString(slots[i], strings[i]);
+            }
+        }
+    }
+
+    // Drops references so a consumed slot keeps no key or string alive
+    void clear() {
+        key = null;
+        discarded = false;
+        for (int i = 0; i < count; i++) {
+            strings[i] = null;
+        }
+        count = 0;
+    }
+
+    private void add(byte kind, int slot, long value, String string) {
+        if (count == kinds.length) {
+            discard();
+            throw new IllegalStateException("A tick holds at most " + kinds.length + " token updates");
+        }
+        kinds[count] = kind;
+        slots[count] = slot;
+        values[count] = value;
+        strings[count] = string;
+        count++;
+    }
+
+    private void discard() {
+        if (!discarded) {
+            discarded = true;
+            count = 0;
+            ring.publish(this);
+        }
+    }
+
+    private int slotOf(String tokenName, String type, String description) {
+        int slot = layout.slotOf(tokenName);
+        if (slot < 0 || !type.equals(layout.typeOf(tokenName))) {
+            discard();
+            throw new IllegalArgumentException("Token '" + tokenName + "' is missing or not " + description);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,122 @@
+package fasteval.stream;
+
+import fasteval.context.TokenSlotLayout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Bounded multi-producer, single-consumer ring of preallocated ticks. Producers claim sequences
+// with one getAndIncrement and publish each slot by writing its sequence; the consumer takes
+// every contiguous published slot in one batch and releases the whole batch with one write.
+// A producer that laps the consumer waits for it.
+final class TickRing<K> {
+    private final Tick<K>[] ticks;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    // Producers between the closed check and taking their sequence; close() waits them out
+    private final AtomicInteger claiming = new AtomicInteger();
+    private volatile boolean closed;
+    // Sequence last published in each slot; -1 before the first lap
+    private final AtomicLongArray published;
+    // Next sequence the consumer will read; every slot before it may be reused
+    private volatile long consumed;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TickRing(int capacity, TokenSlotLayout layout, int tokensPerTick) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.ticks = new Tick[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            ticks[i] = new Tick<>(this, layout, tokensPerTick);
+            published.set(i, -1);
+        }
+    }
+
+    Tick<K> claim(K key) {
+        long sequence;
+        claiming.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            sequence = claimed.getAndIncrement();
+        } finally {
+            claiming.decrementAndGet();
+        }
+        for (int idle = 0; sequence - consumed >= ticks.length; idle++) {
+            backOff(idle);
+        }
+        Tick<K> tick = ticks[(int) sequence & mask];
+        tick.sequence = sequence;
+        tick.key = key;
+        return tick;
+    }
+
+    void publish(Tick<K> tick) {
+        published.lazySet((int) tick.sequence & mask, tick.sequence);
+    }
+
+    // Hands every published tick, up to maxBatch, to the consumer; returns how many there were.
+    // A tick whose consumer throws is still released, and the exception goes to onFailure
+    int drain(TickConsumer<K> consumer, Consumer<RuntimeException> onFailure, int maxBatch) {
+        long first = consumed;
+        long next = first;
+        try {
+            while (next - first < maxBatch && published.get((int) next & mask) == next) {
+                Tick<K> tick = ticks[(int) next & mask];
+                try {
+                    consumer.accept(tick);
+                } catch (RuntimeException e) {
+                    onFailure.accept(e);
+                } finally {
+                    tick.clear();
+                    next++;
+                }
+            }
+        } finally {
+            if (next != first) {
+                consumed = next;
+            }
+        }
+        return (int) (next - first);
+    }
+
+    // Refuses new claims; once it returns, claimed() covers every tick that will be published.
+    // A claim still waiting for a free slot gets it as long as the consumer keeps draining
+    void close() {
+        closed = true;
+        for (int idle = 0; claiming.get() > 0; idle++) {
+            backOff(idle);
+        }
+    }
+
+    long consumed() {
+        return consumed;
+    }
+
+    long claimed() {
+        return claimed.get();
+    }
+
+    // Spins briefly, then yields, then sleeps in short parks
+    static void backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    @FunctionalInterface
+    interface TickConsumer<K> {
+        void accept(Tick<K> tick);
+    }
+}
@@ -0,0 +1,15 @@
+package fasteval.stream;
+
+// Receives a group member's result changes for one key, on the worker thread that owns the key.
+// Listeners are shared by all workers, so they must be thread-safe.
+@FunctionalInterface
+public interface TransitionListener<K> {
+
+    // passing: true for false -> true, false for true -> false
+    void transition(K key, int memberIndex, String ruleName, boolean passing);
+
+    // A tick that could not be evaluated or reported (a listener threw, for example); its edges
+    // may be reported again with the key's next tick. The worker goes on either way
+    default void failed(K key, RuntimeException e) {
+    }
+}
@@ -0,0 +1,241 @@
+package fasteval.stream;
+
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupHandle;
+import fasteval.api.GroupResult;
+import fasteval.api.GroupStrategy;
+import fasteval.context.SlotEvalContext;
+import fasteval.context.TokenSlotLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Evaluates one group per key as token updates stream in, and reports only the members whose
+// result changed. Keys are partitioned over single-threaded workers, each fed by its own ring
+// (see TickRing), so a key's ticks are applied and evaluated in publish order by one thread with
+// no locking. A worker keeps per key a SlotEvalContext holding the latest token values and the
+// members that passed last time; a key seen for the first time starts with every member failing.
+//
+//     TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(ruleSet, "alerts")
+//             .workers(4).listener(listener).start();
+//     pipeline.claim("AAPL").setDouble("price", 101.5).setInt("volume", 300).publish();
+//
+// Every tick is evaluated, so no edge is lost to batching; batching only saves the ring's
+// bookkeeping. Per-key state is kept until the pipeline is closed.
+public final class TransitionPipeline<K> implements AutoCloseable {
+    private static final int MAX_BATCH = 256;
+
+    private final Worker<K>[] workers;
+    private volatile boolean closed;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TransitionPipeline(Builder<K> builder) {
+        GroupHandle group = builder.ruleSet.groupHandle(builder.groupName, builder.strategy);
+        List<TransitionListener<K>> listeners = List.copyOf(builder.listeners);
+        this.workers = new Worker[builder.workerCount];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker<>(builder.ruleSet, group, builder.ringCapacity, builder.tokensPerTick, listeners);
+        }
+        for (int i = 0; i < workers.length; i++) {
+            Thread thread = new Thread(workers[i]::run, "fasteval-stream-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    public static <K> Builder<K> builder(FastEvalRuleSet ruleSet, String groupName) {
+        return new Builder<>(ruleSet, groupName);
+    }
+
+    // Claims the next tick of the key's worker; waits while that worker's ring is full
+    public Tick<K> claim(K key) {
+        return workers[partition(key)].ring.claim(key);
+    }
+
+    // Waits until every tick published before the call has been evaluated and reported
+    public void flush() {
+        long[] targets = new long[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            targets[i] = workers[i].ring.claimed();
+        }
+        for (int i = 0; i < workers.length; i++) {
+            for (int idle = 0; workers[i].ring.consumed() < targets[i]; idle++) {
+                TickRing.backOff(idle);
+            }
+        }
+    }
+
+    public long processedTicks() {
+        long total = 0;
+        for (Worker<K> worker : workers) {
+            // Every consumed tick was evaluated or dropped by a failing listener
+            total += worker.ring.consumed();
+        }
+        return total;
+    }
+
+    // Evaluates what was published, then stops the workers
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        // Each ring waits only for its own producers; the workers still run meanwhile
+        for (Worker<K> worker : workers) {
+            worker.ring.close();
+        }
+        flush();
+        for (Worker<K> worker : workers) {
+            worker.running = false;
+        }
+        for (Worker<K> worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int partition(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return Math.floorMod(h * 0x9E3779B9, workers.length);
+    }
+
+    private static final class Worker<K> {
+        private final TickRing<K> ring;
+        private final TokenSlotLayout layout;
+        private final GroupHandle group;
+        private final GroupResult result;
+        private final List<TransitionListener<K>> listeners;
+        private final Map<K, KeyState> states = new HashMap<>();
+        // Scratch: the members passing in the tick being evaluated
+        private final long[] current;
+        private final TickRing.TickConsumer<K> consumer = this::evaluate;
+        // A listener threw out of failed(); the tick is dropped and the worker goes on
+        private final Consumer<RuntimeException> dropped = e -> {
+        };
+
+        Thread thread;
+        volatile boolean running = true;
+
+        Worker(FastEvalRuleSet ruleSet, GroupHandle group, int ringCapacity, int tokensPerTick,
+               List<TransitionListener<K>> listeners) {
+            this.layout = ruleSet.getRuleContext().getTokenSlotLayout();
+            this.ring = new TickRing<>(ringCapacity, layout, tokensPerTick);
+            this.group = group;
+            this.result = group.newResult();
+            this.listeners = listeners;
+            this.current = new long[(group.size() + 63) >>> 6];
+        }
+
+        void run() {
+            int idle = 0;
+            while (running) {
+                int count = ring.drain(consumer, dropped, MAX_BATCH);
+                if (count > 0) {
+                    idle = 0;
+                } else {
+                    TickRing.backOff(idle++);
+                }
+            }
+        }
+
+        private void evaluate(Tick<K> tick) {
+            if (tick.discarded) return;
+            KeyState state = states.get(tick.key);
+            if (state == null) {
+                state = new KeyState(layout.newContext(), new long[current.length]);
+                states.put(tick.key, state);
+            }
+            tick.applyTo(state.context);
+            try {
+                report(tick.key, state.passing, group.evaluate(state.context, result));
+            } catch (RuntimeException e) {
+                for (TransitionListener<K> listener : listeners) {
+                    listener.failed(tick.key, e);
+                }
+            }
+        }
+
+        private void report(K key, long[] previous, GroupResult result) {
+            Arrays.fill(current, 0L);
+            for (int i = result.nextMatch(0); i >= 0; i = result.nextMatch(i + 1)) {
+                current[i >>> 6] |= 1L << i;
+            }
+            for (int word = 0; word < current.length; word++) {
+                long changed = current[word] ^ previous[word];
+                while (changed != 0) {
+                    int memberIndex = (word << 6) + Long.numberOfTrailingZeros(changed);
+                    boolean passing = (current[word] & (1L << memberIndex)) != 0;
+                    for (TransitionListener<K> listener : listeners) {
+                        listener.transition(key, memberIndex, group.memberName(memberIndex), passing);
+                    }
+                    changed &= changed - 1;
+                }
+                previous[word] = current[word];
+            }
+        }
+    }
+
+    private record KeyState(SlotEvalContext context, long[] passing) {
+    }
+
+    public static final class Builder<K> {
+        private final FastEvalRuleSet ruleSet;
+        private final String groupName;
+        private GroupStrategy strategy = GroupStrategy.DEFAULT;
+        private int workerCount = Runtime.getRuntime().availableProcessors();
+        private int ringCapacity = 4096;
+        private int tokensPerTick = 16;
+        private final List<TransitionListener<K>> listeners = new ArrayList<>();
+
+        private Builder(FastEvalRuleSet ruleSet, String groupName) {
+            this.ruleSet = ruleSet;
+            this.groupName = groupName;
+        }
+
+        public Builder<K> strategy(GroupStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        public Builder<K> workers(int workerCount) {
+            if (workerCount <= 0) {
+                throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+            }
+            this.workerCount = workerCount;
+            return this;
+        }
+
+        // Ticks per worker; a power of two
+        public Builder<K> ringCapacity(int ringCapacity) {
+            this.ringCapacity = ringCapacity;
+            return this;
+        }
+
+        // Token updates one tick can hold
+        public Builder<K> tokensPerTick(int tokensPerTick) {
+            if (tokensPerTick <= 0) {
+                throw new IllegalArgumentException("Tokens per tick must be positive: " + tokensPerTick);
+            }
+            this.tokensPerTick = tokensPerTick;
+            return this;
+        }
+
+        public Builder<K> listener(TransitionListener<K> listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        public TransitionPipeline<K> start() {
+            return new TransitionPipeline<>(this);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package fasteval.api;
+
+import fasteval.context.SlotEvalContext;
+import fasteval.model.RuleNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveRuleSetTest {
+
+    private static final String RULES = """
+            tokens:
+                price: double
+                volume: int
+                halted: boolean
+
+            rules:
+                wide: price > 1.0 AND volume > 1 AND (price < 5000.0 OR volume < 5)
+                rare: wide AND halted AND price > 990.0
+                either: price > 500.0 OR wide OR halted
+                mixed: NOT (wide AND price > 995.0) XOR (halted AND volume > 990)
+
+            groups:
+                all:
+                    rare
+                    either
+                    mixed
+            """;
+
+    private FastEvalBuilder builder() throws IOException {
+        return TestRules.load(RULES);
+    }
+
+    private SlotEvalContext randomContext(FastEvalRuleSet ruleSet, Random random) {
+        return ruleSet.newEvalContext()
+                .withDouble("price", random.nextInt(1000))
+                .withInt("volume", random.nextInt(1000))
+                .withBoolean("halted", random.nextInt(10) == 0);
+    }
+
+    @Test
+    public void testDecisiveCheapOperandsMoveFirst() throws IOException {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION, Backend.RULE_SET_COMPILATION)) {
+            try (AdaptiveRuleSet adaptive = AdaptiveRuleSet.of(builder(), backend, 1, Integer.MAX_VALUE, failure::set)) {
+                FastEvalRuleSet first = adaptive.current();
+                Random random = new Random(1);
+                for (int i = 0; i < 2000; i++) {
+                    adaptive.evaluateGroup("all", randomContext(first, random));
+                }
+                assertTrue(adaptive.relink(), backend.name());
+                assertEquals(2, adaptive.version());
+
+                // rare: price > 990 is false 99% of the time and costs one comparison
+                RuleNode rare = adaptive.current().ruleNodeMap().get("rare");
+                assertEquals(RuleNode.Type.AND, rare.getType());
+                assertEquals("price", leftmost(rare).getTokenName(), backend.name());
+                // either: halted is rarely true, so it decides the OR least often and runs last
+                RuleNode either = adaptive.current().ruleNodeMap().get("either");
+                assertEquals(RuleNode.Type.OR, either.getType());
+                assertEquals("halted", either.getRight().getTokenName(), backend.name());
+                // XOR and NOT keep their operands in place
+                RuleNode mixed = adaptive.current().ruleNodeMap().get("mixed");
+                assertEquals(RuleNode.Type.XOR, mixed.getType());
+                assertEquals(RuleNode.Type.NOT, mixed.getLeft().getType());
+
+                // Same results as the written order
+                for (int i = 0; i < 2000; i++) {
+                    SlotEvalContext context = randomContext(first, random);
+                    assertEquals(first.evaluateGroup("all", context), adaptive.current().evaluateGroup("all", context), backend.name());
+                    assertEquals(first.evaluate("mixed", context), adaptive.evaluate("mixed", context));
+                }
+            }
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testNoRelinkWithoutGain() throws IOException {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (AdaptiveRuleSet adaptive = AdaptiveRuleSet.of(builder(), Backend.CLOSURE_COMPILATION, 1, Integer.MAX_VALUE, failure::set)) {
+            Random random = new Random(2);
+            for (int i = 0; i < 2000; i++) {
+                adaptive.evaluateGroup("all", randomContext(adaptive.current(), random));
+            }
+            assertTrue(adaptive.relink());
+            // The reordered version starts a new profile that agrees with its order
+            for (int i = 0; i < 2000; i++) {
+                adaptive.evaluateGroup("all", randomContext(adaptive.current(), random));
+            }
+            assertFalse(adaptive.relink());
+            assertEquals(2, adaptive.version());
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testRelinksInTheBackground() throws Exception {
+        // onFailure runs on the relink thread, where fail() would go unnoticed
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (AdaptiveRuleSet adaptive = AdaptiveRuleSet.of(builder(), Backend.CLOSURE_COMPILATION, 2, 200, failure::set)) {
+            Random random = new Random(3);
+            for (int i = 0; i < 100_000 && adaptive.version() == 1 && failure.get() == null; i++) {
+                adaptive.evaluate("rare", randomContext(adaptive.current(), random));
+                if (i % 1000 == 999) Thread.sleep(1);
+            }
+            assertNull(failure.get());
+            assertEquals(2, adaptive.version());
+        }
+    }
+
+    @Test
+    public void testEvaluatesAfterClose() throws IOException {
+        AdaptiveRuleSet adaptive = AdaptiveRuleSet.of(builder(), Backend.CLOSURE_COMPILATION, 1, 1, e -> {
+        });
+        adaptive.close();
+        // Every evaluation is sampled and asks for a relink, which a closed rule set skips
+        Random random = new Random(4);
+        for (int i = 0; i < 10; i++) {
+            SlotEvalContext context = randomContext(adaptive.current(), random);
+            assertEquals(adaptive.current().evaluate("rare", context), adaptive.evaluate("rare", context));
+            assertEquals(adaptive.current().evaluateGroup("all", context), adaptive.evaluateGroup("all", context));
+        }
+        assertEquals(1, adaptive.version());
+    }
+
+    @Test
+    public void testLeavesTheStaticFacadeAlone() throws IOException {
+        FastEval.loadFromFile(TestRules.write(TestRules.MARKET).toString()).usingInterpretation();
+        try (AdaptiveRuleSet adaptive = AdaptiveRuleSet.of(builder(), Backend.CLOSURE_COMPILATION)) {
+            // busy is only in the rule set the facade was loaded with
+            assertEquals("busy", FastEval.ruleHandle("busy").getName());
+        }
+    }
+
+    private static RuleNode leftmost(RuleNode node) {
+        while (node.getLeft() != null && node.getType() != RuleNode.Type.NOT) {
+            node = node.getLeft();
+        }
+        return node;
+    }
+}
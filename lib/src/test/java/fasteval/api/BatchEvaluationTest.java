@@ -0,0 +1,113 @@
+package fasteval.api;
+
+import fasteval.context.ColumnarBatch;
+import fasteval.context.SlotEvalContext;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.TokenDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluationTest {
+
+    private Path createRulesFile() throws IOException {
+        String content = """
+            tokens:
+                price: double
+                volume: int
+                halted: boolean
+                symbol: string
+
+            rules:
+                priceHigh: price > 50
+                busy: volume >= 700
+                stopped: halted == true
+                alpha: symbol == ALPHA
+                critical: priceHigh AND stopped
+                watch: (busy OR alpha) AND NOT critical
+
+            groups:
+                alerts:
+                    watch
+                    critical
+                    priceHigh
+            """;
+        return TestRules.write(content);
+    }
+
+    private static ColumnarBatch fill(FastEvalRuleSet ruleSet, int rows) {
+        ColumnarBatch batch = ruleSet.newBatch(rows);
+        int price = batch.slotOf("price", "double");
+        int volume = batch.slotOf("volume", "int");
+        int halted = batch.slotOf("halted", "boolean");
+        int symbol = batch.slotOf("symbol", "string");
+        for (int r = 0; r < rows; r++) {
+            batch.setDouble(price, r, r % 100)
+                    .setInt(volume, r, (r * 7) % 1000)
+                    .setBoolean(halted, r, r % 3 == 0)
+                    .setString(symbol, r, r % 5 == 0 ? "ALPHA" : "BETA");
+        }
+        return batch;
+    }
+
+    private static SlotEvalContext rowContext(FastEvalRuleSet ruleSet, int r) {
+        return ruleSet.newEvalContext()
+                .withDouble("price", r % 100)
+                .withInt("volume", (r * 7) % 1000)
+                .withBoolean("halted", r % 3 == 0)
+                .withString("symbol", r % 5 == 0 ? "ALPHA" : "BETA");
+    }
+
+    @Test
+    public void testBatchMatchesRowByRowOnEveryBackend() throws IOException {
+        String file = createRulesFile().toString();
+        // Above the parallel threshold, with a ragged last word
+        int rows = 20_000 + 37;
+        for (Backend backend : Backend.values()) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            ColumnarBatch batch = fill(ruleSet, rows);
+
+            long[] critical = ruleSet.evaluateBatch("critical", batch);
+            BatchResult alerts = ruleSet.evaluateGroupBatch("alerts", batch);
+            assertEquals(List.of("watch", "critical", "priceHigh"), alerts.getMemberNames());
+
+            for (int r = 0; r < rows; r++) {
+                SlotEvalContext ctx = rowContext(ruleSet, r);
+                List<String> expected = ruleSet.evaluateGroup("alerts", ctx);
+                assertEquals(ruleSet.evaluate("critical", ctx), (critical[r >>> 6] & (1L << r)) != 0, backend + " row " + r);
+                for (int m = 0; m < 3; m++) {
+                    assertEquals(expected.contains(alerts.getMemberNames().get(m)), alerts.matched(m, r), backend + " row " + r);
+                }
+            }
+            assertArrayEquals(critical, alerts.bitmap("critical"));
+        }
+    }
+
+    @Test
+    public void testRowContextReadsColumns() throws IOException {
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(createRulesFile().toString()).usingInterpretation();
+        ColumnarBatch batch = fill(ruleSet, 10);
+        var row = batch.rowContext().row(5);
+
+        assertEquals(5.0, row.getDouble("price"));
+        assertEquals(35, row.getInt("volume"));
+        assertFalse(row.getBoolean("halted"));
+        assertEquals("ALPHA", row.getString("symbol"));
+        assertEquals(0, batch.codeOf(batch.slotOf("symbol", "string"), "ALPHA"));
+        assertThrows(IllegalArgumentException.class, () -> row.getDouble("volume"));
+        assertThrows(UnsupportedOperationException.class, () -> row.withDouble("price", 1.0));
+    }
+
+    @Test
+    public void testRejectsMismatchedLayout() throws IOException {
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(createRulesFile().toString()).usingInterpretation();
+        ColumnarBatch other = new ColumnarBatch(new TokenSlotLayout(List.of(new TokenDefinition("price", "double"))), 4);
+
+        assertThrows(IllegalArgumentException.class, () -> ruleSet.evaluateBatch("critical", other));
+        assertThrows(IllegalArgumentException.class, () -> ruleSet.evaluateGroupBatch("alerts", other));
+    }
+}
@@ -0,0 +1,81 @@
+package fasteval.api;
+
+import fasteval.context.SlotEvalContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastEvalRuleSetTest {
+
+    private Path createRulesFile(double threshold) throws IOException {
+        String content = """
+            tokens:
+                stockPrice: double
+                stockHalted: boolean
+
+            rules:
+                priceHigh: stockPrice > %s
+                halted: stockHalted == true
+                critical: priceHigh AND halted
+
+            groups:
+                alerts:
+                    critical
+                    priceHigh
+            """.formatted(threshold);
+        return TestRules.write(content);
+    }
+
+    @Test
+    public void testRuleSetsLiveSideBySide() throws IOException {
+        FastEvalRuleSet low = FastEval.loadFromFile(createRulesFile(10.0).toString()).usingInterpretation();
+        FastEvalRuleSet high = FastEval.loadFromFile(createRulesFile(1000.0).toString()).usingClosureCompilation();
+
+        SlotEvalContext ctx = low.newEvalContext().withDouble("stockPrice", 100.0).withBoolean("stockHalted", true);
+
+        assertTrue(low.evaluate("priceHigh", ctx));
+        assertFalse(high.evaluate("priceHigh", ctx));
+        assertEquals(List.of("critical", "priceHigh"), low.evaluateGroup("alerts", ctx));
+        assertEquals(List.of(), high.evaluateGroup("alerts", ctx));
+
+        // The static facade follows the last built rule set
+        assertFalse(FastEval.withEvaluationContext(ctx).evaluate("priceHigh"));
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(createRulesFile(100.0).toString()).usingInterpretation();
+        GroupHandle alerts = ruleSet.groupHandle("alerts");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    int hits = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        SlotEvalContext ctx = ruleSet.newEvalContext()
+                                .withDouble("stockPrice", i % 200)
+                                .withBoolean("stockHalted", i % 2 == 0);
+                        hits += alerts.evaluate(ctx).size();
+                    }
+                    return hits;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                // Per 200 prices: 101..199 pass priceHigh, the even ones among them are also critical
+                assertEquals(50 * (99 + 49), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package fasteval.api;
+
+import fasteval.context.SlotEvalContext;
+import fasteval.eval.RuleMemo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupResultTest {
+
+    private Path createRulesFile() throws IOException {
+        String content = """
+            tokens:
+                price: double
+                volume: int
+                halted: boolean
+                symbol: string
+
+            rules:
+                priceHigh: price > 50
+                busy: volume >= 700
+                stopped: halted == true
+                alpha: symbol == ALPHA
+                critical: priceHigh AND stopped
+                watch: (busy OR alpha) AND NOT critical
+
+            groups:
+                alerts:
+                    watch
+                    critical
+                    priceHigh
+                    busy
+            """;
+        return TestRules.write(content);
+    }
+
+    private static SlotEvalContext context(FastEvalRuleSet ruleSet, int i) {
+        return ruleSet.newEvalContext()
+                .withDouble("price", i % 100)
+                .withInt("volume", (i * 7) % 1000)
+                .withBoolean("halted", i % 3 == 0)
+                .withString("symbol", i % 5 == 0 ? "ALPHA" : "BETA");
+    }
+
+    @Test
+    public void testResultMatchesListEvaluation() throws IOException {
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(createRulesFile().toString()).usingClosureCompilation();
+        GroupHandle alerts = ruleSet.groupHandle("alerts");
+        GroupResult result = alerts.newResult();
+
+        for (int i = 0; i < 500; i++) {
+            SlotEvalContext ctx = context(ruleSet, i);
+            List<String> expected = ruleSet.evaluateGroup("alerts", ctx);
+
+            ruleSet.evaluateGroup(alerts, ctx, result);
+            assertEquals(expected, result.matchedNames());
+            assertEquals(expected.size(), result.matchCount());
+
+            List<String> fromSink = new ArrayList<>();
+            alerts.evaluate(ctx, new RuleMemo(ruleSet.getRuleContext().getRuleTable().size()),
+                    (memberIndex, ruleId) -> fromSink.add(ruleSet.getRuleContext().getRuleTable().nameOf(ruleId)));
+            assertEquals(expected, fromSink);
+        }
+        assertEquals("busy", result.memberName(3));
+        assertEquals(ruleSet.ruleHandle("busy").getRuleId(), result.ruleId(3));
+    }
+
+    @Test
+    public void testRejectsResultOfAnotherGroup() throws IOException {
+        String file = createRulesFile().toString();
+        FastEvalRuleSet first = FastEval.loadFromFile(file).usingClosureCompilation();
+        FastEvalRuleSet second = FastEval.loadFromFile(file).usingClosureCompilation();
+
+        GroupResult foreign = second.groupHandle("alerts").newResult();
+        assertThrows(IllegalArgumentException.class,
+                () -> first.groupHandle("alerts").evaluate(first.newEvalContext(), foreign));
+        assertThrows(IllegalArgumentException.class,
+                () -> first.evaluateGroup(second.groupHandle("alerts"), first.newEvalContext(), foreign));
+    }
+
+    @Test
+    public void testSteadyStateDoesNotAllocate() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String file = createRulesFile().toString();
+
+        for (Backend backend : List.of(Backend.CLOSURE_COMPILATION, Backend.COMPILATION, Backend.RULE_SET_COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            GroupHandle alerts = ruleSet.groupHandle("alerts");
+            GroupResult result = alerts.newResult();
+            SlotEvalContext[] contexts = new SlotEvalContext[64];
+            for (int i = 0; i < contexts.length; i++) {
+                contexts[i] = context(ruleSet, i);
+            }
+
+            // Warm up, then measure the same loop. A JIT deoptimization can allocate a few bytes
+            // once, so a round may be retried; any per-call garbage shows up in every round.
+            long hits = run(ruleSet, alerts, contexts, result, 50_000);
+            long allocated = -1;
+            for (int round = 0; round < 5 && allocated != 0; round++) {
+                long before = threads.getCurrentThreadAllocatedBytes();
+                hits += run(ruleSet, alerts, contexts, result, 50_000);
+                allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            }
+
+            assertTrue(hits > 0);
+            assertEquals(0, allocated, backend + " allocated " + allocated + " bytes");
+        }
+    }
+
+    private static long run(FastEvalRuleSet ruleSet, GroupHandle alerts, SlotEvalContext[] contexts, GroupResult result, int iterations) {
+        long hits = 0;
+        for (int i = 0; i < iterations; i++) {
+            hits += ruleSet.evaluateGroup(alerts, contexts[i & 63], result).matchCount();
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,141 @@
+package fasteval.api;
+
+import fasteval.context.CountingContext;
+import fasteval.context.SlotEvalContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalEvaluatorTest {
+
+    @Test
+    public void testReportsFlippedRulesAndDependents() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    price: double
+                    halted: boolean
+                    volume: int
+
+                rules:
+                    priceHigh: price > 100.0
+                    busy: volume > 1000
+                    critical: priceHigh AND halted
+                    watch: critical OR busy
+
+                groups:
+                    all:
+                        critical
+                """);
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).usingClosureCompilation();
+        SlotEvalContext context = ruleSet.newEvalContext()
+                .withDouble("price", 50.0)
+                .withBoolean("halted", true)
+                .withInt("volume", 10);
+        IncrementalEvaluator evaluator = ruleSet.incrementalEvaluator(context);
+        assertFalse(evaluator.result("watch"));
+
+        context.withDouble("price", 150.0);
+        assertEquals(List.of("priceHigh", "critical", "watch"), evaluator.update("price"));
+        assertTrue(evaluator.result("watch"));
+
+        // watch stays true through busy, so only busy flips
+        context.withInt("volume", 5000);
+        assertEquals(List.of("busy"), evaluator.update("volume", "unusedToken"));
+
+        context.withBoolean("halted", false);
+        assertEquals(List.of("critical"), evaluator.update(Set.of("halted")));
+        assertEquals(List.of(), evaluator.update("halted"));
+
+        assertThrows(IllegalArgumentException.class, () -> evaluator.result("missing"));
+    }
+
+    @Test
+    public void testMatchesFullEvaluation() throws IOException {
+        Random random = new Random(9);
+        StringBuilder sb = new StringBuilder("tokens:\n");
+        for (int t = 0; t < 20; t++) {
+            sb.append("    t").append(t).append(": int\n");
+        }
+        sb.append("\nrules:\n");
+        for (int i = 0; i < 200; i++) {
+            // Repeated sub-expressions become shared ones; references reach into earlier rules
+            String comparison = "t" + random.nextInt(20) + " > " + random.nextInt(10);
+            String shared = "(t" + random.nextInt(3) + " > 4 AND t" + random.nextInt(3) + " < 6)";
+            String expression = switch (i < 5 ? 0 : random.nextInt(5)) {
+                case 0 -> comparison;
+                case 1 -> "r" + random.nextInt(i) + " AND " + comparison;
+                case 2 -> shared + " OR " + comparison;
+                case 3 -> "NOT r" + random.nextInt(i) + " XOR " + shared;
+                default -> "r" + random.nextInt(i) + " OR (" + comparison + " AND r" + random.nextInt(i) + ")";
+            };
+            sb.append("    r").append(i).append(": ").append(expression).append('\n');
+        }
+        sb.append("\ngroups:\n    all:\n        r0\n");
+        String file = TestRules.write(sb.toString()).toString();
+
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            SlotEvalContext context = ruleSet.newEvalContext();
+            for (int t = 0; t < 20; t++) {
+                context.withInt("t" + t, random.nextInt(10));
+            }
+            IncrementalEvaluator evaluator = ruleSet.incrementalEvaluator(context);
+            Map<String, Boolean> previous = fullEvaluation(ruleSet, context);
+
+            for (int tick = 0; tick < 200; tick++) {
+                List<String> changed = new ArrayList<>();
+                for (int c = random.nextInt(3) + 1; c > 0; c--) {
+                    String token = "t" + random.nextInt(20);
+                    context.withInt(token, random.nextInt(10));
+                    changed.add(token);
+                }
+                Set<String> flipped = new HashSet<>(evaluator.update(changed));
+
+                Map<String, Boolean> current = fullEvaluation(ruleSet, context);
+                for (Map.Entry<String, Boolean> entry : current.entrySet()) {
+                    String ruleName = entry.getKey();
+                    assertEquals(entry.getValue(), evaluator.result(ruleName), backend + " " + ruleName);
+                    assertEquals(!entry.getValue().equals(previous.get(ruleName)), flipped.contains(ruleName), backend + " " + ruleName);
+                }
+                previous = current;
+            }
+            assertEquals(List.of(), evaluator.refresh());
+        }
+    }
+
+    @Test
+    public void testOnlyAffectedRulesAreEvaluated() throws IOException {
+        StringBuilder sb = new StringBuilder("tokens:\n");
+        for (int t = 0; t < 100; t++) {
+            sb.append("    t").append(t).append(": double\n");
+        }
+        sb.append("\nrules:\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append("    r").append(i).append(": t").append(i % 100).append(" > ").append(i % 7).append('\n');
+        }
+        sb.append("    anyOf: r7 OR r8\n\ngroups:\n    all:\n        r0\n");
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(TestRules.write(sb.toString()).toString()).usingClosureCompilation();
+        CountingContext context = new CountingContext(ruleSet.getRuleContext().getTokenSlotLayout());
+        IncrementalEvaluator evaluator = ruleSet.incrementalEvaluator(context);
+        assertEquals(1000, context.doubleReads);
+
+        context.reset();
+        context.withDouble("t7", 5.0);
+        // Ten rules compare t7; anyOf reads r7 and r8 from the kept results
+        assertEquals(Set.of("r7", "r107", "r207", "r407", "r507", "r707", "r807", "r907", "anyOf"),
+                new HashSet<>(evaluator.update("t7")));
+        assertEquals(10, context.doubleReads);
+    }
+
+    private static Map<String, Boolean> fullEvaluation(FastEvalRuleSet ruleSet, SlotEvalContext context) {
+        Map<String, Boolean> results = new HashMap<>();
+        for (String ruleName : ruleSet.getRuleContext().getRuleIds().keySet()) {
+            results.put(ruleName, ruleSet.evaluate(ruleName, context));
+        }
+        return results;
+    }
+}
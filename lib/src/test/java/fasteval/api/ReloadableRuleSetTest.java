@@ -0,0 +1,164 @@
+package fasteval.api;
+
+import fasteval.context.EvalContext;
+import fasteval.context.EvalContextImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReloadableRuleSetTest {
+
+    private static final String TOKENS = """
+            tokens:
+                stockPrice: double
+                stockHalted: boolean
+            """;
+
+    private static String rulesFile(String rules) {
+        return TOKENS + "\nrules:\n" + rules + "\ngroups:\n    alerts:\n        critical\n        halted\n";
+    }
+
+    // Rewrites the file in place, as an edit would
+    private void writeRules(Path file, String rules) throws IOException {
+        Files.writeString(file, rulesFile(rules));
+    }
+
+    private final EvalContext ctx = new EvalContextImpl()
+            .withDouble("stockPrice", 150.0)
+            .withBoolean("stockHalted", true);
+
+    @Test
+    public void testChangedRuleAndDependentsAreRecompiled() throws IOException {
+        for (Backend backend : List.of(Backend.COMPILATION, Backend.STRING_COMPILATION, Backend.CLOSURE_COMPILATION)) {
+            Path file = TestRules.write(rulesFile("""
+                    priceHigh: stockPrice > 100.0
+                    halted: stockHalted == true
+                    critical: priceHigh AND halted
+                    """));
+            ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), backend);
+            FastEvalRuleSet before = reloadable.current();
+            assertTrue(before.evaluate("critical", ctx));
+
+            writeRules(file, """
+                    priceHigh: stockPrice > 200.0
+                    halted: stockHalted == true
+                    critical: priceHigh AND halted
+                    """);
+            ReloadResult result = reloadable.reload();
+            FastEvalRuleSet after = reloadable.current();
+
+            assertEquals(Set.of("priceHigh", "critical"), result.getRecompiled(), backend.name());
+            assertEquals(2, reloadable.version());
+            assertSame(before.getRuleContext().getRules().get("halted"), after.getRuleContext().getRules().get("halted"));
+            assertFalse(after.evaluate("critical", ctx));
+            assertEquals(List.of("halted"), after.evaluateGroup("alerts", ctx));
+
+            // Whoever still holds the old version keeps evaluating it
+            assertTrue(before.evaluate("critical", ctx));
+        }
+    }
+
+    @Test
+    public void testAddedAndRemovedRules() throws IOException {
+        Path file = TestRules.write(rulesFile("""
+                priceHigh: stockPrice > 100.0
+                halted: stockHalted == true
+                critical: priceHigh AND halted
+                unused: stockPrice < 1.0
+                """));
+        ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), Backend.CLOSURE_COMPILATION);
+
+        writeRules(file, """
+                priceHigh: stockPrice > 100.0
+                halted: stockHalted == true
+                veryHigh: stockPrice > 120.0
+                critical: veryHigh AND halted
+                """);
+        ReloadResult result = reloadable.reload();
+
+        assertEquals(Set.of("veryHigh", "critical"), result.getRecompiled());
+        assertEquals(Set.of("unused"), result.getRemoved());
+        assertTrue(reloadable.current().evaluate("critical", ctx));
+        assertThrows(IllegalArgumentException.class, () -> reloadable.current().evaluate("unused", ctx));
+    }
+
+    @Test
+    public void testReloadsLeaveTheStaticFacadeAlone() throws IOException {
+        FastEval.loadFromFile(TestRules.write(TestRules.MARKET).toString()).usingInterpretation();
+        Path file = TestRules.write(rulesFile("""
+                priceHigh: stockPrice > 100.0
+                halted: stockHalted == true
+                critical: priceHigh AND halted
+                """));
+        ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), Backend.INTERPRETATION);
+        writeRules(file, """
+                priceHigh: stockPrice > 200.0
+                halted: stockHalted == true
+                critical: priceHigh AND halted
+                """);
+        assertTrue(reloadable.reload().isFullRebuild());
+
+        // busy is only in the rule set the facade was loaded with
+        assertEquals("busy", FastEval.ruleHandle("busy").getName());
+    }
+
+    @Test
+    public void testUnchangedFileKeepsVersion() throws IOException {
+        Path file = TestRules.write(rulesFile("    halted: stockHalted == true\n    critical: halted\n"));
+        ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), Backend.COMPILATION);
+        FastEvalRuleSet loaded = reloadable.current();
+
+        assertEquals(1, reloadable.reload().getVersion());
+        assertSame(loaded, reloadable.current());
+    }
+
+    @Test
+    public void testFailedReloadKeepsLoadedVersion() throws IOException {
+        Path file = TestRules.write(rulesFile("    halted: stockHalted == true\n    critical: halted\n"));
+        ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), Backend.CLOSURE_COMPILATION);
+
+        writeRules(file, "    halted: stockHalted == true\n    critical: missingRule\n");
+
+        assertThrows(IllegalArgumentException.class, reloadable::reload);
+        assertEquals(1, reloadable.version());
+        assertTrue(reloadable.current().evaluate("critical", ctx));
+    }
+
+    @Test
+    public void testAddedRuleDoesNotReuseSharedSubexpressionId() throws IOException {
+        for (Backend backend : List.of(Backend.COMPILATION, Backend.STRING_COMPILATION, Backend.CLOSURE_COMPILATION)) {
+            Path file = TestRules.write(TOKENS + """
+                    rules:
+                        critical: (stockPrice > 100.0 AND stockHalted == true) OR stockPrice < 0.0
+                        halted: (stockPrice > 100.0 AND stockHalted == true) OR stockHalted == false
+                    groups:
+                        alerts:
+                            critical
+                            halted
+                    """);
+            ReloadableRuleSet reloadable = ReloadableRuleSet.load(file.toString(), backend);
+
+            // The reused rules still memoize their shared AND; the new rule must get an id of its own
+            Files.writeString(file, TOKENS + """
+                    rules:
+                        critical: (stockPrice > 100.0 AND stockHalted == true) OR stockPrice < 0.0
+                        halted: (stockPrice > 100.0 AND stockHalted == true) OR stockHalted == false
+                        cheap: stockPrice < 1.0
+                    groups:
+                        alerts:
+                            critical
+                            halted
+                            cheap
+                    """);
+            reloadable.reload();
+
+            assertEquals(List.of("critical", "halted"), reloadable.current().evaluateGroup("alerts", ctx), backend.name());
+        }
+    }
+}
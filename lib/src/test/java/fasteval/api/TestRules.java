@@ -0,0 +1,48 @@
+package fasteval.api;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Rule files for tests, and the small market rule set the backend tests share: references
+// between rules, a sub-expression that busy and watch share, and one group holding every rule
+public final class TestRules {
+
+    public static final String MARKET = market("100.0");
+
+    private TestRules() {
+    }
+
+    public static String market(String priceThreshold) {
+        return """
+                tokens:
+                    price: double
+                    volume: int
+                    halted: boolean
+
+                rules:
+                    priceHigh: price > %s
+                    busy: volume > 1000 AND (price > 50.0 OR halted)
+                    critical: priceHigh AND halted
+                    watch: critical OR (volume > 1000 AND (price > 50.0 OR halted))
+
+                groups:
+                    all:
+                        priceHigh
+                        busy
+                        critical
+                        watch
+                """.formatted(priceThreshold);
+    }
+
+    // A new temp file holding the rules
+    public static Path write(String rules) throws IOException {
+        Path file = Files.createTempFile("rules", ".txt");
+        Files.writeString(file, rules);
+        return file;
+    }
+
+    public static FastEvalBuilder load(String rules) throws IOException {
+        return FastEval.loadFromFile(write(rules).toString());
+    }
+}
@@ -0,0 +1,69 @@
+package fasteval.api;
+
+import fasteval.compilation.TieredRule;
+import fasteval.context.SlotEvalContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredCompilationTest {
+
+    private static TieredRule tiered(FastEvalRuleSet ruleSet, String ruleName) {
+        return (TieredRule) ruleSet.getRuleContext().getRules().get(ruleName);
+    }
+
+    @Test
+    public void testHotRulesCompileInBackground() throws Exception {
+        String file = TestRules.write(TestRules.MARKET).toString();
+        FastEvalRuleSet tieredSet = FastEval.loadFromFile(file).usingTieredCompilation(TieringPolicy.hotAfter(20));
+        FastEvalRuleSet interpreted = FastEval.loadFromFile(file).usingInterpretation();
+        assertFalse(tiered(tieredSet, "watch").isCompiled());
+
+        Random random = new Random(3);
+        long deadline = System.currentTimeMillis() + 60_000;
+        // Results stay the same while rules move from the interpreter to compiled code
+        while (!tiered(tieredSet, "watch").isCompiled() || !tiered(tieredSet, "critical").isCompiled()) {
+            assertTrue(System.currentTimeMillis() < deadline, "watch was not compiled");
+            SlotEvalContext context = tieredSet.newEvalContext()
+                    .withDouble("price", random.nextInt(200))
+                    .withInt("volume", random.nextInt(2000))
+                    .withBoolean("halted", random.nextBoolean());
+            assertEquals(interpreted.evaluateGroup("all", context), tieredSet.evaluateGroup("all", context));
+            assertEquals(interpreted.evaluate("watch", context), tieredSet.evaluate("watch", context));
+            Thread.sleep(1);
+        }
+
+        SlotEvalContext context = tieredSet.newEvalContext()
+                .withDouble("price", 150.0)
+                .withInt("volume", 10)
+                .withBoolean("halted", true);
+        assertEquals(List.of("priceHigh", "critical", "watch"), tieredSet.evaluateGroup("all", context));
+    }
+
+    @Test
+    public void testLazyPolicyCompilesOnFirstUse() throws IOException {
+        FastEvalRuleSet ruleSet = TestRules.load(TestRules.MARKET)
+                .usingTieredCompilation(TieringPolicy.lazy().compiledWith(Backend.COMPILATION));
+        SlotEvalContext context = ruleSet.newEvalContext()
+                .withDouble("price", 150.0)
+                .withInt("volume", 10)
+                .withBoolean("halted", true);
+
+        assertTrue(ruleSet.evaluate("critical", context));
+        assertTrue(tiered(ruleSet, "critical").isCompiled());
+        // critical reaches priceHigh through its wrapper, which compiled it on first use too
+        assertTrue(tiered(ruleSet, "priceHigh").isCompiled());
+        assertFalse(tiered(ruleSet, "busy").isCompiled());
+        assertFalse(tiered(ruleSet, "watch").isCompiled());
+    }
+
+    @Test
+    public void testPolicyValidation() {
+        assertThrows(IllegalArgumentException.class, () -> TieringPolicy.hotAfter(0));
+        assertThrows(IllegalArgumentException.class, () -> TieringPolicy.lazy().compiledWith(Backend.INTERPRETATION));
+    }
+}
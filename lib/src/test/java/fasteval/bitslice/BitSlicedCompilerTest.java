@@ -0,0 +1,99 @@
+package fasteval.bitslice;
+
+import fasteval.context.BatchRowContext;
+import fasteval.context.ColumnarBatch;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.eval.RuleNodeEvaluator;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitSlicedCompilerTest {
+
+    private static final List<TokenDefinition> TOKENS = List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("volume", "int"),
+            new TokenDefinition("halted", "boolean"),
+            new TokenDefinition("symbol", "string"));
+
+    private static Map<String, RuleNode> parse(Map<String, String> expressions, TokenSlotLayout layout) {
+        Set<RuleDefinition> rules = new HashSet<>();
+        expressions.forEach((name, expression) -> rules.add(new RuleDefinition(name, expression)));
+        return new ExpressionParser(rules, TOKENS, layout).parseAllToMap();
+    }
+
+    private static ColumnarBatch batch(TokenSlotLayout layout, int rows) {
+        ColumnarBatch batch = new ColumnarBatch(layout, rows);
+        for (int r = 0; r < rows; r++) {
+            batch.setDouble(0, r, r % 7 == 0 ? Double.NaN : r % 100)
+                    .setInt(0, r, (r * 13) % 500)
+                    .setBoolean(0, r, r % 4 == 1)
+                    // Every third row has no symbol
+                    .setString(0, r, r % 3 == 0 ? null : r % 2 == 0 ? "ALPHA" : "BETA");
+        }
+        return batch;
+    }
+
+    @Test
+    public void testMatchesRowEvaluation() {
+        TokenSlotLayout layout = new TokenSlotLayout(TOKENS);
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put("high", "price > 40.5");
+        expressions.put("notHigh", "NOT price > 40.5");
+        expressions.put("samePrice", "price == 12 OR price != 13");
+        expressions.put("volumeBand", "volume >= 100 AND volume <= 300 AND volume != 200");
+        expressions.put("stopped", "halted == true");
+        expressions.put("running", "halted != true");
+        expressions.put("alpha", "symbol == ALPHA");
+        expressions.put("notAlpha", "symbol != ALPHA");
+        expressions.put("gamma", "symbol == GAMMA");
+        expressions.put("notGamma", "symbol != GAMMA");
+        expressions.put("mixed", "(high XOR stopped) OR (alpha AND NOT volumeBand)");
+        expressions.put("deep", "mixed AND NOT notGamma OR running");
+        Map<String, RuleNode> nodes = parse(expressions, layout);
+        Map<String, Integer> ruleIds = new HashMap<>();
+        List<String> names = new ArrayList<>(expressions.keySet());
+        for (int i = 0; i < names.size(); i++) {
+            // Ids deliberately not in dependency order
+            ruleIds.put(names.get(i), names.size() - 1 - i);
+        }
+
+        BitSlicedRuleSet bitSliced = new BitSlicedCompiler(Map.of()).compileAll(nodes, ruleIds);
+        int rows = 1000 + 13;
+        ColumnarBatch batch = batch(layout, rows);
+        int[] ids = names.stream().mapToInt(ruleIds::get).toArray();
+        long[][] bitmaps = bitSliced.evaluate(ids, batch);
+
+        BatchRowContext row = batch.rowContext();
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(0, bitmaps[i][bitmaps[i].length - 1] >>> (rows & 63), "bits past the last row");
+            for (int r = 0; r < rows; r++) {
+                boolean expected = new RuleNodeEvaluator(row.row(r), nodes, Map.of()).evaluate(nodes.get(names.get(i)));
+                assertEquals(expected, (bitmaps[i][r >>> 6] & (1L << r)) != 0, names.get(i) + " row " + r);
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedRulesAndTheirDependentsAreLeftOut() {
+        TokenSlotLayout layout = new TokenSlotLayout(TOKENS);
+        Map<String, String> expressions = Map.of(
+                "ok", "price > 1",
+                "bad", "halted > true",
+                "dependsOnBad", "ok AND bad");
+        Map<String, Integer> ruleIds = Map.of("ok", 0, "bad", 1, "dependsOnBad", 2);
+
+        BitSlicedRuleSet bitSliced = new BitSlicedCompiler(Map.of()).compileAll(parse(expressions, layout), ruleIds);
+
+        assertTrue(bitSliced.supports(0));
+        assertFalse(bitSliced.supports(1));
+        assertFalse(bitSliced.supports(2));
+        assertThrows(IllegalArgumentException.class, () -> bitSliced.evaluate(2, batch(layout, 4)));
+    }
+}
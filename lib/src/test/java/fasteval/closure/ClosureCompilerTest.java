@@ -0,0 +1,89 @@
+package fasteval.closure;
+
+import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.context.EvalContextImpl;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.eval.RuleMemo;
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClosureCompilerTest {
+
+    private final Map<String, RuleNode> ruleNodeMap = new ExpressionParser(Set.of(
+            new RuleDefinition("priceHigh", "price > 100,5"),
+            new RuleDefinition("bigVolume", "volume >= 1000"),
+            new RuleDefinition("halted", "stockHalted == true"),
+            new RuleDefinition("isAlpha", "symbol == ALPHA"),
+            new RuleDefinition("critical", "(priceHigh AND halted) OR NOT isAlpha"),
+            new RuleDefinition("alert", "critical XOR bigVolume")
+    ), List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("volume", "int"),
+            new TokenDefinition("stockHalted", "boolean"),
+            new TokenDefinition("symbol", "string")
+    )).parseAllToMap();
+
+    private final List<String> order = RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap);
+    private final Map<String, Integer> ruleIds = RuleNodeReferenceFinder.assignRuleIds(order);
+    private final Map<String, CompiledRule> rules = new ClosureCompiler().compileAll(ruleNodeMap, order, ruleIds);
+
+    @Test
+    public void testComparisons() {
+        EvalContextImpl ctx = new EvalContextImpl()
+                .withDouble("price", 100.6)
+                .withInt("volume", 999)
+                .withBoolean("stockHalted", false)
+                .withString("symbol", "ALPHA");
+
+        assertTrue(rules.get("priceHigh").evaluate(ctx));
+        assertFalse(rules.get("bigVolume").evaluate(ctx));
+        assertFalse(rules.get("halted").evaluate(ctx));
+        assertTrue(rules.get("isAlpha").evaluate(ctx));
+    }
+
+    @Test
+    public void testReferencesAndLogic() {
+        EvalContextImpl ctx = new EvalContextImpl()
+                .withDouble("price", 150.0)
+                .withInt("volume", 1000)
+                .withBoolean("stockHalted", true)
+                .withString("symbol", "ALPHA");
+
+        assertTrue(rules.get("critical").evaluate(ctx));
+        assertFalse(rules.get("alert").evaluate(ctx));
+
+        ctx.withString("symbol", "BETA").withBoolean("stockHalted", false);
+        assertTrue(rules.get("critical").evaluate(ctx));
+    }
+
+    @Test
+    public void testReferencesAreMemoized() {
+        EvalContextImpl ctx = new EvalContextImpl()
+                .withDouble("price", 150.0)
+                .withInt("volume", 0)
+                .withBoolean("stockHalted", true)
+                .withString("symbol", "ALPHA");
+        RuleMemo memo = new RuleMemo(ruleIds.size());
+
+        assertTrue(rules.get("alert").evaluate(ctx, memo));
+        assertTrue(memo.isComputed(ruleIds.get("critical")));
+        assertTrue(memo.result(ruleIds.get("priceHigh")));
+    }
+
+    @Test
+    public void testUnknownOperatorFailsAtCompileTime() {
+        RuleNode node = RuleNode.comparison("stockHalted", ">", "true");
+        node.setTokenType("boolean");
+
+        assertThrows(IllegalArgumentException.class, () -> new ClosureCompiler().compile(node, Map.of(), ruleIds));
+    }
+}
@@ -0,0 +1,124 @@
+package fasteval.compilation;
+
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.TestRules;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.SlotEvalContext;
+import fasteval.model.RuleNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassCacheTest {
+
+    private static Map<Path, FileTime> entries(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            Map<Path, FileTime> entries = new HashMap<>();
+            for (Path file : files.collect(Collectors.toList())) {
+                entries.put(file, Files.getLastModifiedTime(file));
+            }
+            return entries;
+        }
+    }
+
+    private static List<String> evaluate(FastEvalRuleSet ruleSet) {
+        SlotEvalContext context = ruleSet.newEvalContext()
+                .withDouble("price", 150.0)
+                .withInt("volume", 2000)
+                .withBoolean("halted", true);
+        return ruleSet.evaluateGroup("all", context);
+    }
+
+    @Test
+    public void testUnchangedRulesAreLoadedFromCache() throws IOException {
+        Path directory = Files.createTempDirectory("class-cache");
+        String file = TestRules.write(TestRules.MARKET).toString();
+
+        List<String> expected = evaluate(FastEval.loadFromFile(file).usingInterpretation());
+        assertEquals(expected, evaluate(FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation()));
+        Map<Path, FileTime> first = entries(directory);
+        assertEquals(4, first.size());
+
+        // A hit is never rewritten
+        assertEquals(expected, evaluate(FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation()));
+        assertEquals(first, entries(directory));
+
+        // Changing priceHigh gives it and the rules above it new keys; busy still hits
+        String changed = TestRules.write(TestRules.market("120.0")).toString();
+        assertEquals(evaluate(FastEval.loadFromFile(changed).usingInterpretation()),
+                evaluate(FastEval.loadFromFile(changed).withClassCache(directory).usingStringCompilation()));
+        assertEquals(7, entries(directory).size());
+    }
+
+    @Test
+    public void testKeysFollowDependenciesAndIds() throws IOException {
+        ClassCache cache = new ClassCache(Files.createTempDirectory("class-cache"));
+        FastEvalRuleSet ruleSet = TestRules.load(TestRules.MARKET).usingInterpretation();
+        Map<String, Integer> ruleIds = ruleSet.getRuleContext().getRuleIds();
+        FastEvalRuleSet other = TestRules.load(TestRules.market("100.5")).usingInterpretation();
+
+        Map<String, String> keys = cache.keys(nodes(ruleSet), ruleIds.keySet(), ruleIds);
+        assertEquals(keys, cache.keys(nodes(ruleSet), ruleIds.keySet(), ruleIds));
+        assertEquals(4, new HashSet<>(keys.values()).size());
+
+        Map<String, String> otherKeys = cache.keys(nodes(other), ruleIds.keySet(), ruleIds);
+        for (String ruleName : List.of("priceHigh", "critical", "watch")) {
+            assertNotEquals(keys.get(ruleName), otherKeys.get(ruleName), ruleName);
+        }
+        assertEquals(keys.get("busy"), otherKeys.get("busy"));
+
+        // The memo id a reference is read through is compiled into the class
+        Map<String, Integer> shifted = new HashMap<>(ruleIds);
+        shifted.put("priceHigh", 42);
+        assertNotEquals(keys.get("critical"), cache.keys(nodes(ruleSet), List.of("critical"), shifted).get("critical"));
+    }
+
+    @Test
+    public void testUnreadableEntryIsRecompiled() throws IOException {
+        Path directory = Files.createTempDirectory("class-cache");
+        String file = TestRules.write(TestRules.MARKET).toString();
+        List<String> expected = evaluate(FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation());
+
+        for (Path entry : entries(directory).keySet()) {
+            Files.write(entry, new byte[]{(byte) 0xCA, (byte) 0xFE, 1, 2, 3});
+        }
+        assertEquals(expected, evaluate(FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation()));
+        for (Path entry : entries(directory).keySet()) {
+            assertTrue(Files.size(entry) > 5, "entry was not rewritten: " + entry);
+        }
+    }
+
+    @Test
+    public void testUnreadableEntryIsNotCountedTwice() throws IOException {
+        Path directory = Files.createTempDirectory("class-cache");
+        String file = TestRules.write(TestRules.MARKET).toString();
+        FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation();
+        Map<Path, byte[]> valid = new HashMap<>();
+        for (Path entry : entries(directory).keySet()) {
+            valid.put(entry, Files.readAllBytes(entry));
+        }
+
+        // One bad entry at a time, so that some come after classes already defined from the cache
+        for (Path bad : valid.keySet()) {
+            for (Map.Entry<Path, byte[]> entry : valid.entrySet()) {
+                Files.write(entry.getKey(), entry.getKey().equals(bad) ? new byte[]{(byte) 0xCA, (byte) 0xFE, 1, 2, 3} : entry.getValue());
+            }
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).withClassCache(directory).usingStringCompilation();
+            // Four rules and one group class
+            assertEquals(5, ruleSet.getClassSpace().getClassCount(), bad.toString());
+        }
+    }
+
+    private static Map<String, RuleNode> nodes(FastEvalRuleSet ruleSet) {
+        return ((ObjectRuleContext) ruleSet.getRuleContext()).getRuleNodeMap();
+    }
+}
@@ -0,0 +1,94 @@
+package fasteval.compilation;
+
+import fasteval.api.Backend;
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupHandle;
+import fasteval.api.GroupResult;
+import fasteval.api.TestRules;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.RuleTable;
+import fasteval.context.SlotEvalContext;
+import fasteval.model.RuleNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupCompilationTest {
+
+    // Enough members for several generated methods and mask words, some listed twice
+    private Path createRulesFile(int ruleCount) throws IOException {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder("tokens:\n    price: double\n    volume: int\n    halted: boolean\n    symbol: string\n\nrules:\n");
+        for (int i = 0; i < ruleCount; i++) {
+            String expression = switch (i < 10 ? 0 : random.nextInt(4)) {
+                case 0 -> "price > " + random.nextInt(100) + " AND halted == " + random.nextBoolean();
+                case 1 -> "volume <= " + random.nextInt(1000) + " XOR symbol == ALPHA";
+                case 2 -> "r" + random.nextInt(i) + " AND NOT r" + random.nextInt(i);
+                default -> "(r" + random.nextInt(i) + " OR price != " + random.nextInt(100) + ") AND volume > " + random.nextInt(500);
+            };
+            sb.append("    r").append(i).append(": ").append(expression).append('\n');
+        }
+        sb.append("\ngroups:\n    all:\n");
+        for (int i = ruleCount - 1; i >= 0; i--) {
+            sb.append("        r").append(i).append('\n');
+            if (i % 50 == 0) sb.append("        r").append(i / 2).append('\n');
+        }
+        sb.append("    few:\n        r3\n        r1\n");
+        return TestRules.write(sb.toString());
+    }
+
+    @Test
+    public void testCompiledGroupsMatchInterpretation() throws IOException {
+        String file = createRulesFile(400).toString();
+        FastEvalRuleSet interpreted = FastEval.loadFromFile(file).usingInterpretation();
+
+        for (Backend backend : List.of(Backend.COMPILATION, Backend.STRING_COMPILATION, Backend.RULE_SET_COMPILATION)) {
+            FastEvalRuleSet compiled = FastEval.loadFromFile(file).using(backend);
+            assertNotNull(compiled.getRuleContext().getRuleTable().compiledGroup("all"), backend.toString());
+
+            GroupHandle all = compiled.groupHandle("all");
+            GroupResult result = all.newResult();
+            Random random = new Random(11);
+            for (int i = 0; i < 200; i++) {
+                SlotEvalContext ctx = compiled.newEvalContext()
+                        .withDouble("price", random.nextInt(100))
+                        .withInt("volume", random.nextInt(1000))
+                        .withBoolean("halted", random.nextBoolean())
+                        .withString("symbol", random.nextBoolean() ? "ALPHA" : "BETA");
+
+                List<String> expected = interpreted.evaluateGroup("all", ctx);
+                assertEquals(expected, compiled.evaluateGroup("all", ctx), backend + " context " + i);
+                assertEquals(expected, compiled.evaluateGroup(all, ctx, result).matchedNames(), backend + " context " + i);
+                assertEquals(interpreted.evaluateGroup("few", ctx), compiled.evaluateGroup("few", ctx));
+            }
+        }
+    }
+
+    @Test
+    public void testGroupPlanSplitsIntoMethods() throws IOException {
+        String file = createRulesFile(400).toString();
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).usingInterpretation();
+        RuleTable ruleTable = ruleSet.getRuleContext().getRuleTable();
+        List<String> members = ruleSet.getRuleContext().getRuleGroups().get("all");
+
+        Map<String, RuleNode> ruleNodes = ((ObjectRuleContext) ruleSet.getRuleContext()).getRuleNodeMap();
+        GroupPlan plan = new GroupPlan(members, ruleNodes, ruleSet.getRuleContext().getRuleIds());
+
+        assertEquals(400, plan.evaluationOrder().size());
+        assertTrue(plan.chunks().size() > 1);
+        assertEquals(400, plan.chunks().stream().mapToInt(List::size).sum());
+        // r0 is listed once as itself and once as r(0 / 2)
+        assertEquals(2, plan.memberIndexes("r0").size());
+        for (int i = 1; i < plan.evaluationOrder().size(); i++) {
+            assertTrue(ruleTable.idOf(plan.evaluationOrder().get(i - 1)) < ruleTable.idOf(plan.evaluationOrder().get(i)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new GroupPlan(List.of("missing"), ruleNodes, ruleSet.getRuleContext().getRuleIds()));
+    }
+}
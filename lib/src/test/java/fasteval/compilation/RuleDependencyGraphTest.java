@@ -0,0 +1,67 @@
+package fasteval.compilation;
+
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleDependencyGraphTest {
+
+    private final List<TokenDefinition> tokens = List.of(new TokenDefinition("price", "double"));
+
+    private Map<String, RuleNode> parse(RuleDefinition... rules) {
+        return new ExpressionParser(Set.of(rules), tokens).parseAllToMap();
+    }
+
+    @Test
+    public void testLevels() {
+        RuleDependencyGraph graph = new RuleDependencyGraph(parse(
+                new RuleDefinition("a", "price > 1.0"),
+                new RuleDefinition("b", "price > 2.0"),
+                new RuleDefinition("c", "a AND b"),
+                new RuleDefinition("d", "c OR a")
+        ));
+
+        List<List<String>> levels = graph.levels();
+        assertEquals(3, levels.size());
+        assertEquals(Set.of("a", "b"), new HashSet<>(levels.get(0)));
+        assertEquals(List.of("c"), levels.get(1));
+        assertEquals(List.of("d"), levels.get(2));
+        assertEquals(List.of(List.of("c"), List.of("d")), graph.levels(List.of("d", "c")));
+        assertEquals(Set.of("b", "c", "d"), graph.withDependents(Set.of("b")));
+    }
+
+    @Test
+    public void testCycleIsReportedWithItsPath() {
+        Map<String, RuleNode> ruleNodeMap = new LinkedHashMap<>(parse(
+                new RuleDefinition("a", "price > 1.0"),
+                new RuleDefinition("x", "a AND y"),
+                new RuleDefinition("y", "z"),
+                new RuleDefinition("z", "x OR a")
+        ));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new RuleDependencyGraph(ruleNodeMap));
+        String message = e.getMessage();
+        assertTrue(message.startsWith("Cyclic dependency in rules: "), message);
+
+        // The same cycle, starting from whichever rule was found first
+        List<String> path = List.of(message.substring("Cyclic dependency in rules: ".length()).split(" -> "));
+        assertEquals(4, path.size());
+        assertEquals(path.get(0), path.get(3));
+        assertEquals(Set.of("x", "y", "z"), new HashSet<>(path));
+        int x = path.indexOf("x");
+        assertEquals("y", path.get(x + 1));
+    }
+
+    @Test
+    public void testSelfReference() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new RuleDependencyGraph(parse(new RuleDefinition("loop", "loop AND price > 1.0"))));
+        assertEquals("Cyclic dependency in rules: loop -> loop", e.getMessage());
+    }
+}
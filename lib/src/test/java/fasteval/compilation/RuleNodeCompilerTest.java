@@ -0,0 +1,107 @@
+package fasteval.compilation;
+
+import fasteval.context.EvalContext;
+import fasteval.context.EvalContextImpl;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.CompiledRule;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleNodeCompilerTest {
+
+    private final List<TokenDefinition> tokens = List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("qty", "int"),
+            new TokenDefinition("halted", "boolean"),
+            new TokenDefinition("symbol", "string")
+    );
+
+    private Map<String, CompiledRule> compileAll(boolean stringMode, RuleDefinition... rules) {
+        ExpressionParser parser = new ExpressionParser(Set.of(rules), tokens);
+        Map<String, RuleNode> nodes = parser.parseAllToMap();
+        RuleNodeCompiler compiler = new RuleNodeCompiler(stringMode);
+
+        // Definitions are passed in dependency order
+        Map<String, CompiledRule> compiled = new HashMap<>();
+        for (RuleDefinition rule : rules) {
+            compiled.put(rule.getName(), compiler.compile(rule.getName(), nodes.get(rule.getName()), compiled));
+        }
+        return compiled;
+    }
+
+    private EvalContext ctx(double price, int qty, boolean halted, String symbol) {
+        return new EvalContextImpl()
+                .withDouble("price", price)
+                .withInt("qty", qty)
+                .withBoolean("halted", halted)
+                .withString("symbol", symbol);
+    }
+
+    @Test
+    public void testByteBuddyComparesAllTokenTypes() {
+        Map<String, CompiledRule> rules = compileAll(false,
+                new RuleDefinition("priceHigh", "price >= 100.5"),
+                new RuleDefinition("qtyLow", "qty < 10"),
+                new RuleDefinition("running", "halted != true"),
+                new RuleDefinition("alpha", "symbol == ALPHA"),
+                new RuleDefinition("notBeta", "symbol != BETA"));
+
+        EvalContext ctx = ctx(100.5, 12, false, "ALPHA");
+
+        assertTrue(rules.get("priceHigh").evaluate(ctx));
+        assertFalse(rules.get("qtyLow").evaluate(ctx));
+        assertTrue(rules.get("running").evaluate(ctx));
+        assertTrue(rules.get("alpha").evaluate(ctx));
+        assertTrue(rules.get("notBeta").evaluate(ctx));
+    }
+
+    @Test
+    public void testByteBuddyLogicalOperatorsAndReferences() {
+        Map<String, CompiledRule> rules = compileAll(false,
+                new RuleDefinition("priceHigh", "price > 100.0"),
+                new RuleDefinition("critical", "priceHigh AND halted"),
+                new RuleDefinition("either", "critical OR qty == 3"),
+                new RuleDefinition("exclusive", "priceHigh XOR NOT halted"));
+
+        assertTrue(rules.get("critical").evaluate(ctx(150.0, 0, true, "A")));
+        assertFalse(rules.get("critical").evaluate(ctx(50.0, 0, true, "A")));
+        assertTrue(rules.get("either").evaluate(ctx(50.0, 3, false, "A")));
+        assertFalse(rules.get("exclusive").evaluate(ctx(150.0, 0, false, "A")));
+        assertTrue(rules.get("exclusive").evaluate(ctx(150.0, 0, true, "A")));
+    }
+
+    @Test
+    public void testByteBuddyAndShortCircuits() {
+        Map<String, CompiledRule> rules = compileAll(false,
+                new RuleDefinition("guarded", "halted AND symbol == ALPHA"));
+
+        // symbol is never set: the right operand must not be evaluated
+        EvalContext ctx = new EvalContextImpl().withBoolean("halted", false);
+
+        assertFalse(rules.get("guarded").evaluate(ctx));
+    }
+
+    @Test
+    public void testByteBuddyMatchesStringCompiler() {
+        RuleDefinition[] definitions = {
+                new RuleDefinition("a", "price < 20,5 OR qty != 4"),
+                new RuleDefinition("b", "NOT a AND (halted == false XOR symbol == X)")
+        };
+        Map<String, CompiledRule> byteBuddy = compileAll(false, definitions);
+        Map<String, CompiledRule> javac = compileAll(true, definitions);
+
+        for (EvalContext ctx : List.of(ctx(10.0, 4, false, "X"), ctx(30.0, 4, true, "Y"), ctx(30.0, 5, false, "X"))) {
+            assertEquals(javac.get("a").evaluate(ctx), byteBuddy.get("a").evaluate(ctx));
+            assertEquals(javac.get("b").evaluate(ctx), byteBuddy.get("b").evaluate(ctx));
+        }
+    }
+}
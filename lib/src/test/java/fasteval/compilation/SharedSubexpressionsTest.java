@@ -0,0 +1,84 @@
+package fasteval.compilation;
+
+import fasteval.api.Backend;
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupHandle;
+import fasteval.api.TestRules;
+import fasteval.context.CountingContext;
+import fasteval.context.ObjectRuleContext;
+import fasteval.model.RuleNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedSubexpressionsTest {
+
+    private static final String RULES = """
+            tokens:
+                price: double
+                volume: int
+                halted: boolean
+                symbol: string
+
+            rules:
+                open: (price > 50.0 AND volume < 5) OR halted
+                alpha: ((price > 50.0 AND volume < 5) OR halted) AND symbol == ALPHA
+                closed: NOT ((price > 50.0 AND volume < 5) OR halted)
+                other: price > 50.0 AND volume < 6
+
+            groups:
+                all:
+                    open
+                    alpha
+                    closed
+                    other
+            """;
+
+    private String createRulesFile() throws IOException {
+        Path tempFile = TestRules.write(RULES);
+        return tempFile.toString();
+    }
+
+    @Test
+    public void testEqualSubexpressionsAreOneNode() throws IOException {
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(createRulesFile()).usingInterpretation();
+        Map<String, RuleNode> nodes = ((ObjectRuleContext) ruleSet.getRuleContext()).getRuleNodeMap();
+
+        RuleNode shared = nodes.get("open");
+        assertSame(shared, nodes.get("alpha").getLeft());
+        assertSame(shared, nodes.get("closed").getLeft());
+        assertSame(shared.getLeft().getLeft(), nodes.get("other").getLeft());
+        assertNotSame(shared.getLeft(), nodes.get("other"));
+
+        assertTrue(shared.getSharedId() >= 4);
+        // Comparisons are shared in memory but cheaper to repeat than to memoize
+        assertEquals(-1, nodes.get("other").getLeft().getSharedId());
+        assertEquals(-1, nodes.get("other").getSharedId());
+    }
+
+    @Test
+    public void testSharedSubexpressionIsEvaluatedOncePerGroup() throws IOException {
+        String file = createRulesFile();
+        for (Backend backend : Backend.values()) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            GroupHandle all = ruleSet.groupHandle("all");
+
+            CountingContext context = new CountingContext(ruleSet.getRuleContext().getTokenSlotLayout());
+            context.withDouble("price", 60.0).withInt("volume", 1).withBoolean("halted", false).withString("symbol", "ALPHA");
+
+            assertEquals(List.of("open", "alpha", "other"), all.evaluate(context), backend.toString());
+            // Once for the shared expression, once for "other"
+            assertEquals(2, context.doubleReads, backend.toString());
+
+            // Single rules evaluate without a memo and see the same results
+            assertTrue(ruleSet.evaluate("alpha", context), backend.toString());
+            assertFalse(ruleSet.evaluate("closed", context), backend.toString());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fasteval.compilation;
+
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.TestRules;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.SlotEvalContext;
+import fasteval.model.CompiledRule;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredCompilerTest {
+
+    @Test
+    public void testRuleThatFailsToCompileDoesNotHoldBackItsBatch() throws IOException {
+        // A rule name that is no Java identifier interprets fine but cannot become a class
+        FastEvalRuleSet interpreted = TestRules.load(TestRules.MARKET.replace(
+                "    watch: critical OR", "    bad-rule: price < 10.0\n    watch: critical OR")).usingInterpretation();
+        ObjectRuleContext context = (ObjectRuleContext) interpreted.getRuleContext();
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        TieredCompiler tiered = TieredCompiler.tier(context.getRuleNodeMap(), Map.of(), context.getRuleIds(),
+                null, true, Integer.MAX_VALUE, true, failures::add);
+
+        // As a drain would hand them over: every rule that got hot meanwhile, the bad one among them
+        tiered.compile(List.of("priceHigh", "bad-rule", "critical", "watch"));
+
+        Map<String, CompiledRule> rules = tiered.rules();
+        for (String ruleName : List.of("priceHigh", "critical", "watch")) {
+            assertTrue(((TieredRule) rules.get(ruleName)).isCompiled(), ruleName);
+        }
+        assertFalse(((TieredRule) rules.get("bad-rule")).isCompiled());
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage().contains("bad-rule"), failures.get(0).getMessage());
+
+        SlotEvalContext ctx = interpreted.newEvalContext()
+                .withDouble("price", 5.0)
+                .withInt("volume", 2000)
+                .withBoolean("halted", true);
+        for (String ruleName : List.of("priceHigh", "bad-rule", "critical", "watch", "busy")) {
+            assertEquals(interpreted.evaluate(ruleName, ctx), rules.get(ruleName).evaluate(ctx), ruleName);
+        }
+    }
+}
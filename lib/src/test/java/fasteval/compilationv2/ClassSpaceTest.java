@@ -0,0 +1,57 @@
+package fasteval.compilationv2;
+
+import fasteval.api.Backend;
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.TestRules;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassSpaceTest {
+
+    @Test
+    public void testRuleSetsReportTheirClasses() throws IOException {
+        String file = TestRules.write(TestRules.MARKET).toString();
+        for (Backend backend : List.of(Backend.COMPILATION, Backend.STRING_COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            ClassSpace space = ruleSet.getClassSpace();
+            // Four rules and one group class
+            assertEquals(5, space.getClassCount(), backend.name());
+            assertTrue(space.getClassFileBytes() > 0, backend.name());
+            assertTrue(space.getMetaspaceBytes() >= 0, backend.name());
+            assertTrue(ruleSet.getRuleContext().getRules().get("critical").getClass().isHidden(), backend.name());
+        }
+
+        // Rule set classes name each other, so they are defined through a loader of their own
+        FastEvalRuleSet ruleSetCompiled = FastEval.loadFromFile(file).usingRuleSetCompilation();
+        assertTrue(ruleSetCompiled.getClassSpace().getClassCount() > 0);
+        assertFalse(ruleSetCompiled.getRuleContext().getRules().get("critical").getClass().isHidden());
+
+        assertEquals(0, FastEval.loadFromFile(file).usingInterpretation().getClassSpace().getClassCount());
+    }
+
+    @Test
+    public void testDroppedRuleSetClassesUnload() throws Exception {
+        String file = TestRules.write(TestRules.MARKET).toString();
+        WeakReference<Class<?>> ruleClass = new WeakReference<>(ruleClass(file, Backend.STRING_COMPILATION));
+        WeakReference<Class<?>> byteBuddyClass = new WeakReference<>(ruleClass(file, Backend.COMPILATION));
+        // The last rule set built stays behind the static facade; replace it
+        FastEval.loadFromFile(file).usingInterpretation();
+
+        for (int i = 0; i < 50 && (ruleClass.get() != null || byteBuddyClass.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ruleClass.get());
+        assertNull(byteBuddyClass.get());
+    }
+
+    private static Class<?> ruleClass(String file, Backend backend) throws IOException {
+        return FastEval.loadFromFile(file).using(backend).getRuleContext().getRules().get("critical").getClass();
+    }
+}
@@ -0,0 +1,76 @@
+package fasteval.compilationv2;
+
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleSetJavaGeneratorTest {
+
+    private final Map<String, RuleNode> ruleNodeMap = new ExpressionParser(Set.of(
+            new RuleDefinition("priceHigh", "price > 100.0"),
+            new RuleDefinition("halted", "stockHalted == true"),
+            new RuleDefinition("critical", "priceHigh AND halted"),
+            new RuleDefinition("alert", "critical OR priceHigh")
+    ), List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("stockHalted", "boolean")
+    )).parseAllToMap();
+
+    private final List<String> order = List.of("priceHigh", "halted", "critical", "alert");
+
+    @Test
+    public void testSmallRulesAreInlined() {
+        RuleSetJavaGenerator generator = new RuleSetJavaGenerator("RuleSet_", ruleNodeMap, order, InliningPolicy.DEFAULT);
+        String source = generator.generate().get("fasteval.compiled.RuleSet_0");
+
+        assertTrue(generator.isInlined("priceHigh"));
+        assertTrue(source.contains("static boolean r_alert(EvalContext ctx)"));
+        assertFalse(source.contains("r_critical(ctx) ||"));
+        assertFalse(source.contains(".evaluate(ctx)"));
+    }
+
+    @Test
+    public void testNoInliningEmitsStaticCallsAcrossClasses() {
+        RuleSetJavaGenerator generator = new RuleSetJavaGenerator("RuleSet_", ruleNodeMap, order, new InliningPolicy(0, 0, 2));
+        Map<String, String> sources = generator.generate();
+
+        assertEquals(2, sources.size());
+        assertEquals("fasteval.compiled.RuleSet_1", generator.classNameOf("critical"));
+        assertEquals(1, generator.idOf("alert"));
+        assertTrue(sources.get("fasteval.compiled.RuleSet_1").contains("(RuleSet_0.r_priceHigh(ctx) && RuleSet_0.r_halted(ctx))"));
+        assertTrue(sources.get("fasteval.compiled.RuleSet_1").contains("(r_critical(ctx) || RuleSet_0.r_priceHigh(ctx))"));
+    }
+
+    @Test
+    public void testFanInLimitsInlining() {
+        RuleSetJavaGenerator generator = new RuleSetJavaGenerator("RuleSet_", ruleNodeMap, order, new InliningPolicy(16, 1, 500));
+        generator.generate();
+
+        // priceHigh is referenced twice, halted and critical once
+        assertFalse(generator.isInlined("priceHigh"));
+        assertTrue(generator.isInlined("halted"));
+        assertTrue(generator.isInlined("critical"));
+    }
+
+    @Test
+    public void testGroupClusteredOrderKeepsDependenciesFirst() {
+        Map<String, Set<String>> dependencies = Map.of(
+                "priceHigh", Set.of(), "halted", Set.of(),
+                "critical", Set.of("priceHigh", "halted"), "alert", Set.of("critical", "priceHigh"));
+
+        List<String> clustered = RuleSetCompiler.groupClusteredOrder(order,
+                Map.of("alerts", List.of("alert")), dependencies);
+
+        assertEquals("alert", clustered.get(3));
+        assertEquals(4, clustered.size());
+        assertTrue(clustered.indexOf("critical") < clustered.indexOf("alert"));
+    }
+}
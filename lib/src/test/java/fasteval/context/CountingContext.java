@@ -0,0 +1,32 @@
+package fasteval.context;
+
+// Counts numeric token reads, to see how much of a rule set an evaluation actually ran
+public class CountingContext extends SlotEvalContext {
+    public int doubleReads;
+    public int intReads;
+
+    public CountingContext(TokenSlotLayout layout) {
+        super(layout);
+    }
+
+    @Override
+    public double getDouble(int slot, String tokenName) {
+        doubleReads++;
+        return super.getDouble(slot, tokenName);
+    }
+
+    @Override
+    public int getInt(int slot, String tokenName) {
+        intReads++;
+        return super.getInt(slot, tokenName);
+    }
+
+    public int reads() {
+        return doubleReads + intReads;
+    }
+
+    public void reset() {
+        doubleReads = 0;
+        intReads = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package fasteval.context;
+
+import fasteval.api.FastEvalEngine;
+import fasteval.api.GroupHandle;
+import fasteval.api.RuleHandle;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleTableTest {
+
+    private final List<TokenDefinition> tokens = List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("stockHalted", "boolean")
+    );
+
+    private final Map<String, RuleNode> ruleNodeMap = new ExpressionParser(Set.of(
+            new RuleDefinition("priceHigh", "price > 100.0"),
+            new RuleDefinition("halted", "stockHalted == true"),
+            new RuleDefinition("critical", "priceHigh AND halted")
+    ), tokens).parseAllToMap();
+
+    private final ObjectRuleContext context = new ObjectRuleContext(ruleNodeMap,
+            Map.of("alerts", List.of("critical", "priceHigh"), "broken", List.of("missing")), tokens);
+
+    @Test
+    public void testRulesAreBuiltOnce() {
+        assertSame(context.getRules(), context.getRules());
+        assertSame(context.getRules().get("critical"), context.getRuleTable().rule(context.getRuleTable().idOf("critical")));
+        assertThrows(UnsupportedOperationException.class, () -> context.getRules().remove("critical"));
+    }
+
+    @Test
+    public void testGroupOrders() {
+        RuleTable table = context.getRuleTable();
+        int[] members = table.groupMembers("alerts");
+
+        assertEquals("critical", table.nameOf(members[0]));
+        assertEquals("priceHigh", table.nameOf(members[1]));
+        assertEquals(table.idOf("priceHigh"), table.groupEvaluationOrder("alerts")[0]);
+        assertEquals(-1, table.idOf("missing"));
+    }
+
+    @Test
+    public void testHandles() {
+        EvalContext evalContext = new EvalContextImpl().withDouble("price", 150.0).withBoolean("stockHalted", false);
+        FastEvalEngine engine = new FastEvalEngine(context, evalContext);
+
+        RuleHandle priceHigh = engine.ruleHandle("priceHigh");
+        GroupHandle alerts = engine.groupHandle("alerts");
+
+        assertTrue(engine.evaluate(priceHigh));
+        assertEquals(List.of("priceHigh"), engine.evaluateGroup(alerts));
+        assertThrows(IllegalArgumentException.class, () -> engine.ruleHandle("missing"));
+        assertThrows(IllegalArgumentException.class, () -> engine.groupHandle("broken"));
+
+        ObjectRuleContext other = new ObjectRuleContext(ruleNodeMap, Map.of(), tokens);
+        assertThrows(IllegalArgumentException.class,
+                () -> new FastEvalEngine(other, evalContext).evaluate(priceHigh));
+    }
+}
@@ -0,0 +1,110 @@
+package fasteval.context;
+
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.eval.RuleNodeEvaluator;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlotEvalContextTest {
+
+    private final List<TokenDefinition> tokens = List.of(
+            new TokenDefinition("stockPrice", "double"),
+            new TokenDefinition("volume", "int"),
+            new TokenDefinition("stockHalted", "boolean"),
+            new TokenDefinition("symbol", "string"),
+            new TokenDefinition("bidPrice", "double")
+    );
+
+    @Test
+    public void testSlotsArePerType() {
+        TokenSlotLayout layout = new TokenSlotLayout(tokens);
+
+        assertEquals(0, layout.slotOf("stockPrice"));
+        assertEquals(1, layout.slotOf("bidPrice"));
+        assertEquals(0, layout.slotOf("volume"));
+        assertEquals(0, layout.slotOf("stockHalted"));
+        assertEquals(0, layout.slotOf("symbol"));
+        assertEquals(-1, layout.slotOf("unknown"));
+        assertEquals(2, layout.getDoubleCount());
+    }
+
+    @Test
+    public void testWithAndGetByName() {
+        SlotEvalContext ctx = new TokenSlotLayout(tokens).newContext()
+                .withDouble("stockPrice", 99.9)
+                .withInt("volume", 42)
+                .withBoolean("stockHalted", true)
+                .withString("symbol", "ALPHA");
+
+        assertEquals(99.9, ctx.getDouble("stockPrice"));
+        assertEquals(42, ctx.getInt("volume"));
+        assertTrue(ctx.getBoolean("stockHalted"));
+        assertEquals("ALPHA", ctx.getString("symbol"));
+    }
+
+    @Test
+    public void testBooleanBitsBeyondOneWord() {
+        List<TokenDefinition> flags = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            flags.add(new TokenDefinition("flag" + i, "boolean"));
+        }
+        SlotEvalContext ctx = new TokenSlotLayout(flags).newContext();
+
+        ctx.setBoolean(129, true).setBoolean(64, true).setBoolean(64, false);
+
+        assertTrue(ctx.getBoolean("flag129"));
+        assertFalse(ctx.getBoolean("flag64"));
+        assertFalse(ctx.getBoolean("flag1"));
+    }
+
+    @Test
+    public void testWrongTypeThrows() {
+        SlotEvalContext ctx = new TokenSlotLayout(tokens).newContext();
+
+        Exception e = assertThrows(IllegalArgumentException.class, () -> ctx.withInt("stockPrice", 1));
+        assertTrue(e.getMessage().contains("Token 'stockPrice' is missing or not an int"));
+        assertThrows(IllegalArgumentException.class, () -> ctx.getDouble("missing"));
+        assertThrows(IllegalArgumentException.class, () -> ctx.getString("symbol"));
+    }
+
+    @Test
+    public void testClearResetsSlots() {
+        SlotEvalContext ctx = new TokenSlotLayout(tokens).newContext()
+                .withDouble("stockPrice", 10.0)
+                .withBoolean("stockHalted", true);
+
+        ctx.clear();
+
+        assertEquals(0.0, ctx.getDouble("stockPrice"));
+        assertFalse(ctx.getBoolean("stockHalted"));
+    }
+
+    @Test
+    public void testEvaluatorReadsBySlotOnly() {
+        TokenSlotLayout layout = new TokenSlotLayout(tokens);
+        ExpressionParser parser = new ExpressionParser(Set.of(
+                new RuleDefinition("alphaActive", "symbol == ALPHA AND NOT stockHalted AND volume >= 10")
+        ), tokens, layout);
+        Map<String, RuleNode> ruleMap = parser.parseAllToMap();
+
+        // Any name-based read fails the test
+        SlotEvalContext ctx = new SlotEvalContext(layout) {
+            @Override public double getDouble(String tokenName) { throw new AssertionError(tokenName); }
+            @Override public int getInt(String tokenName) { throw new AssertionError(tokenName); }
+            @Override public boolean getBoolean(String tokenName) { throw new AssertionError(tokenName); }
+            @Override public String getString(String tokenName) { throw new AssertionError(tokenName); }
+        };
+        ctx.setString(layout.slotOf("symbol"), "ALPHA").setInt(layout.slotOf("volume"), 12);
+
+        assertTrue(new RuleNodeEvaluator(ctx, ruleMap, Map.of()).evaluate(ruleMap.get("alphaActive")));
+    }
+}
@@ -0,0 +1,51 @@
+package fasteval.eval;
+
+import fasteval.compilation.SharedSubexpressions;
+import fasteval.context.SlotEvalContext;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeProfileTest {
+
+    private final List<TokenDefinition> tokens = List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("volume", "int"),
+            new TokenDefinition("halted", "boolean")
+    );
+
+    @Test
+    public void testSharedSubexpressionCostsOncePerSample() {
+        Map<String, RuleNode> ruleNodeMap = new ExpressionParser(Set.of(
+                new RuleDefinition("priceHigh", "price > 100.0"),
+                new RuleDefinition("busy", "volume > 1000 AND (price > 50.0 OR halted)"),
+                new RuleDefinition("watch", "priceHigh OR (volume > 1000 AND (price > 50.0 OR halted))")
+        ), tokens).parseAllToMap();
+        SharedSubexpressions.assignIds(ruleNodeMap, ruleNodeMap.size());
+        RuleNode busy = ruleNodeMap.get("busy");
+        RuleNode watch = ruleNodeMap.get("watch");
+        assertSame(busy, watch.getRight());
+        assertTrue(busy.getSharedId() >= 0);
+
+        TokenSlotLayout layout = new TokenSlotLayout(tokens);
+        SlotEvalContext context = new SlotEvalContext(layout);
+        context.setDouble(layout.slotOf("price"), 60.0).setInt(layout.slotOf("volume"), 2000);
+        NodeProfile profile = new NodeProfile(ruleNodeMap, Map.of("price", "double", "volume", "int", "halted", "boolean"));
+        profile.sample(List.of("busy", "watch"), context);
+
+        // busy pays volume > 1000 and price > 50.0; watch then pays only priceHigh
+        assertEquals(2, profile.evaluations(busy));
+        assertEquals(1.0, profile.cost(busy));
+        assertEquals(1.0, profile.cost(watch));
+        assertEquals(1, profile.evaluations(busy.getLeft()));
+    }
+}
@@ -0,0 +1,73 @@
+package fasteval.eval;
+
+import fasteval.api.FastEvalEngine;
+import fasteval.compilation.RuleNodeReferenceFinder;
+import fasteval.context.CountingContext;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.TokenSlotLayout;
+import fasteval.definitions.RuleDefinition;
+import fasteval.definitions.TokenDefinition;
+import fasteval.model.RuleNode;
+import fasteval.parser.ExpressionParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleMemoTest {
+
+    private final List<TokenDefinition> tokens = List.of(
+            new TokenDefinition("price", "double"),
+            new TokenDefinition("stockHalted", "boolean")
+    );
+
+    private final Map<String, RuleNode> ruleNodeMap = new ExpressionParser(Set.of(
+            new RuleDefinition("priceHigh", "price > 100.0"),
+            new RuleDefinition("halted", "stockHalted == true"),
+            new RuleDefinition("critical", "priceHigh AND halted"),
+            new RuleDefinition("alert", "critical OR priceHigh")
+    ), tokens).parseAllToMap();
+
+    @Test
+    public void testStoreAndReset() {
+        RuleMemo memo = new RuleMemo(130);
+
+        assertFalse(memo.isComputed(129));
+        assertTrue(memo.store(129, true));
+        assertFalse(memo.store(64, false));
+        assertTrue(memo.isComputed(129));
+        assertTrue(memo.result(129));
+        assertFalse(memo.result(64));
+
+        memo.reset();
+        assertFalse(memo.isComputed(129));
+    }
+
+    @Test
+    public void testDependencyOrderIds() {
+        Map<String, Integer> ids = RuleNodeReferenceFinder.assignRuleIds(RuleNodeReferenceFinder.dependencyOrder(ruleNodeMap));
+
+        assertTrue(ids.get("priceHigh") < ids.get("critical"));
+        assertTrue(ids.get("halted") < ids.get("critical"));
+        assertTrue(ids.get("critical") < ids.get("alert"));
+    }
+
+    @Test
+    public void testGroupEvaluatesSharedRuleOnce() {
+        TokenSlotLayout layout = new TokenSlotLayout(tokens);
+        ObjectRuleContext context = new ObjectRuleContext(ruleNodeMap,
+                Map.of("all", List.of("alert", "critical", "priceHigh")), tokens, layout);
+        CountingContext evalContext = new CountingContext(layout);
+        evalContext.setDouble(layout.slotOf("price"), 150.0).setBoolean(layout.slotOf("stockHalted"), true);
+
+        List<String> passed = new FastEvalEngine(context, evalContext).evaluateGroup("all");
+
+        // Declared order is kept even though members run in dependency order
+        assertEquals(List.of("alert", "critical", "priceHigh"), passed);
+        // price is only read by priceHigh, so priceHigh ran once
+        assertEquals(1, evalContext.doubleReads);
+    }
+}
@@ -0,0 +1,169 @@
+package fasteval.index;
+
+import fasteval.api.Backend;
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupHandle;
+import fasteval.api.GroupResult;
+import fasteval.api.GroupStrategy;
+import fasteval.api.TestRules;
+import fasteval.context.CountingContext;
+import fasteval.context.EvalContextImpl;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.SlotEvalContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EqualityIndexTest {
+
+    // Equalities and inequalities on strings, ints and booleans, some behind references or OR
+    private Path createRulesFile(int ruleCount) throws IOException {
+        Random random = new Random(4);
+        StringBuilder sb = new StringBuilder("tokens:\n    symbol: string\n    venue: int\n    halted: boolean\n    price: double\n\nrules:\n");
+        for (int i = 0; i < ruleCount; i++) {
+            String guard = switch (random.nextInt(6)) {
+                case 0, 1 -> "symbol == S" + random.nextInt(12);
+                case 2 -> "symbol != S" + random.nextInt(12);
+                case 3 -> "venue " + (random.nextBoolean() ? "==" : "!=") + " " + random.nextInt(5);
+                case 4 -> "halted " + (random.nextBoolean() ? "==" : "!=") + " " + random.nextBoolean();
+                default -> "halted";
+            };
+            String expression = switch (i < 5 ? 0 : random.nextInt(4)) {
+                case 0 -> guard + " AND price > " + random.nextInt(10);
+                case 1 -> "r" + random.nextInt(i) + " AND " + guard;
+                case 2 -> guard + " OR price < " + random.nextInt(10);
+                default -> "NOT r" + random.nextInt(i) + " AND (" + guard + " AND venue == " + random.nextInt(5) + ")";
+            };
+            sb.append("    r").append(i).append(": ").append(expression).append('\n');
+        }
+        sb.append("\ngroups:\n    all:\n");
+        for (int i = ruleCount - 1; i >= 0; i--) {
+            sb.append("        r").append(i).append('\n');
+        }
+        sb.append("        r3\n");
+        return TestRules.write(sb.toString());
+    }
+
+    @Test
+    public void testIndexMatchesDefaultEvaluation() throws IOException {
+        String file = createRulesFile(300).toString();
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            GroupHandle plain = ruleSet.groupHandle("all");
+            GroupHandle indexed = ruleSet.groupHandle("all", GroupStrategy.EQUALITY_INDEX);
+            GroupResult result = indexed.newResult();
+
+            Random random = new Random(6);
+            for (int i = 0; i < 300; i++) {
+                SlotEvalContext context = ruleSet.newEvalContext()
+                        // Symbols and venues outside the literals too; an unset symbol is null
+                        .withInt("venue", random.nextInt(7))
+                        .withBoolean("halted", random.nextBoolean())
+                        .withDouble("price", random.nextInt(12));
+                if (i % 20 != 0) {
+                    context.withString("symbol", "S" + random.nextInt(14));
+                }
+
+                List<String> expected = plain.evaluate(context);
+                assertEquals(expected, indexed.evaluate(context), backend.toString());
+                assertEquals(expected, ruleSet.withEvaluationContext(context).evaluateGroup("all", GroupStrategy.EQUALITY_INDEX));
+                assertEquals(expected, ruleSet.evaluateGroup(indexed, context, result).matchedNames());
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyRulesForTheSymbolAreEvaluated() throws IOException {
+        StringBuilder sb = new StringBuilder("tokens:\n    symbol: string\n    price: double\n\nrules:\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append("    r").append(i).append(": price > ").append(i % 7).append(" AND symbol == S").append(i % 250).append('\n');
+        }
+        sb.append("    anySymbol: price > 3.0\n\ngroups:\n    all:\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append("        r").append(i).append('\n');
+        }
+        sb.append("        anySymbol\n");
+        Path file = TestRules.write(sb.toString());
+
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).usingClosureCompilation();
+        CountingContext context = new CountingContext(ruleSet.getRuleContext().getTokenSlotLayout());
+        context.withString("symbol", "S7").withDouble("price", 4.0);
+
+        List<String> matched = ruleSet.groupHandle("all", GroupStrategy.EQUALITY_INDEX).evaluate(context);
+        assertEquals(List.of("r7", "r507", "r757", "anySymbol"), matched);
+        // Four rules of S7 and the unanchored one read the price
+        assertEquals(5, context.doubleReads);
+    }
+
+    @Test
+    public void testAnchorsPreferTheMostDiscriminatingToken() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    symbol: string
+                    side: string
+                    halted: boolean
+
+                rules:
+                    a: side == BUY AND symbol == ALPHA
+                    b: symbol == BETA AND side == SELL AND NOT halted
+                    c: side != BUY
+                    d: halted OR symbol == GAMMA
+
+                groups:
+                    all:
+                        a
+                        b
+                        c
+                        d
+                """);
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).usingInterpretation();
+        EqualityIndex index = EqualityIndex.build(List.of("a", "b", "c", "d"),
+                ((ObjectRuleContext) ruleSet.getRuleContext()).getRuleNodeMap(), ruleSet.getRuleContext().getRuleTable());
+        // a and b on symbol (three literals), c on side; d requires nothing
+        assertEquals(2, index.tokenCount());
+        assertEquals(1, index.unanchoredCount());
+    }
+
+    @Test
+    public void testMissingAnchorTokenFallsBackToMembers() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    symbol: string
+                    halted: boolean
+
+                rules:
+                    a: halted AND symbol == ALPHA
+                    b: halted AND symbol == BETA
+                    c: halted AND symbol == GAMMA
+
+                groups:
+                    all:
+                        a
+                        b
+                        c
+                """);
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).using(backend);
+            GroupHandle plain = ruleSet.groupHandle("all");
+            GroupHandle indexed = ruleSet.groupHandle("all", GroupStrategy.EQUALITY_INDEX);
+
+            // Every member short-circuits on halted before reading the missing symbol
+            EvalContextImpl notHalted = new EvalContextImpl().withBoolean("halted", false);
+            assertEquals(List.of(), plain.evaluate(notHalted), backend.name());
+            assertEquals(List.of(), indexed.evaluate(notHalted), backend.name());
+
+            EvalContextImpl halted = new EvalContextImpl().withBoolean("halted", true);
+            assertThrows(IllegalArgumentException.class, () -> plain.evaluate(halted), backend.name());
+            assertThrows(IllegalArgumentException.class, () -> indexed.evaluate(halted), backend.name());
+
+            halted.withString("symbol", "BETA");
+            assertEquals(List.of("b"), indexed.evaluate(halted), backend.name());
+        }
+    }
+}
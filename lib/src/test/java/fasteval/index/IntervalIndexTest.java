@@ -0,0 +1,151 @@
+package fasteval.index;
+
+import fasteval.api.Backend;
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupHandle;
+import fasteval.api.GroupResult;
+import fasteval.api.GroupStrategy;
+import fasteval.api.TestRules;
+import fasteval.context.CountingContext;
+import fasteval.context.EvalContextImpl;
+import fasteval.context.ObjectRuleContext;
+import fasteval.context.SlotEvalContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalIndexTest {
+
+    private static final String[] OPERATORS = {">", ">=", "<", "<=", "==", "!="};
+
+    // Threshold rules on a few tokens, some behind references or OR, with literals that repeat
+    private Path createRulesFile(int ruleCount) throws IOException {
+        Random random = new Random(3);
+        StringBuilder sb = new StringBuilder("tokens:\n    t0: double\n    t1: double\n    t2: int\n    flag: boolean\n\nrules:\n");
+        for (int i = 0; i < ruleCount; i++) {
+            String comparison = "t" + random.nextInt(3) + " " + OPERATORS[random.nextInt(OPERATORS.length)] + " " + random.nextInt(10);
+            String expression = switch (i < 5 ? 0 : random.nextInt(5)) {
+                case 0 -> comparison;
+                case 1 -> comparison + " AND flag";
+                case 2 -> "r" + random.nextInt(i) + " AND " + comparison;
+                case 3 -> comparison + " OR t1 < " + random.nextInt(10);
+                default -> "NOT r" + random.nextInt(i) + " AND (" + comparison + " AND t2 != " + random.nextInt(10) + ")";
+            };
+            sb.append("    r").append(i).append(": ").append(expression).append('\n');
+        }
+        sb.append("\ngroups:\n    all:\n");
+        for (int i = ruleCount - 1; i >= 0; i--) {
+            sb.append("        r").append(i).append('\n');
+        }
+        sb.append("        r7\n");
+        return TestRules.write(sb.toString());
+    }
+
+    @Test
+    public void testIndexMatchesDefaultEvaluation() throws IOException {
+        String file = createRulesFile(300).toString();
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file).using(backend);
+            GroupHandle plain = ruleSet.groupHandle("all");
+            GroupHandle indexed = ruleSet.groupHandle("all", GroupStrategy.INTERVAL_INDEX);
+            assertSame(indexed, ruleSet.groupHandle("all", GroupStrategy.INTERVAL_INDEX));
+            GroupResult result = indexed.newResult();
+
+            Random random = new Random(5);
+            for (int i = 0; i < 300; i++) {
+                SlotEvalContext context = ruleSet.newEvalContext()
+                        // Values on, between and beyond the literals; NaN fails every threshold
+                        .withDouble("t0", i % 50 == 0 ? Double.NaN : random.nextInt(22) / 2.0 - 0.5)
+                        .withDouble("t1", random.nextInt(12) - 1)
+                        .withInt("t2", random.nextInt(12) - 1)
+                        .withBoolean("flag", random.nextBoolean());
+
+                List<String> expected = plain.evaluate(context);
+                assertEquals(expected, indexed.evaluate(context), backend.toString());
+                assertEquals(expected, ruleSet.withEvaluationContext(context).evaluateGroup("all", GroupStrategy.INTERVAL_INDEX));
+                assertEquals(expected, ruleSet.evaluateGroup(indexed, context, result).matchedNames());
+            }
+        }
+    }
+
+    @Test
+    public void testMembersWhoseThresholdFailsAreNotEvaluated() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    price: double
+                    volume: int
+
+                rules:
+                    high: price > 100.0 AND volume > 5
+                    low: volume < 3 AND price < 10.0
+                    any: volume == 4 OR price == 1.0
+
+                groups:
+                    all:
+                        high
+                        low
+                        any
+                """);
+        FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).usingInterpretation();
+        IntervalIndex index = IntervalIndex.build(List.of("high", "low", "any"),
+                ((ObjectRuleContext) ruleSet.getRuleContext()).getRuleNodeMap(), ruleSet.getRuleContext().getRuleTable());
+        assertEquals(2, index.tokenCount());
+        assertEquals(1, index.unanchoredCount());
+
+        // "high" fails its price threshold and "low" its volume threshold; only "any" runs
+        CountingContext context = new CountingContext(ruleSet.getRuleContext().getTokenSlotLayout());
+        context.withDouble("price", 50.0).withInt("volume", 4);
+        assertEquals(List.of("any"), ruleSet.groupHandle("all", GroupStrategy.INTERVAL_INDEX).evaluate(context));
+        // The price search, the volume search and "any" itself
+        assertEquals(3, context.reads());
+    }
+
+    @Test
+    public void testStrategyNeedsParsedRules() {
+        FastEvalRuleSet ruleSet = new FastEvalRuleSet(new ObjectRuleContext(Map.of(), Map.of("g", List.of()), List.of()));
+        assertThrows(IllegalStateException.class, () -> ruleSet.groupHandle("g", GroupStrategy.INTERVAL_INDEX));
+    }
+
+    @Test
+    public void testMissingAnchorTokenFallsBackToMembers() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    price: double
+                    volume: int
+                    halted: boolean
+
+                rules:
+                    high: halted AND price > 100.0
+                    busy: halted AND volume >= 1000
+
+                groups:
+                    all:
+                        high
+                        busy
+                """);
+        for (Backend backend : List.of(Backend.INTERPRETATION, Backend.CLOSURE_COMPILATION, Backend.COMPILATION)) {
+            FastEvalRuleSet ruleSet = FastEval.loadFromFile(file.toString()).using(backend);
+            GroupHandle plain = ruleSet.groupHandle("all");
+            GroupHandle indexed = ruleSet.groupHandle("all", GroupStrategy.INTERVAL_INDEX);
+
+            // Both members short-circuit on halted before reading the missing thresholds
+            EvalContextImpl notHalted = new EvalContextImpl().withBoolean("halted", false);
+            assertEquals(List.of(), plain.evaluate(notHalted), backend.name());
+            assertEquals(List.of(), indexed.evaluate(notHalted), backend.name());
+
+            EvalContextImpl halted = new EvalContextImpl().withBoolean("halted", true).withInt("volume", 2000);
+            assertThrows(IllegalArgumentException.class, () -> plain.evaluate(halted), backend.name());
+            assertThrows(IllegalArgumentException.class, () -> indexed.evaluate(halted), backend.name());
+
+            halted.withDouble("price", 50.0);
+            assertEquals(List.of("busy"), indexed.evaluate(halted), backend.name());
+        }
+    }
+}
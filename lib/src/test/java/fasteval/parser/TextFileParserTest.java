@@ -7,7 +7,9 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -110,4 +112,50 @@ public class TextFileParserTest {
         assertEquals(0, parser.getTokens().size());
         assertEquals(0, parser.getRules().size());
     }
+
+    @Test
+    public void testStreamingAcrossBufferBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder("tokens:\r\nstockPrice: double\r\nrules:\r\n");
+        int ruleCount = 3 * TextFileParser.READ_BUFFER_SIZE / 20;
+        for (int i = 0; i < ruleCount; i++) {
+            content.append("r").append(i).append(": stockPrice > ").append(i).append(".0\r\n");
+        }
+        content.append("groups:\r\n  all:\r\n    r0\r\n    r").append(ruleCount - 1);
+
+        List<String> ruleNames = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        TextFileParser.streamRulesFile(generateTempFile(content.toString()), new RuleFileListener() {
+            @Override
+            public void onRule(RuleDefinition rule) {
+                ruleNames.add(rule.getName());
+                assertEquals("stockPrice > " + (ruleNames.size() - 1) + ".0", rule.getExpression());
+            }
+
+            @Override
+            public void onGroupMember(String groupName, String ruleName) {
+                members.add(groupName + "/" + ruleName);
+            }
+        });
+
+        assertEquals(ruleCount, ruleNames.size());
+        assertEquals("r" + (ruleCount - 1), ruleNames.get(ruleCount - 1));
+        assertEquals(List.of("all/r0", "all/r" + (ruleCount - 1)), members);
+    }
+
+    @Test
+    public void testParseGroups() throws IOException {
+        String fileContent = """
+                rules:
+                priceHigh: stockPrice > 100.0
+                groups:
+                alerts:
+                priceHigh
+                empty:
+                """;
+
+        TextFileParser parser = new TextFileParser();
+        parser.parseRulesFile(generateTempFile(fileContent));
+
+        assertEquals(Map.of("alerts", List.of("priceHigh"), "empty", List.of()), parser.getGroups());
+    }
 }
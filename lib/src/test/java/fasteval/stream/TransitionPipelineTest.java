@@ -0,0 +1,236 @@
+package fasteval.stream;
+
+import fasteval.api.FastEval;
+import fasteval.api.FastEvalRuleSet;
+import fasteval.api.GroupStrategy;
+import fasteval.api.TestRules;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransitionPipelineTest {
+
+    private FastEvalRuleSet loadRuleSet() throws IOException {
+        Path file = TestRules.write("""
+                tokens:
+                    price: double
+                    halted: boolean
+                    venue: string
+
+                rules:
+                    high: price > 100.0
+                    haltedHigh: high AND halted
+                    onVenue: venue == XNYS
+
+                groups:
+                    alerts:
+                        high
+                        haltedHigh
+                """);
+        return FastEval.loadFromFile(file.toString()).usingClosureCompilation();
+    }
+
+    @Test
+    public void testReportsOnlyTransitions() throws IOException {
+        Queue<String> events = new ConcurrentLinkedQueue<>();
+        try (TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(loadRuleSet(), "alerts")
+                .workers(2)
+                .ringCapacity(8)
+                .listener((key, memberIndex, ruleName, passing) -> events.add(key + " " + ruleName + " " + passing))
+                .start()) {
+            pipeline.claim("AAPL").setDouble("price", 50.0).publish();
+            pipeline.claim("AAPL").setDouble("price", 150.0).publish();
+            pipeline.claim("AAPL").setDouble("price", 160.0).publish();
+            pipeline.claim("AAPL").setBoolean("halted", true).publish();
+            pipeline.claim("AAPL").setDouble("price", 90.0).setBoolean("halted", false).publish();
+            pipeline.flush();
+            assertEquals(List.of("AAPL high true", "AAPL haltedHigh true", "AAPL high false", "AAPL haltedHigh false"),
+                    new ArrayList<>(events));
+
+            // Keys are independent: MSFT starts from nothing passing
+            events.clear();
+            pipeline.claim("MSFT").setDouble("price", 120.0).setBoolean("halted", true).publish();
+            pipeline.flush();
+            assertEquals(List.of("MSFT high true", "MSFT haltedHigh true"), new ArrayList<>(events));
+            assertEquals(6, pipeline.processedTicks());
+        }
+    }
+
+    @Test
+    public void testRejectedTickDoesNotStallTheWorker() throws IOException {
+        Queue<String> events = new ConcurrentLinkedQueue<>();
+        try (TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(loadRuleSet(), "alerts")
+                .workers(1)
+                .ringCapacity(2)
+                .tokensPerTick(1)
+                .listener((key, memberIndex, ruleName, passing) -> events.add(ruleName + " " + passing))
+                .start()) {
+            assertThrows(IllegalArgumentException.class, () -> pipeline.claim("A").setInt("price", 1));
+            assertThrows(IllegalStateException.class, () -> pipeline.claim("A").setDouble("price", 200.0).setBoolean("halted", true));
+            for (int i = 0; i < 10; i++) {
+                pipeline.claim("A").setDouble("price", i % 2 == 0 ? 200.0 : 0.0).publish();
+            }
+            pipeline.flush();
+            assertEquals(10, events.size());
+            assertEquals("high true", events.peek());
+        }
+    }
+
+    @Test
+    public void testFailedTickIsReportedAgainLater() throws IOException {
+        Queue<String> events = new ConcurrentLinkedQueue<>();
+        TransitionListener<String> listener = new TransitionListener<>() {
+            private boolean thrown;
+
+            @Override
+            public void transition(String key, int memberIndex, String ruleName, boolean passing) {
+                if (!thrown) {
+                    thrown = true;
+                    throw new IllegalStateException("listener down");
+                }
+                events.add(ruleName + " " + passing);
+            }
+
+            @Override
+            public void failed(String key, RuntimeException e) {
+                events.add("failed " + key + ": " + e.getMessage());
+            }
+        };
+        try (TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(loadRuleSet(), "alerts")
+                .workers(1)
+                .listener(listener)
+                .start()) {
+            pipeline.claim("A").setDouble("price", 200.0).publish();
+            pipeline.claim("A").setBoolean("halted", true).publish();
+            pipeline.flush();
+            // The failed tick left its edge unreported, so the next tick reports it
+            assertEquals(List.of("failed A: listener down", "high true", "haltedHigh true"), new ArrayList<>(events));
+        }
+    }
+
+    @Test
+    public void testTicksDroppedByAFailingListenerAreCounted() throws Exception {
+        CountDownLatch queued = new CountDownLatch(1);
+        TransitionListener<String> listener = new TransitionListener<>() {
+            private int transitions;
+
+            @Override
+            public void transition(String key, int memberIndex, String ruleName, boolean passing) {
+                try {
+                    // Hold the worker on the first tick so the rest drain as one batch
+                    if (transitions == 0) queued.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (++transitions == 3) {
+                    throw new IllegalStateException("listener down");
+                }
+            }
+
+            @Override
+            public void failed(String key, RuntimeException e) {
+                throw e;
+            }
+        };
+        try (TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(loadRuleSet(), "alerts")
+                .workers(1)
+                .listener(listener)
+                .start()) {
+            for (int i = 0; i < 6; i++) {
+                pipeline.claim("A").setDouble("price", i % 2 == 0 ? 200.0 : 0.0).publish();
+            }
+            queued.countDown();
+            pipeline.flush();
+            assertEquals(6, pipeline.processedTicks());
+        }
+    }
+
+    @Test
+    public void testCloseEvaluatesEveryClaimedTick() throws Exception {
+        TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(loadRuleSet(), "alerts")
+                .workers(2)
+                .ringCapacity(4)
+                .start();
+        AtomicLong published = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            String key = "P" + p;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int t = 0; ; t++) {
+                        pipeline.claim(key).setDouble("price", t % 200).publish();
+                        published.incrementAndGet();
+                    }
+                } catch (IllegalStateException closed) {
+                    // Claims made before close() are still evaluated
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        Thread.sleep(20);
+        pipeline.close();
+        for (Thread thread : threads) {
+            thread.join(5_000);
+            assertFalse(thread.isAlive());
+        }
+        assertEquals(published.get(), pipeline.processedTicks());
+    }
+
+    @Test
+    public void testOrderingIsKeptPerKeyAcrossProducers() throws Exception {
+        FastEvalRuleSet ruleSet = loadRuleSet();
+        Map<String, List<Boolean>> highTransitions = new ConcurrentHashMap<>();
+        int producers = 4;
+        int keysPerProducer = 50;
+        int ticksPerKey = 200;
+        try (TransitionPipeline<String> pipeline = TransitionPipeline.<String>builder(ruleSet, "alerts")
+                .strategy(GroupStrategy.INTERVAL_INDEX)
+                .workers(3)
+                .ringCapacity(64)
+                .listener((key, memberIndex, ruleName, passing) -> {
+                    if (ruleName.equals("high")) {
+                        highTransitions.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(passing);
+                    }
+                })
+                .start()) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    Random random = new Random(producer);
+                    for (int t = 0; t < ticksPerKey; t++) {
+                        for (int k = 0; k < keysPerProducer; k++) {
+                            // The price crosses 100 on every tick of a key: each tick is one edge
+                            double price = t % 2 == 0 ? 101.0 + random.nextInt(50) : random.nextInt(100);
+                            pipeline.claim("P" + producer + "K" + k).setDouble("price", price).publish();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            pipeline.flush();
+            assertEquals((long) producers * keysPerProducer * ticksPerKey, pipeline.processedTicks());
+        }
+
+        assertEquals(producers * keysPerProducer, highTransitions.size());
+        for (List<Boolean> transitions : highTransitions.values()) {
+            assertEquals(ticksPerKey, transitions.size());
+            for (int t = 0; t < ticksPerKey; t++) {
+                assertEquals(t % 2 == 0, transitions.get(t));
+            }
+        }
+    }
+}